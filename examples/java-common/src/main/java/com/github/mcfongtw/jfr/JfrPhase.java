@@ -0,0 +1,44 @@
+package com.github.mcfongtw.jfr;
+
+/**
+ * Scope of a {@link LifecyclePhaseEvent}:
+ *
+ * <pre>
+ * try (JfrPhase phase = JfrPhase.begin(benchmarkName, "Iteration", "TearDown")) {
+ *     ...
+ * }
+ * </pre>
+ *
+ * Without JFR, or when the event is not enabled in any recording, a shared no-op scope is returned.
+ */
+public class JfrPhase implements AutoCloseable {
+
+    private static final JfrPhase NOOP = new JfrPhase(null);
+
+    private final LifecyclePhaseEvent event;
+
+    private JfrPhase(LifecyclePhaseEvent event) {
+        this.event = event;
+    }
+
+    public static JfrPhase begin(String benchmark, String level, String phase) {
+        if (!JfrSupport.isAvailable() || !LifecyclePhaseEvent.isTypeEnabled()) {
+            return NOOP;
+        }
+
+        LifecyclePhaseEvent event = new LifecyclePhaseEvent();
+        event.benchmark = benchmark;
+        event.level = level;
+        event.phase = phase;
+        event.begin();
+
+        return new JfrPhase(event);
+    }
+
+    @Override
+    public void close() {
+        if (event != null) {
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.github.mcfongtw.jfr;
+
+/**
+ * Entry point of the custom JFR events. Event classes are only loaded if the running JVM ships JFR (JDK 8u262+),
+ * so callers do not need to check.
+ */
+public final class JfrSupport {
+
+    private static final boolean isAvailable = detectJfr();
+
+    private JfrSupport() {
+        //avoid instantiation
+    }
+
+    private static boolean detectJfr() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    public static boolean isAvailable() {
+        return isAvailable;
+    }
+
+    /**
+     * Emit a {@link LatencySampleEvent}, if enabled in the current recording.
+     */
+    public static void commitLatencySample(String metricName, long latencyInNanos) {
+        if (isAvailable) {
+            LatencySampleEvent.commit(metricName, latencyInNanos);
+        }
+    }
+}
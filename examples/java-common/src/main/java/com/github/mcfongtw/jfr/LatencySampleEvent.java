@@ -0,0 +1,29 @@
+package com.github.mcfongtw.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A latency sample above the threshold of its {@link com.github.mcfongtw.metrics.LatencyMetric}.
+ */
+@Name("com.github.mcfongtw.LatencySample")
+@Label("Latency Sample")
+@Description("Latency sample above the configured threshold")
+@Category({"Notes on Coding", "Metrics"})
+public class LatencySampleEvent extends Event {
+
+    @Label("Metric Name")
+    private String metricName;
+
+    @Label("Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    private long latency;
+
+    static void commit(String metricName, long latencyInNanos) {
+        LatencySampleEvent event = new LatencySampleEvent();
+        if (event.shouldCommit()) {
+            event.metricName = metricName;
+            event.latency = latencyInNanos;
+            event.commit();
+        }
+    }
+}
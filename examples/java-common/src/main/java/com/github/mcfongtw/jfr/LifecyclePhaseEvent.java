@@ -0,0 +1,29 @@
+package com.github.mcfongtw.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Duration of a benchmark lifecycle phase, i.e. Iteration TearDown, see {@link JfrPhase}.
+ */
+@Name("com.github.mcfongtw.LifecyclePhase")
+@Label("Lifecycle Phase")
+@Description("Setup / TearDown phase of a benchmark lifecycle")
+@Category({"Notes on Coding", "Benchmark"})
+public class LifecyclePhaseEvent extends Event {
+
+    // looked up once, JfrPhase checks it on every Level.Invocation fixture
+    private static final EventType EVENT_TYPE = EventType.getEventType(LifecyclePhaseEvent.class);
+
+    @Label("Benchmark")
+    String benchmark;
+
+    @Label("Level")
+    String level;
+
+    @Label("Phase")
+    String phase;
+
+    static boolean isTypeEnabled() {
+        return EVENT_TYPE.isEnabled();
+    }
+}
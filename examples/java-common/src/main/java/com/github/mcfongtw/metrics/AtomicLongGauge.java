@@ -0,0 +1,69 @@
+package com.github.mcfongtw.metrics;
+
+import com.codahale.metrics.Gauge;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A gauge which holds an absolute value, i.e. queue depth, bytes in flight or last observed offset.
+ *
+ * Every update is a single atomic store (or CAS loop) on an {@link AtomicLong}, so a reader can never observe an
+ * intermediate value. This is unlike {@link MetricUtils#incCounter(com.codahale.metrics.Counter, long)}, which
+ * emulates "set" with a read followed by an increment on a {@link com.codahale.metrics.Counter}.
+ */
+public class AtomicLongGauge implements Gauge<Long> {
+
+    private final AtomicLong value;
+
+    public AtomicLongGauge() {
+        this(0);
+    }
+
+    public AtomicLongGauge(long initialValue) {
+        value = new AtomicLong(initialValue);
+    }
+
+    /**
+     * Linearizable set, safe with any number of writers.
+     */
+    public void set(long newVal) {
+        value.set(newVal);
+    }
+
+    /**
+     * Cheaper, ordered store for a single writer thread. Readers see the new value eventually, never a torn one.
+     */
+    public void lazySet(long newVal) {
+        value.lazySet(newVal);
+    }
+
+    public boolean compareAndSet(long expectedVal, long newVal) {
+        return value.compareAndSet(expectedVal, newVal);
+    }
+
+    /**
+     * Lock-free high-water mark: keeps the largest value ever offered.
+     *
+     * @return the value after the update
+     */
+    public long updateMax(long candidateVal) {
+        long currentVal;
+        do {
+            currentVal = value.get();
+            if (candidateVal <= currentVal) {
+                return currentVal;
+            }
+        } while (!value.compareAndSet(currentVal, candidateVal));
+
+        return candidateVal;
+    }
+
+    public long get() {
+        return value.get();
+    }
+
+    @Override
+    public Long getValue() {
+        return value.get();
+    }
+}
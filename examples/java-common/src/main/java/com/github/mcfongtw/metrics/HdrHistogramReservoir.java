@@ -0,0 +1,60 @@
+package com.github.mcfongtw.metrics;
+
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * A {@link Reservoir} backed by an HdrHistogram {@link Recorder}.
+ *
+ * Unlike the default exponentially-decaying reservoir, no sample is ever thrown away: writers record into the
+ * recorder (wait-free, no allocation once the histogram has grown to fit the value range), and every call to
+ * {@link #getSnapshot()} folds the latest interval histogram into a cumulative one. Tail percentiles (p99.9,
+ * p99.99, max) are therefore exact up to the configured number of significant value digits.
+ */
+public class HdrHistogramReservoir implements Reservoir {
+
+    public static final int DEFAULT_NUMBER_OF_SIGNIFICANT_VALUE_DIGITS = 3;
+
+    private final Recorder recorder;
+
+    private final Histogram cumulativeHistogram;
+
+    private Histogram intervalHistogram;
+
+    public HdrHistogramReservoir() {
+        this(DEFAULT_NUMBER_OF_SIGNIFICANT_VALUE_DIGITS);
+    }
+
+    /**
+     * @param numberOfSignificantValueDigits precision of recorded values, between 0 and 5
+     */
+    public HdrHistogramReservoir(int numberOfSignificantValueDigits) {
+        recorder = new Recorder(numberOfSignificantValueDigits);
+        cumulativeHistogram = new Histogram(numberOfSignificantValueDigits);
+    }
+
+    @Override
+    public synchronized int size() {
+        foldIntervalHistogram();
+        return (int) Math.min(cumulativeHistogram.getTotalCount(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void update(long value) {
+        recorder.recordValue(value);
+    }
+
+    @Override
+    public synchronized Snapshot getSnapshot() {
+        foldIntervalHistogram();
+        return new HdrHistogramSnapshot(cumulativeHistogram.copy());
+    }
+
+    private void foldIntervalHistogram() {
+        //recycle the previous interval histogram to avoid allocation on every snapshot
+        intervalHistogram = recorder.getIntervalHistogram(intervalHistogram);
+        cumulativeHistogram.add(intervalHistogram);
+    }
+}
@@ -0,0 +1,92 @@
+package com.github.mcfongtw.metrics;
+
+import com.codahale.metrics.Snapshot;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@link Snapshot} view over an immutable copy of an HdrHistogram {@link Histogram}.
+ */
+public class HdrHistogramSnapshot extends Snapshot {
+
+    private final Histogram histogram;
+
+    public HdrHistogramSnapshot(Histogram histogram) {
+        this.histogram = histogram;
+    }
+
+    @Override
+    public double getValue(double quantile) {
+        if (quantile < 0.0 || quantile > 1.0 || Double.isNaN(quantile)) {
+            throw new IllegalArgumentException(quantile + " is not in [0..1]");
+        }
+
+        return histogram.getValueAtPercentile(quantile * 100.0);
+    }
+
+    public double get9999thPercentile() {
+        return getValue(0.9999);
+    }
+
+    /*
+     * NOTE: HdrHistogram does not keep individual samples; each distinct (bucketed) value is reported once.
+     */
+    @Override
+    public long[] getValues() {
+        long[] values = new long[countDistinctValues()];
+        int index = 0;
+        for (HistogramIterationValue value : histogram.recordedValues()) {
+            values[index++] = value.getValueIteratedTo();
+        }
+
+        return values;
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(histogram.getTotalCount(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public long getMax() {
+        return histogram.getTotalCount() == 0 ? 0 : histogram.getMaxValue();
+    }
+
+    @Override
+    public double getMean() {
+        return histogram.getTotalCount() == 0 ? 0 : histogram.getMean();
+    }
+
+    @Override
+    public long getMin() {
+        return histogram.getTotalCount() == 0 ? 0 : histogram.getMinValue();
+    }
+
+    @Override
+    public double getStdDev() {
+        return histogram.getTotalCount() == 0 ? 0 : histogram.getStdDeviation();
+    }
+
+    @Override
+    public void dump(OutputStream output) {
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+            for (long value : getValues()) {
+                out.printf("%d%n", value);
+            }
+        }
+    }
+
+    private int countDistinctValues() {
+        int count = 0;
+        for (HistogramIterationValue ignored : histogram.recordedValues()) {
+            count++;
+        }
+
+        return count;
+    }
+}
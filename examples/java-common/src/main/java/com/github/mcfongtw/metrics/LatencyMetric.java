@@ -1,10 +1,21 @@
 package com.github.mcfongtw.metrics;
 
 import com.codahale.metrics.*;
+import com.github.mcfongtw.jfr.JfrSupport;
 
 import java.util.concurrent.TimeUnit;
 
 public class LatencyMetric implements Metered, Sampling,  Metric, Counting {
+    /**
+     * Default threshold of {@link #setJfrThreshold(long, TimeUnit)}, i.e. -DjfrLatencyThresholdMicros=1000. Disabled if
+     * not set.
+     */
+    private static final long DEFAULT_JFR_THRESHOLD_IN_NANOS = initDefaultJfrThreshold();
+
+    private final String name;
+
+    private volatile long jfrThresholdInNanos = DEFAULT_JFR_THRESHOLD_IN_NANOS;
+
     private Timer latencyTimer;
 
     private Counter totalLatencyInMillis;
@@ -12,13 +23,92 @@ public class LatencyMetric implements Metered, Sampling,  Metric, Counting {
     private MetricRegistry registry = MetricUtils.getDefaultMetricRegistry();
 
     public LatencyMetric(String prefix) {
+        name = prefix;
         latencyTimer = registry.timer(MetricUtils.concat(prefix, "Latency"));
         totalLatencyInMillis = registry.counter(MetricUtils.concat(prefix,  "TotalLatencyMillis"));
     }
 
+    /**
+     * Register under {@code key.resolve("Latency")} and {@code key.resolve("TotalLatencyMillis")}, with the tags of the
+     * key. Prefer {@link MetricKey#latencyMetric()}, which resolves only once.
+     */
+    public LatencyMetric(MetricKey key) {
+        name = key.getRegistryName();
+        latencyTimer = key.resolve("Latency").timer();
+        totalLatencyInMillis = key.resolve("TotalLatencyMillis").counter();
+    }
+
+    /**
+     * Record latency into the given reservoir, i.e. {@link HdrHistogramReservoir} for lossless percentiles.
+     *
+     * NOTE: if a timer of the same name is already registered, the existing one (and its reservoir) is reused.
+     */
+    public LatencyMetric(String prefix, final Reservoir reservoir) {
+        name = prefix;
+        latencyTimer = registry.timer(MetricUtils.concat(prefix, "Latency"), new MetricRegistry.MetricSupplier<Timer>() {
+            @Override
+            public Timer newMetric() {
+                return new Timer(reservoir);
+            }
+        });
+        totalLatencyInMillis = registry.counter(MetricUtils.concat(prefix,  "TotalLatencyMillis"));
+    }
+
+    private static long initDefaultJfrThreshold() {
+        Long thresholdInMicros = Long.getLong("jfrLatencyThresholdMicros");
+
+        return thresholdInMicros == null || thresholdInMicros < 0 ? -1 : TimeUnit.MICROSECONDS.toNanos(thresholdInMicros);
+    }
+
+    /**
+     * Emit a {@link com.github.mcfongtw.jfr.LatencySampleEvent} for every sample of at least {@code threshold}, so that
+     * outliers can be lined up with GC pauses, safepoints and I/O in the same JFR recording. Events are only committed
+     * while a recording has them enabled.
+     *
+     * @param threshold negative to disable
+     */
+    public void setJfrThreshold(long threshold, TimeUnit unit) {
+        jfrThresholdInNanos = threshold < 0 ? -1 : unit.toNanos(threshold);
+    }
+
     public void addTime(long duration, TimeUnit unit) {
         latencyTimer.update(duration, unit);
         totalLatencyInMillis.inc(TimeUnit.MILLISECONDS.convert(duration, unit));
+
+        long thresholdInNanos = jfrThresholdInNanos;
+        if (thresholdInNanos >= 0) {
+            long durationInNanos = unit.toNanos(duration);
+            if (durationInNanos >= thresholdInNanos) {
+                JfrSupport.commitLatencySample(name, durationInNanos);
+            }
+        }
+    }
+
+    /**
+     * Record latency of an operation which is expected to be issued every {@code expectedInterval}, correcting for
+     * coordinated omission: if the operation overruns its schedule, the samples of the operations that would have been
+     * issued (and waited) in the meantime are back-filled, i.e. duration - interval, duration - 2 * interval, ...
+     * as with {@link org.HdrHistogram.Histogram#recordValueWithExpectedInterval(long, long)}.
+     *
+     * Only the actual duration is added to the total latency.
+     */
+    public void addTime(long duration, TimeUnit unit, long expectedInterval, TimeUnit intervalUnit) {
+        addTime(duration, unit);
+
+        long durationInNanos = unit.toNanos(duration);
+        long expectedIntervalInNanos = intervalUnit.toNanos(expectedInterval);
+        if (expectedIntervalInNanos <= 0) {
+            return;
+        }
+
+        for (long missedDuration = durationInNanos - expectedIntervalInNanos; missedDuration >= expectedIntervalInNanos;
+             missedDuration -= expectedIntervalInNanos) {
+            latencyTimer.update(missedDuration, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public String getName() {
+        return name;
     }
 
     public long getCount() {
@@ -0,0 +1,149 @@
+package com.github.mcfongtw.metrics;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Interned, pre-resolved name of a metric with tags.
+ *
+ * Resolve a key once, i.e. into a {@code static final} field, and use the handles it caches, such as
+ * {@link #latencyMetric()}: after the first call, the hot path does neither string building nor registry lookup.
+ * Tags are encoded into the registry name as {@code name,tag1=a,tag2=b}, sorted by tag key, which is the format of
+ * InfluxDB measurements.
+ *
+ * NOTE: handles are resolved against {@link MetricUtils#getDefaultMetricRegistry()} and kept even if the metric is
+ * later removed from the registry.
+ */
+public final class MetricKey {
+
+    private static final ConcurrentMap<MetricKey, MetricKey> INTERNED_KEYS = new ConcurrentHashMap<>();
+
+    private final String name;
+
+    private final SortedMap<String, String> tags;
+
+    private final String registryName;
+
+    private volatile LatencyMetric latencyMetric;
+
+    private volatile Timer timer;
+
+    private volatile Counter counter;
+
+    private MetricKey(String name, SortedMap<String, String> tags) {
+        this.name = name;
+        this.tags = Collections.unmodifiableSortedMap(tags);
+
+        StringBuilder sb = new StringBuilder(name);
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            sb.append(',').append(tag.getKey()).append('=').append(tag.getValue());
+        }
+        this.registryName = sb.toString();
+    }
+
+    public static MetricKey of(String name) {
+        return of(name, Collections.<String, String>emptyMap());
+    }
+
+    public static MetricKey of(String name, Map<String, String> tags) {
+        MetricKey key = new MetricKey(name, new TreeMap<>(tags));
+        MetricKey internedKey = INTERNED_KEYS.putIfAbsent(key, key);
+
+        return internedKey == null ? key : internedKey;
+    }
+
+    /**
+     * @return the key of {@code name.suffix} with the same tags, i.e. {@code key.resolve("Latency")}
+     */
+    public MetricKey resolve(String suffix) {
+        return of(MetricUtils.concat(name, suffix), tags);
+    }
+
+    /**
+     * @return the key with one more tag, or the given tag replaced
+     */
+    public MetricKey tagged(String tagKey, String tagValue) {
+        SortedMap<String, String> newTags = new TreeMap<>(tags);
+        newTags.put(tagKey, tagValue);
+
+        return of(name, newTags);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public SortedMap<String, String> getTags() {
+        return tags;
+    }
+
+    /**
+     * @return name in the {@link com.codahale.metrics.MetricRegistry}, with tags encoded
+     */
+    public String getRegistryName() {
+        return registryName;
+    }
+
+    public LatencyMetric latencyMetric() {
+        LatencyMetric metric = latencyMetric;
+        if (metric == null) {
+            synchronized (this) {
+                metric = latencyMetric;
+                if (metric == null) {
+                    latencyMetric = metric = new LatencyMetric(this);
+                }
+            }
+        }
+
+        return metric;
+    }
+
+    public Timer timer() {
+        Timer metric = timer;
+        if (metric == null) {
+            // registry.timer() is get-or-add, a racing thread resolves the same instance
+            timer = metric = MetricUtils.getDefaultMetricRegistry().timer(registryName);
+        }
+
+        return metric;
+    }
+
+    public Counter counter() {
+        Counter metric = counter;
+        if (metric == null) {
+            counter = metric = MetricUtils.getDefaultMetricRegistry().counter(registryName);
+        }
+
+        return metric;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MetricKey)) {
+            return false;
+        }
+
+        MetricKey that = (MetricKey) o;
+        return name.equals(that.name) && tags.equals(that.tags);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * name.hashCode() + tags.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return registryName;
+    }
+}
@@ -1,6 +1,7 @@
 package com.github.mcfongtw.metrics;
 
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.SharedMetricRegistries;
 import com.google.common.annotations.VisibleForTesting;
@@ -23,6 +24,32 @@ public class MetricUtils {
         return prefix + "." + metricName;
     }
 
+    /**
+     * Get or register an {@link AtomicLongGauge} under the given name.
+     *
+     * @throws IllegalArgumentException if a metric of another type is registered under the same name
+     */
+    public static AtomicLongGauge atomicLongGauge(MetricRegistry registry, String name) {
+        // MetricSupplier<Gauge> is raw in the registry API
+        Gauge<?> gauge = registry.gauge(name, new MetricRegistry.MetricSupplier<Gauge>() {
+            @Override
+            public AtomicLongGauge newMetric() {
+                return new AtomicLongGauge();
+            }
+        });
+
+        if (!(gauge instanceof AtomicLongGauge)) {
+            throw new IllegalArgumentException(name + " is already used for a different type of gauge");
+        }
+
+        return (AtomicLongGauge) gauge;
+    }
+
+    /**
+     * @deprecated read-then-inc is not atomic; concurrent writers can publish a mixed value. Use
+     * {@link #atomicLongGauge(MetricRegistry, String)} and {@link AtomicLongGauge#set(long)} instead.
+     */
+    @Deprecated
     public static void incCounter(Counter counter, long newVal) {
         counter.inc(newVal - counter.getCount());
     }
@@ -0,0 +1,167 @@
+package com.github.mcfongtw.metrics;
+
+import com.codahale.metrics.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Companion of {@link LatencyMetric}: bytes allocated and CPU time consumed by the current thread per operation, i.e.
+ * to tell whether a copy strategy is allocation-bound or CPU-bound rather than waiting on I/O.
+ *
+ * Bracket the operation with {@link #start()} and {@link #stop()} on the same thread. Both read the thread's
+ * counters from {@link ThreadMXBean} into a per-thread {@code long[]}. On JDK 8, reading the allocated bytes itself
+ * allocates two {@code long[]} per call; that cost is measured once, when the class is loaded, and subtracted from each
+ * sample. Still, neither is free: keep them out of the measured code unless asked for. A dimension not supported by
+ * the JVM is not recorded.
+ */
+public class ResourceMetric implements Metric, Counting {
+
+    private static final com.sun.management.ThreadMXBean threadMXBean = initThreadMXBean();
+
+    private static final boolean isAllocatedBytesSupported = threadMXBean != null && threadMXBean.isThreadAllocatedMemoryEnabled();
+
+    private static final boolean isCpuTimeSupported = threadMXBean != null && threadMXBean.isCurrentThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled();
+
+    /**
+     * Bytes allocated by reading the allocated bytes of the current thread, i.e. counted in every sample
+     */
+    private static final long allocatedBytesOfRead = calibrateAllocatedBytesOfRead();
+
+    private static final int ALLOCATED_BYTES = 0;
+
+    private static final int CPU_TIME = 1;
+
+    private final Histogram allocatedBytes;
+
+    private final Histogram cpuTimeInNanos;
+
+    private final Counter totalAllocatedBytes;
+
+    private final Counter totalCpuTimeInNanos;
+
+    private final ThreadLocal<long[]> startValues = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[2];
+        }
+    };
+
+    private MetricRegistry registry = MetricUtils.getDefaultMetricRegistry();
+
+    public ResourceMetric(String prefix) {
+        allocatedBytes = registry.histogram(MetricUtils.concat(prefix, "AllocatedBytes"), new MetricRegistry.MetricSupplier<Histogram>() {
+            @Override
+            public Histogram newMetric() {
+                return new Histogram(new HdrHistogramReservoir());
+            }
+        });
+        cpuTimeInNanos = registry.histogram(MetricUtils.concat(prefix, "CpuTimeNanos"), new MetricRegistry.MetricSupplier<Histogram>() {
+            @Override
+            public Histogram newMetric() {
+                return new Histogram(new HdrHistogramReservoir());
+            }
+        });
+        totalAllocatedBytes = registry.counter(MetricUtils.concat(prefix, "TotalAllocatedBytes"));
+        totalCpuTimeInNanos = registry.counter(MetricUtils.concat(prefix, "TotalCpuTimeNanos"));
+    }
+
+    private static com.sun.management.ThreadMXBean initThreadMXBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+
+        com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+        if (sunBean.isThreadAllocatedMemorySupported() && !sunBean.isThreadAllocatedMemoryEnabled()) {
+            sunBean.setThreadAllocatedMemoryEnabled(true);
+        }
+        if (sunBean.isCurrentThreadCpuTimeSupported() && !sunBean.isThreadCpuTimeEnabled()) {
+            sunBean.setThreadCpuTimeEnabled(true);
+        }
+
+        return sunBean;
+    }
+
+    private static long calibrateAllocatedBytesOfRead() {
+        if (!isAllocatedBytesSupported) {
+            return 0;
+        }
+
+        // the minimum over a few rounds, i.e. once the calls are compiled
+        long minDelta = Long.MAX_VALUE;
+        for (int i = 0; i < 1000; i++) {
+            long before = currentThreadAllocatedBytes();
+            long after = currentThreadAllocatedBytes();
+            minDelta = Math.min(minDelta, after - before);
+        }
+
+        return Math.max(minDelta, 0);
+    }
+
+    public static boolean isAllocatedBytesSupported() {
+        return isAllocatedBytesSupported;
+    }
+
+    public static boolean isCpuTimeSupported() {
+        return isCpuTimeSupported;
+    }
+
+    public void start() {
+        long[] values = startValues.get();
+        values[ALLOCATED_BYTES] = currentThreadAllocatedBytes();
+        values[CPU_TIME] = currentThreadCpuTime();
+    }
+
+    /**
+     * Record the resources consumed by the current thread since its last {@link #start()}.
+     */
+    public void stop() {
+        long cpuTime = currentThreadCpuTime();
+        long allocated = currentThreadAllocatedBytes();
+        long[] values = startValues.get();
+
+        if (isAllocatedBytesSupported) {
+            long delta = Math.max(allocated - values[ALLOCATED_BYTES] - allocatedBytesOfRead, 0);
+            allocatedBytes.update(delta);
+            totalAllocatedBytes.inc(delta);
+        }
+        if (isCpuTimeSupported) {
+            long delta = cpuTime - values[CPU_TIME];
+            cpuTimeInNanos.update(delta);
+            totalCpuTimeInNanos.inc(delta);
+        }
+    }
+
+    /**
+     * @return number of recorded operations
+     */
+    @Override
+    public long getCount() {
+        return isAllocatedBytesSupported ? allocatedBytes.getCount() : cpuTimeInNanos.getCount();
+    }
+
+    public Snapshot getAllocatedBytesSnapshot() {
+        return allocatedBytes.getSnapshot();
+    }
+
+    public Snapshot getCpuTimeSnapshot() {
+        return cpuTimeInNanos.getSnapshot();
+    }
+
+    public long getTotalAllocatedBytes() {
+        return totalAllocatedBytes.getCount();
+    }
+
+    public long getTotalCpuTimeInNanos() {
+        return totalCpuTimeInNanos.getCount();
+    }
+
+    private static long currentThreadAllocatedBytes() {
+        return isAllocatedBytesSupported ? threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    private static long currentThreadCpuTime() {
+        return isCpuTimeSupported ? threadMXBean.getCurrentThreadCpuTime() : 0;
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.mcfongtw.metrics;
+
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.SingleWriterRecorder;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A striped variant of {@link HdrHistogramReservoir}, in the spirit of {@link java.util.concurrent.atomic.LongAdder}.
+ *
+ * Every recording thread owns a private cell with a {@link SingleWriterRecorder}, so {@link #update(long)} never
+ * touches a shared cache line nor a lock. Cells are only merged when {@link #size()} or {@link #getSnapshot()} is
+ * called, i.e. at report time. Cells of terminated threads are kept so that their samples are not lost.
+ */
+public class StripedHdrHistogramReservoir implements Reservoir {
+
+    private final int numberOfSignificantValueDigits;
+
+    private final List<Cell> cells = new CopyOnWriteArrayList<>();
+
+    private final ThreadLocal<Cell> localCell = new ThreadLocal<Cell>() {
+        @Override
+        protected Cell initialValue() {
+            Cell cell = new Cell(numberOfSignificantValueDigits);
+            cells.add(cell);
+            return cell;
+        }
+    };
+
+    private final Histogram cumulativeHistogram;
+
+    public StripedHdrHistogramReservoir() {
+        this(HdrHistogramReservoir.DEFAULT_NUMBER_OF_SIGNIFICANT_VALUE_DIGITS);
+    }
+
+    /**
+     * @param numberOfSignificantValueDigits precision of recorded values, between 0 and 5
+     */
+    public StripedHdrHistogramReservoir(int numberOfSignificantValueDigits) {
+        this.numberOfSignificantValueDigits = numberOfSignificantValueDigits;
+        cumulativeHistogram = new Histogram(numberOfSignificantValueDigits);
+    }
+
+    @Override
+    public synchronized int size() {
+        mergeCells();
+        return (int) Math.min(cumulativeHistogram.getTotalCount(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void update(long value) {
+        localCell.get().recorder.recordValue(value);
+    }
+
+    @Override
+    public synchronized Snapshot getSnapshot() {
+        mergeCells();
+        return new HdrHistogramSnapshot(cumulativeHistogram.copy());
+    }
+
+    int getNumberOfCells() {
+        return cells.size();
+    }
+
+    private void mergeCells() {
+        for (Cell cell : cells) {
+            //recycle the previous interval histogram to avoid allocation on every snapshot
+            cell.intervalHistogram = cell.recorder.getIntervalHistogram(cell.intervalHistogram);
+            cumulativeHistogram.add(cell.intervalHistogram);
+        }
+    }
+
+    private static class Cell {
+        private final SingleWriterRecorder recorder;
+
+        // only accessed by reader under the reservoir's monitor
+        private Histogram intervalHistogram;
+
+        private Cell(int numberOfSignificantValueDigits) {
+            recorder = new SingleWriterRecorder(numberOfSignificantValueDigits);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.github.mcfongtw.metrics;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link Reservoir} which keeps one HdrHistogram {@link Recorder} per second, in a ring of
+ * {@code windowSizeInSeconds} buckets.
+ *
+ * {@link #getSnapshot()} covers the whole window, while {@link #getSnapshot(long, TimeUnit)} answers questions such
+ * as "p99 over the last 10 seconds". Recording never allocates nor waits: the writer stamps the bucket of the current
+ * second with that second and records into its recorder. Rotation is on the reader side: a snapshot drains every
+ * recorder and resets the accumulated histogram of a bucket once its stamp has moved on to a newer second. Samples not
+ * drained before their bucket comes round again, i.e. with no snapshot for a whole window, count in the newer second.
+ */
+public class TimeWindowHdrHistogramReservoir implements Reservoir {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final int windowSizeInSeconds;
+
+    private final Bucket[] buckets;
+
+    private final Clock clock;
+
+    private final long startTick;
+
+    private final Histogram windowHistogram;
+
+    public TimeWindowHdrHistogramReservoir(int windowSizeInSeconds) {
+        this(windowSizeInSeconds, HdrHistogramReservoir.DEFAULT_NUMBER_OF_SIGNIFICANT_VALUE_DIGITS, Clock.defaultClock());
+    }
+
+    /**
+     * @param windowSizeInSeconds number of per-second buckets kept in the ring
+     * @param numberOfSignificantValueDigits precision of recorded values, between 0 and 5
+     * @param clock source of time, mainly for testing
+     */
+    public TimeWindowHdrHistogramReservoir(int windowSizeInSeconds, int numberOfSignificantValueDigits, Clock clock) {
+        if (windowSizeInSeconds <= 0) {
+            throw new IllegalArgumentException("windowSizeInSeconds must be positive: " + windowSizeInSeconds);
+        }
+
+        this.windowSizeInSeconds = windowSizeInSeconds;
+        this.clock = clock;
+        this.startTick = clock.getTick();
+        this.windowHistogram = new Histogram(numberOfSignificantValueDigits);
+        this.buckets = new Bucket[windowSizeInSeconds];
+        for (int i = 0; i < windowSizeInSeconds; i++) {
+            buckets[i] = new Bucket(numberOfSignificantValueDigits);
+        }
+    }
+
+    public int getWindowSizeInSeconds() {
+        return windowSizeInSeconds;
+    }
+
+    @Override
+    public int size() {
+        return getSnapshot().size();
+    }
+
+    @Override
+    public void update(long value) {
+        long second = currentSecond();
+        Bucket bucket = buckets[(int) (second % windowSizeInSeconds)];
+
+        bucket.stamp(second);
+        bucket.recorder.recordValue(value);
+    }
+
+    @Override
+    public Snapshot getSnapshot() {
+        return getSnapshot(windowSizeInSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return a snapshot of the samples recorded within the last {@code duration}, rounded up to whole seconds and
+     * capped by the window size. The current (partial) second is included.
+     */
+    public synchronized Snapshot getSnapshot(long duration, TimeUnit unit) {
+        long numSeconds = Math.min(windowSizeInSeconds, Math.max(1, (unit.toNanos(duration) + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND));
+        long now = currentSecond();
+
+        for (Bucket bucket : buckets) {
+            bucket.drain();
+        }
+
+        windowHistogram.reset();
+        for (long second = Math.max(0, now - numSeconds + 1); second <= now; second++) {
+            buckets[(int) (second % windowSizeInSeconds)].foldInto(second, windowHistogram);
+        }
+
+        return new HdrHistogramSnapshot(windowHistogram.copy());
+    }
+
+    private long currentSecond() {
+        return (clock.getTick() - startTick) / NANOS_PER_SECOND;
+    }
+
+    private static class Bucket {
+        private static final long EPOCH_EMPTY = -1;
+
+        /**
+         * Latest second recorded into this bucket, stamped by the writers before recording
+         */
+        private final AtomicLong epochSecond = new AtomicLong(EPOCH_EMPTY);
+
+        private final Recorder recorder;
+
+        // reader side only, guarded by the reservoir's monitor
+        private final Histogram accumulatedHistogram;
+
+        private long accumulatedEpochSecond = EPOCH_EMPTY;
+
+        private Histogram intervalHistogram;
+
+        private Bucket(int numberOfSignificantValueDigits) {
+            recorder = new Recorder(numberOfSignificantValueDigits);
+            accumulatedHistogram = new Histogram(numberOfSignificantValueDigits);
+        }
+
+        private void stamp(long second) {
+            long epoch = epochSecond.get();
+            // a writer which slept through a whole window keeps the newer second
+            while (epoch < second && !epochSecond.compareAndSet(epoch, second)) {
+                epoch = epochSecond.get();
+            }
+        }
+
+        private void drain() {
+            intervalHistogram = recorder.getIntervalHistogram(intervalHistogram);
+            // read after draining, i.e. not older than any drained sample
+            long epoch = epochSecond.get();
+            if (accumulatedEpochSecond != epoch) {
+                accumulatedHistogram.reset();
+                accumulatedEpochSecond = epoch;
+            }
+            accumulatedHistogram.add(intervalHistogram);
+        }
+
+        private void foldInto(long second, Histogram target) {
+            if (accumulatedEpochSecond != second) {
+                // nothing recorded in this second, or the bucket has been recycled
+                return;
+            }
+
+            target.add(accumulatedHistogram);
+        }
+    }
+}
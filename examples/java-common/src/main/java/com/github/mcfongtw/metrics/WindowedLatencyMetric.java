@@ -0,0 +1,30 @@
+package com.github.mcfongtw.metrics;
+
+import com.codahale.metrics.Snapshot;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link LatencyMetric} backed by {@link TimeWindowHdrHistogramReservoir}, for long-running demos where the
+ * cumulative distribution hides what happened recently, i.e. "p99 over the last 10 seconds".
+ *
+ * NOTE: if a timer of the same name is already registered, {@link #getSnapshot()} reads the existing timer while
+ * {@link #getSnapshot(long, TimeUnit)} reads this metric's (empty) reservoir. Use a unique prefix.
+ */
+public class WindowedLatencyMetric extends LatencyMetric {
+
+    private final TimeWindowHdrHistogramReservoir reservoir;
+
+    public WindowedLatencyMetric(String prefix, int windowSizeInSeconds) {
+        this(prefix, new TimeWindowHdrHistogramReservoir(windowSizeInSeconds));
+    }
+
+    public WindowedLatencyMetric(String prefix, TimeWindowHdrHistogramReservoir reservoir) {
+        super(prefix, reservoir);
+        this.reservoir = reservoir;
+    }
+
+    public Snapshot getSnapshot(long duration, TimeUnit unit) {
+        return reservoir.getSnapshot(duration, unit);
+    }
+}
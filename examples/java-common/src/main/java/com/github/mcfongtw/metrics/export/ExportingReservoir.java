@@ -0,0 +1,36 @@
+package com.github.mcfongtw.metrics.export;
+
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+
+/**
+ * Decorate a {@link Reservoir} so that every sample is also published to a {@link MetricExportPipeline.Channel},
+ * i.e. {@code new LatencyMetric(name, new ExportingReservoir(new HdrHistogramReservoir(), pipeline.newChannel(name)))}.
+ */
+public class ExportingReservoir implements Reservoir {
+
+    private final Reservoir delegate;
+
+    private final MetricExportPipeline.Channel channel;
+
+    public ExportingReservoir(Reservoir delegate, MetricExportPipeline.Channel channel) {
+        this.delegate = delegate;
+        this.channel = channel;
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public void update(long value) {
+        delegate.update(value);
+        channel.publish(value);
+    }
+
+    @Override
+    public Snapshot getSnapshot() {
+        return delegate.getSnapshot();
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.mcfongtw.metrics.export;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append line-protocol payload to a local file, i.e. to be imported into InfluxDB after the benchmark.
+ */
+public class FileMetricSink implements MetricSink {
+
+    private final FileChannel fileChannel;
+
+    public FileMetricSink(Path path) throws IOException {
+        fileChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public void write(ByteBuffer payload) throws IOException {
+        while (payload.hasRemaining()) {
+            fileChannel.write(payload);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        fileChannel.close();
+    }
+}
@@ -0,0 +1,69 @@
+package com.github.mcfongtw.metrics.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+
+/**
+ * POST line-protocol payload to an HTTP endpoint, i.e. InfluxDB's {@code /write?db=<database>}.
+ */
+public class HttpMetricSink implements MetricSink {
+
+    private static final int TIMEOUT_IN_MILLIS = 5000;
+
+    private final URL url;
+
+    private byte[] copyBuffer = new byte[0];
+
+    public HttpMetricSink(URL url) {
+        this.url = url;
+    }
+
+    public static HttpMetricSink forInfluxdb(String host, int port, String database) throws IOException {
+        return new HttpMetricSink(new URL("http", host, port, "/write?db=" + database));
+    }
+
+    @Override
+    public void write(ByteBuffer payload) throws IOException {
+        int length = payload.remaining();
+        byte[] bytes;
+        int offset;
+        if (payload.hasArray()) {
+            bytes = payload.array();
+            offset = payload.arrayOffset() + payload.position();
+        } else {
+            if (copyBuffer.length < length) {
+                copyBuffer = new byte[length];
+            }
+            payload.duplicate().get(copyBuffer, 0, length);
+            bytes = copyBuffer;
+            offset = 0;
+        }
+
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setConnectTimeout(TIMEOUT_IN_MILLIS);
+            connection.setReadTimeout(TIMEOUT_IN_MILLIS);
+            connection.setFixedLengthStreamingMode(length);
+            try (OutputStream os = connection.getOutputStream()) {
+                os.write(bytes, offset, length);
+            }
+
+            int responseCode = connection.getResponseCode();
+            if (responseCode / 100 != 2) {
+                throw new IOException("Failed to POST metrics to [" + url + "]: HTTP " + responseCode);
+            }
+            payload.position(payload.limit());
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+}
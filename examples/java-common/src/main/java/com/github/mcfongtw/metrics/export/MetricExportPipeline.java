@@ -0,0 +1,360 @@
+package com.github.mcfongtw.metrics.export;
+
+import com.codahale.metrics.Snapshot;
+import com.github.mcfongtw.metrics.HdrHistogramReservoir;
+import com.github.mcfongtw.metrics.HdrHistogramSnapshot;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Push-based alternative to a {@link com.codahale.metrics.ScheduledReporter}, which snapshots the whole registry on
+ * every tick and competes with the threads being measured.
+ *
+ * Recording threads publish raw samples through a {@link Channel} into a fixed-size ring of primitive slots: one CAS
+ * plus three array stores, never blocking and never allocating. When the ring is full the sample is dropped and
+ * counted, so the cost on the recording side is bounded. A single low-priority export thread drains the ring,
+ * serializes samples as InfluxDB line protocol into a reusable buffer and hands full batches (or whatever is pending
+ * after {@code flushInterval}) to a {@link MetricSink}. The time spent in the sink is recorded as
+ * {@link #getSinkWriteLatencySnapshot()}.
+ */
+public class MetricExportPipeline implements Closeable {
+
+    public static final int DEFAULT_RING_CAPACITY = 64 * 1024;
+
+    public static final int DEFAULT_BATCH_SIZE_IN_BYTES = 64 * 1024;
+
+    public static final long DEFAULT_FLUSH_INTERVAL_IN_MILLIS = 1000;
+
+    private static final long IDLE_PARK_IN_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final long NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final byte[] FIELD_KEY = " value=".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] LONG_MIN_VALUE = String.valueOf(Long.MIN_VALUE).getBytes(StandardCharsets.UTF_8);
+
+    // ' value=' + value + 'i ' + timestamp + '\n'
+    private static final int MAX_LINE_LENGTH_EXCLUDING_KEY = FIELD_KEY.length + 20 + 2 + 20 + 1;
+
+    private final MetricSink sink;
+
+    private final long flushIntervalInNanos;
+
+    ////////// ring buffer //////////
+
+    private final int mask;
+
+    private final int[] channelIds;
+
+    private final long[] values;
+
+    private final long[] timestampsInMillis;
+
+    // slot i holds (sequence + 1) once the sample of that sequence is published
+    private final AtomicLongArray publishedSequences;
+
+    private final AtomicLong claimedSequence = new AtomicLong();
+
+    private final AtomicLong consumedSequence = new AtomicLong();
+
+    private final LongAdder droppedCount = new LongAdder();
+
+    // copy-on-write, indexed by channel id
+    private volatile byte[][] channelKeys = new byte[0][];
+
+    ////////// export thread only //////////
+
+    private final ByteBuffer batchBuffer;
+
+    private final byte[] digits = new byte[20];
+
+    private final AtomicLong exportedCount = new AtomicLong();
+
+    private final AtomicLong batchCount = new AtomicLong();
+
+    private final AtomicLong failedBatchCount = new AtomicLong();
+
+    private final Recorder sinkWriteLatencyRecorder = new Recorder(HdrHistogramReservoir.DEFAULT_NUMBER_OF_SIGNIFICANT_VALUE_DIGITS);
+
+    private final Histogram sinkWriteLatencyHistogram = new Histogram(HdrHistogramReservoir.DEFAULT_NUMBER_OF_SIGNIFICANT_VALUE_DIGITS);
+
+    private Histogram intervalHistogram;
+
+    private volatile boolean running = false;
+
+    private Thread exportThread;
+
+    public MetricExportPipeline(MetricSink sink) {
+        this(sink, DEFAULT_RING_CAPACITY, DEFAULT_BATCH_SIZE_IN_BYTES, DEFAULT_FLUSH_INTERVAL_IN_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param ringCapacity number of samples buffered between recording threads and the export thread, rounded up to
+     *                     a power of two
+     * @param batchSizeInBytes payload size which triggers a write to the sink
+     * @param flushInterval maximum time a sample waits in a partial batch
+     */
+    public MetricExportPipeline(MetricSink sink, int ringCapacity, int batchSizeInBytes, long flushInterval, TimeUnit unit) {
+        if (ringCapacity <= 0 || ringCapacity > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid ringCapacity: " + ringCapacity);
+        }
+        int capacity = Math.max(1, Integer.highestOneBit(ringCapacity - 1) << 1);
+
+        this.sink = sink;
+        this.flushIntervalInNanos = unit.toNanos(flushInterval);
+        this.mask = capacity - 1;
+        this.channelIds = new int[capacity];
+        this.values = new long[capacity];
+        this.timestampsInMillis = new long[capacity];
+        this.publishedSequences = new AtomicLongArray(capacity);
+        this.batchBuffer = ByteBuffer.allocate(batchSizeInBytes);
+    }
+
+    public Channel newChannel(String measurement) {
+        return newChannel(measurement, Collections.<String, String>emptyMap());
+    }
+
+    /**
+     * Pre-encode the line-protocol key of a series, i.e. {@code measurement,tag1=a,tag2=b}, so that nothing but the
+     * value and timestamp is serialized per sample.
+     */
+    public synchronized Channel newChannel(String measurement, Map<String, String> tags) {
+        StringBuilder sb = new StringBuilder(escape(measurement, false));
+        for (Map.Entry<String, String> tag : new TreeMap<>(tags).entrySet()) {
+            sb.append(',').append(escape(tag.getKey(), true)).append('=').append(escape(tag.getValue(), true));
+        }
+        byte[] key = sb.toString().getBytes(StandardCharsets.UTF_8);
+        if (key.length + MAX_LINE_LENGTH_EXCLUDING_KEY > batchBuffer.capacity()) {
+            throw new IllegalArgumentException("Series key is larger than the batch size: " + sb);
+        }
+
+        byte[][] newChannelKeys = new byte[channelKeys.length + 1][];
+        System.arraycopy(channelKeys, 0, newChannelKeys, 0, channelKeys.length);
+        newChannelKeys[channelKeys.length] = key;
+        channelKeys = newChannelKeys;
+
+        return new Channel(channelKeys.length - 1);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+
+        running = true;
+        exportThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runExportLoop();
+            }
+        }, "metric-export");
+        exportThread.setDaemon(true);
+        exportThread.setPriority(Thread.MIN_PRIORITY);
+        exportThread.start();
+    }
+
+    /**
+     * Stop the export thread after draining and flushing every published sample. The sink stays open.
+     */
+    public synchronized void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+
+        running = false;
+        LockSupport.unpark(exportThread);
+        exportThread.join();
+        exportThread = null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            stop();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            sink.close();
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    public long getExportedCount() {
+        return exportedCount.get();
+    }
+
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    public long getFailedBatchCount() {
+        return failedBatchCount.get();
+    }
+
+    /**
+     * @return cumulative distribution of the time, in nanoseconds, spent by the export thread in
+     * {@link MetricSink#write(ByteBuffer)}
+     */
+    public synchronized Snapshot getSinkWriteLatencySnapshot() {
+        intervalHistogram = sinkWriteLatencyRecorder.getIntervalHistogram(intervalHistogram);
+        sinkWriteLatencyHistogram.add(intervalHistogram);
+        return new HdrHistogramSnapshot(sinkWriteLatencyHistogram.copy());
+    }
+
+    private boolean publish(int channelId, long value) {
+        long sequence;
+        do {
+            sequence = claimedSequence.get();
+            if (sequence - consumedSequence.get() > mask) {
+                droppedCount.increment();
+                return false;
+            }
+        } while (!claimedSequence.compareAndSet(sequence, sequence + 1));
+
+        int index = (int) (sequence & mask);
+        channelIds[index] = channelId;
+        values[index] = value;
+        timestampsInMillis[index] = System.currentTimeMillis();
+        // release store, orders the plain stores above before the slot becomes visible to the export thread
+        publishedSequences.lazySet(index, sequence + 1);
+
+        return true;
+    }
+
+    private void runExportLoop() {
+        long lastFlushNanos = System.nanoTime();
+
+        while (running) {
+            int numDrained = drain();
+
+            long now = System.nanoTime();
+            if (now - lastFlushNanos >= flushIntervalInNanos) {
+                flush();
+                lastFlushNanos = now;
+            }
+
+            if (numDrained == 0) {
+                LockSupport.parkNanos(IDLE_PARK_IN_NANOS);
+            }
+        }
+
+        drain();
+        flush();
+    }
+
+    private int drain() {
+        long sequence = consumedSequence.get();
+        int numDrained = 0;
+
+        while (true) {
+            int index = (int) (sequence & mask);
+            if (publishedSequences.get(index) != sequence + 1) {
+                break;
+            }
+
+            byte[] key = channelKeys[channelIds[index]];
+            if (batchBuffer.remaining() < key.length + MAX_LINE_LENGTH_EXCLUDING_KEY) {
+                flush();
+            }
+            batchBuffer.put(key).put(FIELD_KEY);
+            putLong(values[index]);
+            batchBuffer.put((byte) 'i').put((byte) ' ');
+            putLong(timestampsInMillis[index] * NANOS_PER_MILLI);
+            batchBuffer.put((byte) '\n');
+
+            sequence++;
+            numDrained++;
+            // free the slot for producers as early as possible
+            consumedSequence.lazySet(sequence);
+        }
+
+        exportedCount.addAndGet(numDrained);
+        return numDrained;
+    }
+
+    private void flush() {
+        if (batchBuffer.position() == 0) {
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+        batchBuffer.flip();
+        try {
+            sink.write(batchBuffer);
+            batchCount.incrementAndGet();
+        } catch (IOException e) {
+            failedBatchCount.incrementAndGet();
+        } finally {
+            batchBuffer.clear();
+        }
+        sinkWriteLatencyRecorder.recordValue(System.nanoTime() - startNanos);
+    }
+
+    private void putLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            batchBuffer.put(LONG_MIN_VALUE);
+            return;
+        }
+        if (value < 0) {
+            batchBuffer.put((byte) '-');
+            value = -value;
+        }
+
+        int position = digits.length;
+        do {
+            digits[--position] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        batchBuffer.put(digits, position, digits.length - position);
+    }
+
+    private static String escape(String name, boolean isTag) {
+        StringBuilder sb = new StringBuilder(name.length());
+        for (char c : name.toCharArray()) {
+            if (c == ',' || c == ' ' || (isTag && c == '=')) {
+                sb.append('\\');
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Pre-resolved handle of a series. {@link #publish(long)} is safe to call from any number of threads.
+     */
+    public class Channel {
+
+        private final int id;
+
+        private Channel(int id) {
+            this.id = id;
+        }
+
+        /**
+         * @return false if the sample is dropped because the ring is full
+         */
+        public boolean publish(long value) {
+            return MetricExportPipeline.this.publish(id, value);
+        }
+    }
+}
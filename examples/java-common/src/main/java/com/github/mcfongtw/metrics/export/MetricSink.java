@@ -0,0 +1,17 @@
+package com.github.mcfongtw.metrics.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Destination of a batch of InfluxDB line-protocol payload, written by the export thread of
+ * {@link MetricExportPipeline}.
+ */
+public interface MetricSink extends Closeable {
+
+    /**
+     * Write all remaining bytes of the payload. The buffer is reused once this method returns.
+     */
+    void write(ByteBuffer payload) throws IOException;
+}
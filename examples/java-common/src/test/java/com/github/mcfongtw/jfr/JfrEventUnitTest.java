@@ -0,0 +1,125 @@
+package com.github.mcfongtw.jfr;
+
+import com.codahale.metrics.MetricFilter;
+import com.github.mcfongtw.metrics.LatencyMetric;
+import com.github.mcfongtw.metrics.MetricUtils;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class JfrEventUnitTest {
+
+    private static final String TEST_NAME = "TestJfr";
+
+    private Path recordingFile;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Assumptions.assumeTrue(JfrSupport.isAvailable());
+
+        recordingFile = Files.createTempFile(TEST_NAME, ".jfr");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        MetricUtils.getDefaultMetricRegistry().removeMatching(new MetricFilter() {
+            @Override
+            public boolean matches(String name, com.codahale.metrics.Metric metric) {
+                return name.startsWith(TEST_NAME + ".");
+            }
+        });
+
+        if (recordingFile != null) {
+            Files.deleteIfExists(recordingFile);
+        }
+    }
+
+    @Test
+    public void testLatencySampleAboveThreshold() throws IOException {
+        LatencyMetric metric = new LatencyMetric(TEST_NAME);
+        metric.setJfrThreshold(1, TimeUnit.MILLISECONDS);
+
+        try (Recording recording = new Recording()) {
+            recording.enable(LatencySampleEvent.class);
+            recording.start();
+
+            metric.addTime(999, TimeUnit.MICROSECONDS);
+            metric.addTime(1, TimeUnit.MILLISECONDS);
+            metric.addTime(5, TimeUnit.MILLISECONDS);
+
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        List<RecordedEvent> events = readEvents("com.github.mcfongtw.LatencySample");
+        Assertions.assertEquals(2, events.size());
+        Assertions.assertEquals(TEST_NAME, events.get(0).getString("metricName"));
+        Assertions.assertEquals(TimeUnit.MILLISECONDS.toNanos(1), events.get(0).getDuration("latency").toNanos());
+        Assertions.assertEquals(TimeUnit.MILLISECONDS.toNanos(5), events.get(1).getDuration("latency").toNanos());
+
+        // all samples still go to the timer
+        Assertions.assertEquals(3, metric.getSnapshot().size());
+    }
+
+    @Test
+    public void testLatencySampleDisabled() throws IOException {
+        LatencyMetric metric = new LatencyMetric(TEST_NAME);
+        metric.setJfrThreshold(-1, TimeUnit.MILLISECONDS);
+
+        try (Recording recording = new Recording()) {
+            recording.enable(LatencySampleEvent.class);
+            recording.start();
+
+            metric.addTime(5, TimeUnit.SECONDS);
+
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        Assertions.assertTrue(readEvents("com.github.mcfongtw.LatencySample").isEmpty());
+    }
+
+    @Test
+    public void testLifecyclePhase() throws IOException {
+        try (Recording recording = new Recording()) {
+            recording.enable(LifecyclePhaseEvent.class);
+            recording.start();
+
+            try (JfrPhase phase = JfrPhase.begin(TEST_NAME, "Iteration", "TearDown")) {
+                Assertions.assertNotNull(phase);
+            }
+
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        List<RecordedEvent> events = readEvents("com.github.mcfongtw.LifecyclePhase");
+        Assertions.assertEquals(1, events.size());
+        Assertions.assertEquals(TEST_NAME, events.get(0).getString("benchmark"));
+        Assertions.assertEquals("Iteration", events.get(0).getString("level"));
+        Assertions.assertEquals("TearDown", events.get(0).getString("phase"));
+    }
+
+    private List<RecordedEvent> readEvents(String eventName) throws IOException {
+        List<RecordedEvent> events = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(recordingFile)) {
+            if (event.getEventType().getName().equals(eventName)) {
+                events.add(event);
+            }
+        }
+
+        return events;
+    }
+}
@@ -1,12 +1,18 @@
 package com.github.mcfongtw.metrics;
 
+import com.codahale.metrics.Clock;
 import com.codahale.metrics.MetricFilter;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.google.common.collect.ImmutableMap;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 public class LatencyMetricUnitTest {
@@ -17,6 +23,14 @@ public class LatencyMetricUnitTest {
 
     private static final String TEST_NAME = "Test";
 
+    private static final String TEST_HDR_NAME = "TestHdr";
+
+    private static final String TEST_STRIPED_NAME = "TestStriped";
+
+    private static final String TEST_WINDOWED_NAME = "TestWindowed";
+
+    private static final String TEST_KEY_NAME = "TestKey";
+
     @BeforeEach
     public void setUp() {
         metric = new LatencyMetric(TEST_NAME);
@@ -47,5 +61,189 @@ public class LatencyMetricUnitTest {
         Assertions.assertEquals(1001, metric.getCount());
     }
 
+    @Test
+    public void testUseMetricKey() throws Exception {
+        MetricKey key = MetricKey.of(TEST_KEY_NAME, ImmutableMap.of("host", "a", "benchmark", "Copy"));
+
+        try {
+            //interned, regardless of tag order
+            Assertions.assertSame(key, MetricKey.of(TEST_KEY_NAME, ImmutableMap.of("benchmark", "Copy", "host", "a")));
+            Assertions.assertSame(key, MetricKey.of(TEST_KEY_NAME).tagged("benchmark", "Copy").tagged("host", "a"));
+            Assertions.assertNotSame(key, key.tagged("host", "b"));
+
+            //suffix goes before tags, tags are sorted
+            Assertions.assertEquals("TestKey.Latency,benchmark=Copy,host=a", key.resolve("Latency").getRegistryName());
+
+            //resolved once
+            LatencyMetric keyMetric = key.latencyMetric();
+            Assertions.assertSame(keyMetric, key.latencyMetric());
+            Assertions.assertSame(key.resolve("Latency").timer(), key.resolve("Latency").timer());
+
+            keyMetric.addTime(3, TimeUnit.MILLISECONDS);
+            Assertions.assertEquals(3, metricRegistry.getCounters().get("TestKey.TotalLatencyMillis,benchmark=Copy,host=a").getCount());
+            Assertions.assertEquals(1, metricRegistry.getTimers().get("TestKey.Latency,benchmark=Copy,host=a").getCount());
+        } finally {
+            metricRegistry.remove(key.resolve("TotalLatencyMillis").getRegistryName());
+            metricRegistry.remove(key.resolve("Latency").getRegistryName());
+        }
+    }
+
+    @Test
+    public void testAddTimeWithExpectedInterval() throws Exception {
+        LatencyMetric hdrMetric = new LatencyMetric(TEST_HDR_NAME, new HdrHistogramReservoir(3));
+
+        try {
+            //on schedule: nothing to back-fill
+            hdrMetric.addTime(5, TimeUnit.MILLISECONDS, 10, TimeUnit.MILLISECONDS);
+            Assertions.assertEquals(1, hdrMetric.getSnapshot().size());
+
+            //a stall of 100 millis hides 9 operations, waiting 90, 80, ..., 10 millis
+            hdrMetric.addTime(100, TimeUnit.MILLISECONDS, 10, TimeUnit.MILLISECONDS);
+            Snapshot snapshot = hdrMetric.getSnapshot();
+            Assertions.assertEquals(1 + 1 + 9, snapshot.size());
+            Assertions.assertEquals(TimeUnit.MILLISECONDS.toNanos(100), snapshot.getMax(), TimeUnit.MILLISECONDS.toNanos(1));
+            Assertions.assertEquals(TimeUnit.MILLISECONDS.toNanos(50), snapshot.getMedian(), TimeUnit.MILLISECONDS.toNanos(1));
+
+            //only actual durations are accumulated
+            Assertions.assertEquals(105, hdrMetric.getCount());
+        } finally {
+            metricRegistry.remove(MetricUtils.concat(TEST_HDR_NAME, "TotalLatencyMillis"));
+            metricRegistry.remove(MetricUtils.concat(TEST_HDR_NAME,  "Latency"));
+        }
+    }
+
+    @Test
+    public void testUseHdrHistogramLatencyMetric() throws Exception {
+        LatencyMetric hdrMetric = new LatencyMetric(TEST_HDR_NAME, new HdrHistogramReservoir(3));
+
+        try {
+            //1 ~ 10000 micros, with a single outlier of 1 sec
+            for (int i = 1; i <= 10000; i++) {
+                hdrMetric.addTime(i, TimeUnit.MICROSECONDS);
+            }
+            hdrMetric.addTime(1, TimeUnit.SECONDS);
+
+            Snapshot snapshot = hdrMetric.getSnapshot();
 
+            Assertions.assertEquals(10001, snapshot.size());
+            // 3 significant digits => relative error < 0.1%
+            Assertions.assertEquals(TimeUnit.MICROSECONDS.toNanos(5000), snapshot.getMedian(), TimeUnit.MICROSECONDS.toNanos(5));
+            Assertions.assertEquals(TimeUnit.MICROSECONDS.toNanos(9990), snapshot.get999thPercentile(), TimeUnit.MICROSECONDS.toNanos(10));
+            // the outlier is never dropped
+            Assertions.assertEquals(TimeUnit.SECONDS.toNanos(1), snapshot.getMax(), TimeUnit.MILLISECONDS.toNanos(1));
+
+            //snapshot is cumulative
+            hdrMetric.addTime(1, TimeUnit.MICROSECONDS);
+            Assertions.assertEquals(10002, hdrMetric.getSnapshot().size());
+        } finally {
+            metricRegistry.remove(MetricUtils.concat(TEST_HDR_NAME, "TotalLatencyMillis"));
+            metricRegistry.remove(MetricUtils.concat(TEST_HDR_NAME,  "Latency"));
+        }
+    }
+
+    @Test
+    public void testUseStripedLatencyMetric() throws Exception {
+        final int numThreads = 8;
+        final int numSamplesPerThread = 10000;
+        final StripedHdrHistogramReservoir reservoir = new StripedHdrHistogramReservoir(3);
+        final LatencyMetric stripedMetric = new LatencyMetric(TEST_STRIPED_NAME, reservoir);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final CountDownLatch doneLatch = new CountDownLatch(numThreads);
+        ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+
+        try {
+            for (int t = 0; t < numThreads; t++) {
+                executorService.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            startLatch.await();
+                            for (int i = 1; i <= numSamplesPerThread; i++) {
+                                stripedMetric.addTime(i, TimeUnit.MILLISECONDS);
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            doneLatch.countDown();
+                        }
+                    }
+                });
+            }
+            startLatch.countDown();
+            doneLatch.await();
+
+            Snapshot snapshot = stripedMetric.getSnapshot();
+
+            //one cell per recording thread, merged at snapshot time
+            Assertions.assertEquals(numThreads, reservoir.getNumberOfCells());
+            Assertions.assertEquals(numThreads * numSamplesPerThread, snapshot.size());
+            Assertions.assertEquals(TimeUnit.MILLISECONDS.toNanos(numSamplesPerThread), snapshot.getMax(), TimeUnit.MILLISECONDS.toNanos(10));
+            Assertions.assertEquals((long) numThreads * numSamplesPerThread * (numSamplesPerThread + 1) / 2, stripedMetric.getCount());
+        } finally {
+            executorService.shutdownNow();
+            metricRegistry.remove(MetricUtils.concat(TEST_STRIPED_NAME, "TotalLatencyMillis"));
+            metricRegistry.remove(MetricUtils.concat(TEST_STRIPED_NAME,  "Latency"));
+        }
+    }
+
+    @Test
+    public void testUseWindowedLatencyMetric() throws Exception {
+        final long[] tick = new long[]{0};
+        Clock manualClock = new Clock() {
+            @Override
+            public long getTick() {
+                return tick[0];
+            }
+        };
+        WindowedLatencyMetric windowedMetric = new WindowedLatencyMetric(TEST_WINDOWED_NAME,
+                new TimeWindowHdrHistogramReservoir(10, 3, manualClock));
+
+        try {
+            //second 0: 1000 samples of 1 millis, with a single outlier of 1 sec
+            for (int i = 0; i < 1000; i++) {
+                windowedMetric.addTime(1, TimeUnit.MILLISECONDS);
+            }
+            windowedMetric.addTime(1, TimeUnit.SECONDS);
+
+            Assertions.assertEquals(1001, windowedMetric.getSnapshot(10, TimeUnit.SECONDS).size());
+            Assertions.assertEquals(TimeUnit.SECONDS.toNanos(1), windowedMetric.getSnapshot().getMax(), TimeUnit.MILLISECONDS.toNanos(1));
+
+            //second 5: 100 samples of 2 millis
+            tick[0] = TimeUnit.SECONDS.toNanos(5);
+            for (int i = 0; i < 100; i++) {
+                windowedMetric.addTime(2, TimeUnit.MILLISECONDS);
+            }
+
+            Assertions.assertEquals(1101, windowedMetric.getSnapshot().size());
+            Snapshot lastSecond = windowedMetric.getSnapshot(1, TimeUnit.SECONDS);
+            Assertions.assertEquals(100, lastSecond.size());
+            Assertions.assertEquals(TimeUnit.MILLISECONDS.toNanos(2), lastSecond.get99thPercentile(), TimeUnit.MICROSECONDS.toNanos(2));
+
+            //second 10: the bucket of second 0 falls out of the window, and so does the outlier
+            tick[0] = TimeUnit.SECONDS.toNanos(10);
+            Snapshot window = windowedMetric.getSnapshot();
+            Assertions.assertEquals(100, window.size());
+            Assertions.assertEquals(TimeUnit.MILLISECONDS.toNanos(2), window.getMax(), TimeUnit.MICROSECONDS.toNanos(2));
+
+            //second 20: the bucket of second 0 is recycled on snapshot
+            tick[0] = TimeUnit.SECONDS.toNanos(20);
+            windowedMetric.addTime(3, TimeUnit.MILLISECONDS);
+            Assertions.assertEquals(1, windowedMetric.getSnapshot().size());
+
+            //seconds 21 and 22 recorded before a snapshot, each into its own bucket
+            tick[0] = TimeUnit.SECONDS.toNanos(21);
+            windowedMetric.addTime(3, TimeUnit.MILLISECONDS);
+            tick[0] = TimeUnit.SECONDS.toNanos(22);
+            windowedMetric.addTime(3, TimeUnit.MILLISECONDS);
+            windowedMetric.addTime(3, TimeUnit.MILLISECONDS);
+            Assertions.assertEquals(2, windowedMetric.getSnapshot(1, TimeUnit.SECONDS).size());
+            Assertions.assertEquals(4, windowedMetric.getSnapshot().size());
+
+            //the cumulative counter is not windowed
+            Assertions.assertEquals(1000 + 1000 + 200 + 3 * 4, windowedMetric.getCount());
+        } finally {
+            metricRegistry.remove(MetricUtils.concat(TEST_WINDOWED_NAME, "TotalLatencyMillis"));
+            metricRegistry.remove(MetricUtils.concat(TEST_WINDOWED_NAME,  "Latency"));
+        }
+    }
 }
@@ -0,0 +1,96 @@
+package com.github.mcfongtw.metrics;
+
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class ResourceMetricUnitTest {
+
+    private MetricRegistry metricRegistry = MetricUtils.getDefaultMetricRegistry();
+
+    private ResourceMetric metric;
+
+    private static final String TEST_NAME = "TestResource";
+
+    private static final int ONE_MEGA = 1024 * 1024;
+
+    // keeps allocations from being eliminated
+    private byte[] sink;
+
+    @BeforeEach
+    public void setUp() {
+        metric = new ResourceMetric(TEST_NAME);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        metricRegistry.removeMatching(new MetricFilter() {
+            @Override
+            public boolean matches(String name, com.codahale.metrics.Metric metric) {
+                return name.startsWith(TEST_NAME + ".");
+            }
+        });
+    }
+
+    @Test
+    public void testGetResourceMetric() {
+        Assertions.assertTrue(metricRegistry.getHistograms().keySet().contains(MetricUtils.concat(TEST_NAME, "AllocatedBytes")));
+        Assertions.assertTrue(metricRegistry.getHistograms().keySet().contains(MetricUtils.concat(TEST_NAME, "CpuTimeNanos")));
+        Assertions.assertTrue(metricRegistry.getCounters().keySet().contains(MetricUtils.concat(TEST_NAME, "TotalAllocatedBytes")));
+        Assertions.assertTrue(metricRegistry.getCounters().keySet().contains(MetricUtils.concat(TEST_NAME, "TotalCpuTimeNanos")));
+    }
+
+    @Test
+    public void testRecordAllocatedBytes() {
+        Assumptions.assumeTrue(ResourceMetric.isAllocatedBytesSupported());
+
+        for (int i = 0; i < 10; i++) {
+            metric.start();
+            sink = new byte[ONE_MEGA];
+            metric.stop();
+        }
+
+        Assertions.assertEquals(10, metric.getCount());
+        Assertions.assertTrue(metric.getAllocatedBytesSnapshot().getMin() >= ONE_MEGA);
+        // a few bytes of overhead per op at most, i.e. the array header
+        Assertions.assertEquals(ONE_MEGA, metric.getAllocatedBytesSnapshot().getMedian(), ONE_MEGA / 100);
+        Assertions.assertTrue(metric.getTotalAllocatedBytes() >= 10L * ONE_MEGA);
+    }
+
+    @Test
+    public void testRecordNoAllocation() {
+        Assumptions.assumeTrue(ResourceMetric.isAllocatedBytesSupported());
+
+        for (int i = 0; i < 1000; i++) {
+            metric.start();
+            metric.stop();
+        }
+
+        // the long[] of ThreadMXBean.getThreadAllocatedBytes(long) on JDK 8 is not counted
+        Assertions.assertEquals(0.0, metric.getAllocatedBytesSnapshot().getMedian());
+    }
+
+    @Test
+    public void testRecordCpuTime() {
+        Assumptions.assumeTrue(ResourceMetric.isCpuTimeSupported());
+
+        metric.start();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50);
+        long spins = 0;
+        while (System.nanoTime() < deadline) {
+            spins++;
+        }
+        metric.stop();
+
+        Assertions.assertTrue(spins > 0);
+        Assertions.assertEquals(1, metric.getCpuTimeSnapshot().size());
+        // busy spinning is on-CPU, sleeping is not
+        Assertions.assertTrue(metric.getTotalCpuTimeInNanos() >= TimeUnit.MILLISECONDS.toNanos(10), "" + metric.getTotalCpuTimeInNanos());
+    }
+}
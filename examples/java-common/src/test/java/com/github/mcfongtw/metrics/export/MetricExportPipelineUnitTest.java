@@ -0,0 +1,120 @@
+package com.github.mcfongtw.metrics.export;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class MetricExportPipelineUnitTest {
+
+    @Test
+    public void testExportToFile() throws Exception {
+        File file = File.createTempFile("metric-export", ".txt");
+        file.deleteOnExit();
+
+        // small batch to force several writes
+        MetricExportPipeline pipeline = new MetricExportPipeline(new FileMetricSink(file.toPath()), 1024, 512, 10, TimeUnit.MILLISECONDS);
+        MetricExportPipeline.Channel latency = pipeline.newChannel("io.Latency", ImmutableMap.of("benchmark", "Copy", "host", "my host"));
+        MetricExportPipeline.Channel count = pipeline.newChannel("io Count");
+        pipeline.start();
+
+        for (int i = 0; i < 500; i++) {
+            Assertions.assertTrue(latency.publish(i));
+        }
+        Assertions.assertTrue(count.publish(-42));
+        Assertions.assertTrue(count.publish(Long.MIN_VALUE));
+        pipeline.close();
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        Assertions.assertEquals(502, lines.size());
+        Assertions.assertEquals(502, pipeline.getExportedCount());
+        Assertions.assertEquals(0, pipeline.getDroppedCount());
+        Assertions.assertEquals(0, pipeline.getFailedBatchCount());
+        Assertions.assertTrue(pipeline.getBatchCount() > 1);
+        Assertions.assertEquals(pipeline.getBatchCount(), pipeline.getSinkWriteLatencySnapshot().size());
+
+        // tags are sorted and escaped, values are integers, timestamps are in nanoseconds
+        Assertions.assertTrue(lines.get(0).matches("io\\.Latency,benchmark=Copy,host=my\\\\ host value=0i \\d{19}"), lines.get(0));
+        Assertions.assertTrue(lines.get(499).startsWith("io.Latency,benchmark=Copy,host=my\\ host value=499i "), lines.get(499));
+        Assertions.assertTrue(lines.get(500).startsWith("io\\ Count value=-42i "), lines.get(500));
+        Assertions.assertTrue(lines.get(501).startsWith("io\\ Count value=" + Long.MIN_VALUE + "i "), lines.get(501));
+    }
+
+    @Test
+    public void testExportToHttp() throws Exception {
+        final StringBuffer received = new StringBuffer();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/write", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try (InputStream is = exchange.getRequestBody()) {
+                    received.append(new String(ByteStreams.toByteArray(is), StandardCharsets.UTF_8));
+                }
+                exchange.sendResponseHeaders(204, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+
+        try {
+            MetricExportPipeline pipeline = new MetricExportPipeline(
+                    new HttpMetricSink(new URL("http", "localhost", server.getAddress().getPort(), "/write?db=demo")));
+            MetricExportPipeline.Channel channel = pipeline.newChannel("Latency");
+            pipeline.start();
+
+            for (int i = 0; i < 100; i++) {
+                channel.publish(i);
+            }
+            pipeline.close();
+
+            List<String> lines = Arrays.asList(received.toString().split("\n"));
+            Assertions.assertEquals(100, lines.size());
+            Assertions.assertTrue(lines.get(99).startsWith("Latency value=99i "), lines.get(99));
+            Assertions.assertEquals(0, pipeline.getFailedBatchCount());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testDropWhenRingIsFull() throws Exception {
+        File file = File.createTempFile("metric-export", ".txt");
+        file.deleteOnExit();
+
+        // rounded up to 4 slots, and not started
+        MetricExportPipeline pipeline = new MetricExportPipeline(new FileMetricSink(file.toPath()), 3, 1024, 10, TimeUnit.MILLISECONDS);
+        MetricExportPipeline.Channel channel = pipeline.newChannel("Latency");
+
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertTrue(channel.publish(i));
+        }
+        Assertions.assertFalse(channel.publish(4));
+        Assertions.assertEquals(1, pipeline.getDroppedCount());
+
+        // draining frees the ring
+        pipeline.start();
+        pipeline.stop();
+        Assertions.assertEquals(4, pipeline.getExportedCount());
+        Assertions.assertTrue(channel.publish(5));
+
+        // kept in the ring until restarted
+        pipeline.start();
+        pipeline.close();
+
+        Assertions.assertEquals(5, Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).size());
+    }
+}
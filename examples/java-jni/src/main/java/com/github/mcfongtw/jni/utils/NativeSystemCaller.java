@@ -24,4 +24,44 @@ public class NativeSystemCaller {
 
     public static native int munlockall();
 
+    /*
+     * //Advice for `posix_fadvise'
+     * #define POSIX_FADV_NORMAL	0 /* No further special treatment.
+     * #define POSIX_FADV_RANDOM	1 /* Expect random page references.
+     * #define POSIX_FADV_SEQUENTIAL	2 /* Expect sequential page references.
+     * #define POSIX_FADV_WILLNEED	3 /* Will need these pages.
+     * #define POSIX_FADV_DONTNEED	4 /* Don't need these pages.
+     * #define POSIX_FADV_NOREUSE	5 /* Data will be accessed once.
+     */
+    public static final int POSIX_FADV_NORMAL = 0;
+
+    public static final int POSIX_FADV_RANDOM = 1;
+
+    public static final int POSIX_FADV_SEQUENTIAL = 2;
+
+    public static final int POSIX_FADV_WILLNEED = 3;
+
+    public static final int POSIX_FADV_DONTNEED = 4;
+
+    public static final int POSIX_FADV_NOREUSE = 5;
+
+    /*
+     * posix_fadvise(2) on the file at path; a length of 0 means up to the end of the file.
+     * POSIX_FADV_DONTNEED drops clean pages only, fdatasync() the file first.
+     */
+    public static native int posixFadvise(String path, long offset, long length, int advice);
+
+    /*
+     * fdatasync(2) on the file at path: write its dirty pages to storage
+     */
+    public static native int fdatasync(String path);
+
+    /*
+     * mincore(2) on a mapping of the whole file at path
+     * @return number of pages of the file resident in the page cache
+     */
+    public static native long mincore(String path);
+
+    public static native int getpagesize();
+
 }
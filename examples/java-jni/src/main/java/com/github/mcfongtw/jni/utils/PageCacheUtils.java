@@ -0,0 +1,42 @@
+package com.github.mcfongtw.jni.utils;
+
+import java.io.File;
+
+/*
+ * Page cache of single files, through NativeSystemCaller: no root, no shell, and other files stay cached, unlike
+ * echo 3 > /proc/sys/vm/drop_caches
+ */
+public class PageCacheUtils {
+
+    private PageCacheUtils() {
+        // avoid instantiation
+    }
+
+    /*
+     * Write the dirty pages of the file to storage, then drop its pages from the page cache.
+     * Pages still mapped by a process, i.e. a live MappedByteBuffer, stay resident.
+     */
+    public static void evict(File file) {
+        NativeSystemCaller.fdatasync(file.getAbsolutePath());
+        NativeSystemCaller.posixFadvise(file.getAbsolutePath(), 0, 0, NativeSystemCaller.POSIX_FADV_DONTNEED);
+    }
+
+    public static long getResidentPages(File file) {
+        return NativeSystemCaller.mincore(file.getAbsolutePath());
+    }
+
+    public static long getPages(File file) {
+        long pageSize = NativeSystemCaller.getpagesize();
+
+        return (file.length() + pageSize - 1) / pageSize;
+    }
+
+    /*
+     * @return fraction of the pages of the file resident in the page cache, 0 if empty
+     */
+    public static double getResidency(File file) {
+        long pages = getPages(file);
+
+        return pages == 0 ? 0 : (double) getResidentPages(file) / pages;
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.mcfongtw.jni;
+
+import com.github.mcfongtw.jni.utils.NativeSystemCaller;
+import com.github.mcfongtw.jni.utils.PageCacheUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+public class PageCacheUtilsUnitTest {
+
+    // 4MB
+    private static final int FILE_SIZE = 4 * 1024 * 1024;
+
+    private static boolean isNativeLoaded;
+
+    private File file;
+
+    /*
+     * libnative-jni.so is built by native-jni, i.e. after this module; the tests are skipped until it is on
+     * java.library.path or the classpath
+     */
+    @BeforeAll
+    public static void init() {
+        try {
+            NativeSystemCaller.getpagesize();
+            isNativeLoaded = true;
+        } catch (LinkageError e) {
+            System.out.println("Native library not loaded: " + e);
+        }
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        Assumptions.assumeTrue(isNativeLoaded, "native library not loaded");
+
+        // under target rather than /tmp, as pages of a tmpfs file cannot be evicted
+        file = Files.createTempFile(Paths.get("target"), "page-cache", ".dat").toFile();
+
+        byte[] data = new byte[FILE_SIZE];
+        new Random(0).nextBytes(data);
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            outputStream.write(data);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (file != null) {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////////////
+
+    @Test
+    public void testGetPages() {
+        Assertions.assertEquals(FILE_SIZE / NativeSystemCaller.getpagesize(), PageCacheUtils.getPages(file));
+    }
+
+    @Test
+    public void testEvict() {
+        Assertions.assertEquals(0, NativeSystemCaller.fdatasync(file.getAbsolutePath()));
+
+        long residentPages = PageCacheUtils.getResidentPages(file);
+        Assertions.assertTrue(residentPages > 0, "just written, yet no page resident");
+        Assertions.assertTrue(residentPages <= PageCacheUtils.getPages(file));
+
+        PageCacheUtils.evict(file);
+
+        long evictedResidentPages = PageCacheUtils.getResidentPages(file);
+        Assertions.assertTrue(evictedResidentPages < residentPages,
+                "[" + evictedResidentPages + "] of [" + residentPages + "] pages still resident after eviction");
+        Assertions.assertTrue(PageCacheUtils.getResidency(file) < 1.0);
+    }
+
+    @Test
+    public void testPosixFadvise() {
+        Assertions.assertEquals(0, NativeSystemCaller.fdatasync(file.getAbsolutePath()));
+        Assertions.assertEquals(0, NativeSystemCaller.posixFadvise(file.getAbsolutePath(), 0, 0, NativeSystemCaller.POSIX_FADV_DONTNEED));
+        Assertions.assertEquals(0, NativeSystemCaller.posixFadvise(file.getAbsolutePath(), 0, 0, NativeSystemCaller.POSIX_FADV_NORMAL));
+    }
+
+    @Test
+    public void testMincoreEmptyFile() throws Exception {
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            // truncate
+        }
+
+        Assertions.assertEquals(0, PageCacheUtils.getResidentPages(file));
+        Assertions.assertEquals(0.0, PageCacheUtils.getResidency(file));
+    }
+}
@@ -1,12 +1,37 @@
 package com.github.mcfongtw;
 
+import com.github.mcfongtw.jfr.JfrPhase;
+import org.openjdk.jmh.annotations.Level;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+// a JfrPhase is only closed by its try block, never referenced in it
+@SuppressWarnings("try")
 public abstract class AbstractBenchmarkLifecycle implements BenchmarkLifecycle {
 
     protected Logger logger = LoggerFactory.getLogger(this.getClass());
 
+    /**
+     * Name of the state class in {@link com.github.mcfongtw.jfr.LifecyclePhaseEvent}
+     */
+    protected final String stateName = declaredStateClass(this.getClass()).getName();
+
+    /**
+     * Fixtures declared by the state, see {@link LifecycleHook}
+     */
+    protected final LifecycleHooks hooks = new LifecycleHooks();
+
+    /**
+     * @return the @State class as declared, instead of the JMH generated {@code *_jmhType} subclasses padding it
+     */
+    private static Class<?> declaredStateClass(Class<?> clazz) {
+        while (clazz.getName().contains("_jmhType") && clazz.getSuperclass() != null) {
+            clazz = clazz.getSuperclass();
+        }
+
+        return clazz;
+    }
+
     ////////////[Setup Trial]////////////////////////
 
     @Override
@@ -16,9 +41,12 @@ public abstract class AbstractBenchmarkLifecycle implements BenchmarkLifecycle {
 
     @Override
     public void doTrialSetUp() throws Exception {
-        this.preTrialSetUp();
-        logger.trace("[doTrialSetUp]");
-        this.postTrialSetUp();
+        try (JfrPhase phase = JfrPhase.begin(stateName, "Trial", "SetUp")) {
+            hooks.setUp(Level.Trial, stateName);
+            this.preTrialSetUp();
+            logger.trace("[doTrialSetUp]");
+            this.postTrialSetUp();
+        }
     }
 
     @Override
@@ -35,9 +63,15 @@ public abstract class AbstractBenchmarkLifecycle implements BenchmarkLifecycle {
 
     @Override
     public void doTrialTearDown() throws Exception {
-        this.preTrialTearDown();
-        logger.trace("[doTrialTearDown]");
-        this.postTrialTearDown();
+        try (JfrPhase phase = JfrPhase.begin(stateName, "Trial", "TearDown")) {
+            try {
+                this.preTrialTearDown();
+                logger.trace("[doTrialTearDown]");
+                this.postTrialTearDown();
+            } finally {
+                hooks.tearDown(Level.Trial, stateName);
+            }
+        }
     }
 
     @Override
@@ -54,9 +88,12 @@ public abstract class AbstractBenchmarkLifecycle implements BenchmarkLifecycle {
 
     @Override
     public void doIterationSetup() throws Exception {
-        this.preIterationSetup();
-        logger.trace("[doIterationSetup]");
-        this.postIterationSetup();
+        try (JfrPhase phase = JfrPhase.begin(stateName, "Iteration", "SetUp")) {
+            hooks.setUp(Level.Iteration, stateName);
+            this.preIterationSetup();
+            logger.trace("[doIterationSetup]");
+            this.postIterationSetup();
+        }
     }
 
     @Override
@@ -73,9 +110,15 @@ public abstract class AbstractBenchmarkLifecycle implements BenchmarkLifecycle {
 
     @Override
     public void doIterationTearDown() throws Exception{
-        this.preIterationTearDown();
-        logger.trace("[doIterationTearDown]");
-        this.postIterationTearDown();
+        try (JfrPhase phase = JfrPhase.begin(stateName, "Iteration", "TearDown")) {
+            try {
+                this.preIterationTearDown();
+                logger.trace("[doIterationTearDown]");
+                this.postIterationTearDown();
+            } finally {
+                hooks.tearDown(Level.Iteration, stateName);
+            }
+        }
     }
 
     @Override
@@ -97,9 +140,12 @@ public abstract class AbstractBenchmarkLifecycle implements BenchmarkLifecycle {
 
     @Override
     public void doInvocationSetup() throws Exception {
-        this.preInvocationSetup();
-        logger.trace("[doInvocationSetup]");
-        this.postInvocationSetup();
+        try (JfrPhase phase = JfrPhase.begin(stateName, "Invocation", "SetUp")) {
+            hooks.setUp(Level.Invocation, stateName);
+            this.preInvocationSetup();
+            logger.trace("[doInvocationSetup]");
+            this.postInvocationSetup();
+        }
     }
 
     @Override
@@ -118,9 +164,15 @@ public abstract class AbstractBenchmarkLifecycle implements BenchmarkLifecycle {
 
     @Override
     public void doInvocationTearDown() throws Exception{
-        this.preInvocationTearDown();
-        logger.trace("[doInvocationTearDown]");
-        this.postInvocationTearDown();
+        try (JfrPhase phase = JfrPhase.begin(stateName, "Invocation", "TearDown")) {
+            try {
+                this.preInvocationTearDown();
+                logger.trace("[doInvocationTearDown]");
+                this.postInvocationTearDown();
+            } finally {
+                hooks.tearDown(Level.Invocation, stateName);
+            }
+        }
     }
 
     @Override
@@ -0,0 +1,378 @@
+package com.github.mcfongtw;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import org.apache.commons.math3.stat.StatUtils;
+import org.apache.commons.math3.stat.inference.TTest;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Compare a JMH result set, i.e. the JSON written by {@link BenchmarkRunner} or the main() of a benchmark, against a
+ * stored baseline:
+ *
+ * <pre>
+ * java -cp BenchmarkRunner-jmh-1.20.jar com.github.mcfongtw.BenchmarkBaselineComparator [-threshold 5] [-alpha 0.01] [-ignoreEnvironment] baseline.json current.json
+ * </pre>
+ *
+ * Benchmarks are matched by name, mode and @Param values. A benchmark regresses if its score is worse by more than
+ * -threshold percent (default 5) and the difference is significant: Welch's t-test at -alpha (default 0.01) on the
+ * per-fork mean scores, or on the iteration scores if there is a single fork. Without raw data, i.e. in SampleTime mode,
+ * the 99.9% confidence intervals of both scores must not overlap; without any score error, the threshold alone
+ * decides.
+ *
+ * Results which both record an {@link EnvironmentFingerprint} are only compared if the environments match, i.e. the
+ * same kernel, THP setting, JVM flags and GC; otherwise they are INCOMPARABLE, unless -ignoreEnvironment is given.
+ * Scores in different units, or against a baseline score of 0, are INCOMPARABLE as well.
+ *
+ * The exit code is 1 if any benchmark regressed, 2 on invalid arguments, 3 if any benchmark is incomparable.
+ */
+public class BenchmarkBaselineComparator {
+
+    private static final double DEFAULT_THRESHOLD_IN_PERCENT = 5.0;
+
+    private static final double DEFAULT_ALPHA = 0.01;
+
+    private static final String USAGE = "Usage: BenchmarkBaselineComparator [-threshold <percent>] [-alpha <significance level>] [-ignoreEnvironment] <baseline.json> <current.json>";
+
+    public enum Verdict {
+        REGRESSION,
+        IMPROVEMENT,
+        UNCHANGED,
+        MISSING,
+        NEW,
+        /**
+         * Run in a different environment, scored in a different unit, or against a baseline score of 0
+         */
+        INCOMPARABLE
+    }
+
+    /**
+     * Score of one benchmark, with one sample per fork (or per iteration, if there is a single fork).
+     */
+    @Getter
+    public static class Score {
+
+        private final String key;
+
+        private final String mode;
+
+        private final String unit;
+
+        private final double score;
+
+        private final double scoreError;
+
+        private final double[] samples;
+
+        /**
+         * null if not recorded
+         */
+        private final EnvironmentFingerprint environment;
+
+        Score(String key, String mode, String unit, double score, double scoreError, double[] samples, EnvironmentFingerprint environment) {
+            this.key = key;
+            this.mode = mode;
+            this.unit = unit;
+            this.score = score;
+            this.scoreError = scoreError;
+            this.samples = samples;
+            this.environment = environment;
+        }
+
+        /**
+         * @return true if a higher score is better, i.e. ops/s
+         */
+        public boolean isHigherBetter() {
+            return "thrpt".equals(mode);
+        }
+    }
+
+    @Getter
+    public static class Comparison {
+
+        private final String key;
+
+        private final Verdict verdict;
+
+        private final Score baseline;
+
+        private final Score current;
+
+        /**
+         * Change of the score in percent, positive if worse
+         */
+        private final double changeInPercent;
+
+        /**
+         * p-value of the t-test, NaN if not tested
+         */
+        private final double pValue;
+
+        /**
+         * Differences of the environments or units, if INCOMPARABLE
+         */
+        private final List<String> environmentDifferences;
+
+        Comparison(String key, Verdict verdict, Score baseline, Score current, double changeInPercent, double pValue) {
+            this(key, verdict, baseline, current, changeInPercent, pValue, Collections.<String>emptyList());
+        }
+
+        Comparison(String key, Verdict verdict, Score baseline, Score current, double changeInPercent, double pValue, List<String> environmentDifferences) {
+            this.key = key;
+            this.verdict = verdict;
+            this.baseline = baseline;
+            this.current = current;
+            this.changeInPercent = changeInPercent;
+            this.pValue = pValue;
+            this.environmentDifferences = environmentDifferences;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        double thresholdInPercent = DEFAULT_THRESHOLD_IN_PERCENT;
+        double alpha = DEFAULT_ALPHA;
+        boolean isEnvironmentIgnored = false;
+        List<String> files = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if ("-threshold".equals(args[i]) && i + 1 < args.length) {
+                    thresholdInPercent = Double.parseDouble(args[++i]);
+                } else if ("-alpha".equals(args[i]) && i + 1 < args.length) {
+                    alpha = Double.parseDouble(args[++i]);
+                } else if ("-ignoreEnvironment".equals(args[i])) {
+                    isEnvironmentIgnored = true;
+                } else {
+                    files.add(args[i]);
+                }
+            }
+        } catch (NumberFormatException e) {
+            files.clear();
+        }
+
+        if (files.size() != 2 || thresholdInPercent < 0 || alpha <= 0 || alpha >= 1) {
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        Map<String, Score> baseline = load(new File(files.get(0)));
+        Map<String, Score> current = load(new File(files.get(1)));
+
+        List<Comparison> comparisons = compare(baseline, current, thresholdInPercent, alpha, isEnvironmentIgnored);
+        printReport(comparisons, thresholdInPercent, alpha, System.out);
+
+        boolean isIncomparable = false;
+        for (Comparison comparison : comparisons) {
+            if (comparison.getVerdict() == Verdict.REGRESSION) {
+                System.exit(1);
+            }
+            isIncomparable |= comparison.getVerdict() == Verdict.INCOMPARABLE;
+        }
+        if (isIncomparable) {
+            System.exit(3);
+        }
+    }
+
+    public static Map<String, Score> load(File file) throws IOException {
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            return load(reader);
+        }
+    }
+
+    /**
+     * @return scores by key, i.e. {@code com.github.mcfongtw.io.file.FileReplicationBenchmark.copyWithMmap [avgt] {fileSize=1024}}
+     */
+    public static Map<String, Score> load(Reader reader) throws IOException {
+        JsonNode results = new ObjectMapper().readTree(reader);
+
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode result : results) {
+            String mode = result.path("mode").asText();
+            String key = toKey(result.path("benchmark").asText(), mode, result.path("params"));
+
+            JsonNode primaryMetric = result.path("primaryMetric");
+            scores.put(key, new Score(key, mode, primaryMetric.path("scoreUnit").asText(),
+                    toDouble(primaryMetric.path("score")), toDouble(primaryMetric.path("scoreError")),
+                    toSamples(primaryMetric.path("rawData")), EnvironmentFingerprint.fromJson(result.get("environment"))));
+        }
+
+        return scores;
+    }
+
+    private static String toKey(String benchmark, String mode, JsonNode params) {
+        SortedMap<String, String> sortedParams = new TreeMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            sortedParams.put(field.getKey(), field.getValue().asText());
+        }
+
+        return benchmark + " [" + mode + "]" + (sortedParams.isEmpty() ? "" : " " + sortedParams);
+    }
+
+    private static double toDouble(JsonNode node) {
+        if (node.isNumber()) {
+            return node.asDouble();
+        }
+
+        // JMH writes NaN and Infinity as strings
+        try {
+            return Double.parseDouble(node.asText());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * @param rawData iteration scores of each fork
+     * @return mean score of each fork, or the iteration scores if there is a single fork
+     */
+    private static double[] toSamples(JsonNode rawData) {
+        if (!rawData.isArray() || rawData.size() == 0) {
+            return new double[0];
+        }
+
+        if (rawData.size() == 1) {
+            return toArray(rawData.get(0));
+        }
+
+        double[] forkMeans = new double[rawData.size()];
+        for (int fork = 0; fork < rawData.size(); fork++) {
+            forkMeans[fork] = StatUtils.mean(toArray(rawData.get(fork)));
+        }
+
+        return forkMeans;
+    }
+
+    private static double[] toArray(JsonNode values) {
+        double[] array = new double[values.size()];
+        for (int i = 0; i < values.size(); i++) {
+            array[i] = toDouble(values.get(i));
+        }
+
+        return array;
+    }
+
+    public static List<Comparison> compare(Map<String, Score> baseline, Map<String, Score> current, double thresholdInPercent, double alpha) {
+        return compare(baseline, current, thresholdInPercent, alpha, false);
+    }
+
+    public static List<Comparison> compare(Map<String, Score> baseline, Map<String, Score> current, double thresholdInPercent, double alpha, boolean isEnvironmentIgnored) {
+        List<Comparison> comparisons = new ArrayList<>();
+
+        for (Score baselineScore : baseline.values()) {
+            Score currentScore = current.get(baselineScore.getKey());
+            if (currentScore == null) {
+                comparisons.add(new Comparison(baselineScore.getKey(), Verdict.MISSING, baselineScore, null, Double.NaN, Double.NaN));
+            } else {
+                comparisons.add(compare(baselineScore, currentScore, thresholdInPercent, alpha, isEnvironmentIgnored));
+            }
+        }
+
+        for (Score currentScore : current.values()) {
+            if (!baseline.containsKey(currentScore.getKey())) {
+                comparisons.add(new Comparison(currentScore.getKey(), Verdict.NEW, null, currentScore, Double.NaN, Double.NaN));
+            }
+        }
+
+        return comparisons;
+    }
+
+    public static Comparison compare(Score baseline, Score current, double thresholdInPercent, double alpha) {
+        return compare(baseline, current, thresholdInPercent, alpha, false);
+    }
+
+    public static Comparison compare(Score baseline, Score current, double thresholdInPercent, double alpha, boolean isEnvironmentIgnored) {
+        if (!isEnvironmentIgnored && baseline.getEnvironment() != null && current.getEnvironment() != null) {
+            List<String> differences = baseline.getEnvironment().differences(current.getEnvironment());
+            if (!differences.isEmpty()) {
+                return new Comparison(baseline.getKey(), Verdict.INCOMPARABLE, baseline, current, Double.NaN, Double.NaN, differences);
+            }
+        }
+
+        if (!baseline.getUnit().equals(current.getUnit())) {
+            return new Comparison(baseline.getKey(), Verdict.INCOMPARABLE, baseline, current, Double.NaN, Double.NaN,
+                    Collections.singletonList("scoreUnit: [" + baseline.getUnit() + "] != [" + current.getUnit() + "]"));
+        }
+        // no relative change against 0
+        if (baseline.getScore() == 0) {
+            return new Comparison(baseline.getKey(), Verdict.INCOMPARABLE, baseline, current, Double.NaN, Double.NaN,
+                    Collections.singletonList("score: baseline is [0]"));
+        }
+
+        double changeInPercent = (current.getScore() - baseline.getScore()) / baseline.getScore() * 100;
+        if (baseline.isHigherBetter()) {
+            changeInPercent = -changeInPercent;
+        }
+
+        double pValue = tTest(baseline.getSamples(), current.getSamples());
+
+        boolean isSignificant;
+        if (!Double.isNaN(pValue)) {
+            isSignificant = pValue < alpha;
+        } else if (!Double.isNaN(baseline.getScoreError()) && !Double.isNaN(current.getScoreError())) {
+            isSignificant = Math.abs(current.getScore() - baseline.getScore()) > baseline.getScoreError() + current.getScoreError();
+        } else {
+            isSignificant = true;
+        }
+
+        Verdict verdict = Verdict.UNCHANGED;
+        if (isSignificant && changeInPercent > thresholdInPercent) {
+            verdict = Verdict.REGRESSION;
+        } else if (isSignificant && changeInPercent < -thresholdInPercent) {
+            verdict = Verdict.IMPROVEMENT;
+        }
+
+        return new Comparison(baseline.getKey(), verdict, baseline, current, changeInPercent, pValue);
+    }
+
+    /**
+     * @return p-value of Welch's t-test, NaN if either side has less than 2 samples or no variance at all
+     */
+    private static double tTest(double[] baselineSamples, double[] currentSamples) {
+        if (baselineSamples.length < 2 || currentSamples.length < 2) {
+            return Double.NaN;
+        }
+        if (StatUtils.variance(baselineSamples) == 0 && StatUtils.variance(currentSamples) == 0) {
+            return Double.NaN;
+        }
+
+        return new TTest().tTest(baselineSamples, currentSamples);
+    }
+
+    public static void printReport(List<Comparison> comparisons, double thresholdInPercent, double alpha, PrintStream out) {
+        out.printf("# Threshold: %.1f%%, alpha: %s, positive change is worse%n", thresholdInPercent, alpha);
+        out.printf("%-12s %10s %16s %16s  %s%n", "Verdict", "Change", "Baseline", "Current", "Benchmark");
+
+        int numRegressions = 0;
+        for (Comparison comparison : comparisons) {
+            if (comparison.getVerdict() == Verdict.REGRESSION) {
+                numRegressions++;
+            }
+
+            out.printf("%-12s %10s %16s %16s  %s%n", comparison.getVerdict(),
+                    Double.isNaN(comparison.getChangeInPercent()) ? "" : String.format("%+.2f%%", comparison.getChangeInPercent()),
+                    format(comparison.getBaseline()), format(comparison.getCurrent()), comparison.getKey());
+            for (String difference : comparison.getEnvironmentDifferences()) {
+                out.printf("%-12s %10s   %s%n", "", "", difference);
+            }
+        }
+
+        out.printf("# %d of %d benchmarks regressed%n", numRegressions, comparisons.size());
+    }
+
+    private static String format(Score score) {
+        if (score == null) {
+            return "";
+        }
+
+        return Double.isNaN(score.getScoreError()) ?
+                String.format("%.3f", score.getScore()) :
+                String.format("%.3f \u00b1 %.3f", score.getScore(), score.getScoreError());
+    }
+}
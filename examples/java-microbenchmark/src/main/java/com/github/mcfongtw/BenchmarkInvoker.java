@@ -0,0 +1,270 @@
+package com.github.mcfongtw;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+/**
+ * Invoke a @Benchmark method outside of JMH, i.e. at a given rate, in the calling thread: the benchmark instance and
+ * its @State arguments are created and their @Param fields set, and @Setup / @TearDown methods are called at
+ * {@link #setUp(Level)} / {@link #tearDown(Level)}; Level.Invocation ones around each {@link #invoke()}.
+ *
+ * The scope of a state does not matter, as there is a single thread.
+ */
+class BenchmarkInvoker {
+
+    private static final String BLACKHOLE_CHALLENGE_RESPONSE = "Today's password is swordfish. I understand instantiating Blackholes directly is dangerous.";
+
+    private final Object benchmark;
+
+    private final Method method;
+
+    private final Object[] arguments;
+
+    /**
+     * Instances with @Setup / @TearDown methods, in order of set up
+     */
+    private final List<Object> states = new ArrayList<>();
+
+    /**
+     * @Param values actually used
+     */
+    private final SortedMap<String, String> params = new TreeMap<>();
+
+    private final Map<Level, List<Fixture>> setUps = new EnumMap<>(Level.class);
+
+    private final Map<Level, List<Fixture>> tearDowns = new EnumMap<>(Level.class);
+
+    /**
+     * A @Setup / @TearDown method of a state
+     */
+    private static class Fixture {
+
+        private final Object state;
+
+        private final Method method;
+
+        Fixture(Object state, Method method) {
+            this.state = state;
+            this.method = method;
+        }
+    }
+
+    /**
+     * @param params @Param values, by field name; the first value of the annotation otherwise
+     */
+    BenchmarkInvoker(Class<?> benchmarkClass, String methodName, Map<String, String> params) throws ReflectiveOperationException {
+        this.method = findBenchmarkMethod(benchmarkClass, methodName);
+        this.benchmark = benchmarkClass.newInstance();
+
+        if (benchmarkClass.isAnnotationPresent(State.class)) {
+            initParams(benchmark, params);
+            states.add(benchmark);
+        }
+
+        Map<Class<?>, Object> stateByClass = new HashMap<>();
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        arguments = new Object[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            Class<?> type = parameterTypes[i];
+            if (type == Blackhole.class) {
+                arguments[i] = new Blackhole(BLACKHOLE_CHALLENGE_RESPONSE);
+            } else if (type.isAnnotationPresent(State.class)) {
+                Object state = stateByClass.get(type);
+                if (state == null) {
+                    state = type.newInstance();
+                    initParams(state, params);
+                    stateByClass.put(type, state);
+                    states.add(state);
+                }
+                arguments[i] = state;
+            } else {
+                throw new IllegalArgumentException("Unsupported argument [" + type.getName() + "] of [" + method + "], only @State and Blackhole are");
+            }
+        }
+
+        Set<String> unknownParams = new TreeSet<>(params.keySet());
+        unknownParams.removeAll(this.params.keySet());
+        if (!unknownParams.isEmpty()) {
+            throw new IllegalArgumentException("No @Param " + unknownParams + " in the states of [" + method + "]");
+        }
+
+        for (Level level : Level.values()) {
+            List<Fixture> levelSetUps = new ArrayList<>();
+            List<Fixture> levelTearDowns = new ArrayList<>();
+            for (Object state : states) {
+                for (Method fixture : findFixtures(state.getClass(), Setup.class, level)) {
+                    levelSetUps.add(new Fixture(state, fixture));
+                }
+            }
+            // in reverse order of set up
+            for (int i = states.size() - 1; i >= 0; i--) {
+                for (Method fixture : findFixtures(states.get(i).getClass(), TearDown.class, level)) {
+                    levelTearDowns.add(new Fixture(states.get(i), fixture));
+                }
+            }
+            setUps.put(level, levelSetUps);
+            tearDowns.put(level, levelTearDowns);
+        }
+    }
+
+    private static Method findBenchmarkMethod(Class<?> benchmarkClass, String methodName) {
+        for (Method candidate : benchmarkClass.getMethods()) {
+            if (candidate.getName().equals(methodName) && candidate.isAnnotationPresent(Benchmark.class)) {
+                return candidate;
+            }
+        }
+
+        throw new IllegalArgumentException("No @Benchmark [" + methodName + "] in [" + benchmarkClass.getName() + "]");
+    }
+
+    private void initParams(Object state, Map<String, String> values) throws IllegalAccessException {
+        for (Class<?> clazz = state.getClass(); clazz != null; clazz = clazz.getSuperclass()) {
+            for (Field field : clazz.getDeclaredFields()) {
+                Param param = field.getAnnotation(Param.class);
+                if (param == null) {
+                    continue;
+                }
+
+                String value = values.get(field.getName());
+                if (value == null) {
+                    if (param.value().length == 0) {
+                        throw new IllegalArgumentException("No value of @Param [" + field.getName() + "]");
+                    }
+                    value = param.value()[0];
+                }
+
+                field.setAccessible(true);
+                field.set(state, convert(value, field.getType()));
+                params.put(field.getName(), value);
+            }
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Object convert(String value, Class<?> type) {
+        if (type == String.class) {
+            return value;
+        } else if (type == int.class || type == Integer.class) {
+            return Integer.valueOf(value);
+        } else if (type == long.class || type == Long.class) {
+            return Long.valueOf(value);
+        } else if (type == double.class || type == Double.class) {
+            return Double.valueOf(value);
+        } else if (type == float.class || type == Float.class) {
+            return Float.valueOf(value);
+        } else if (type == short.class || type == Short.class) {
+            return Short.valueOf(value);
+        } else if (type == byte.class || type == Byte.class) {
+            return Byte.valueOf(value);
+        } else if (type == boolean.class || type == Boolean.class) {
+            return Boolean.valueOf(value);
+        } else if (type == char.class || type == Character.class) {
+            return value.charAt(0);
+        } else if (type.isEnum()) {
+            return Enum.valueOf((Class<? extends Enum>) type, value);
+        }
+
+        throw new IllegalArgumentException("Unsupported @Param type [" + type.getName() + "]");
+    }
+
+    /**
+     * @return fixture methods of the level, superclass first, each overridden method once
+     */
+    private static List<Method> findFixtures(Class<?> stateClass, Class<? extends java.lang.annotation.Annotation> annotation, Level level) {
+        List<Class<?>> hierarchy = new ArrayList<>();
+        for (Class<?> clazz = stateClass; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            hierarchy.add(0, clazz);
+        }
+
+        List<Method> fixtures = new ArrayList<>();
+        Set<String> signatures = new HashSet<>();
+        for (Class<?> clazz : hierarchy) {
+            for (Method candidate : clazz.getDeclaredMethods()) {
+                Level candidateLevel = null;
+                if (annotation == Setup.class && candidate.isAnnotationPresent(Setup.class)) {
+                    candidateLevel = candidate.getAnnotation(Setup.class).value();
+                } else if (annotation == TearDown.class && candidate.isAnnotationPresent(TearDown.class)) {
+                    candidateLevel = candidate.getAnnotation(TearDown.class).value();
+                }
+
+                // a virtual call runs the override anyway
+                String signature = candidate.getName() + Arrays.toString(candidate.getParameterTypes());
+                if (candidateLevel == level && !Modifier.isStatic(candidate.getModifiers()) && signatures.add(signature)) {
+                    candidate.setAccessible(true);
+                    fixtures.add(candidate);
+                }
+            }
+        }
+
+        return fixtures;
+    }
+
+    void setUp(Level level) throws Exception {
+        for (Fixture fixture : setUps.get(level)) {
+            call(fixture.method, fixture.state);
+        }
+    }
+
+    /**
+     * Tear down all states in reverse order, even if one fails
+     */
+    void tearDown(Level level) throws Exception {
+        Exception failure = null;
+        for (Fixture fixture : tearDowns.get(level)) {
+            try {
+                call(fixture.method, fixture.state);
+            } catch (Exception e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Invoke the @Benchmark method once, with Level.Invocation fixtures around it
+     */
+    void invoke() throws Exception {
+        if (!setUps.get(Level.Invocation).isEmpty() || !tearDowns.get(Level.Invocation).isEmpty()) {
+            setUp(Level.Invocation);
+            try {
+                call(method, benchmark, arguments);
+            } finally {
+                tearDown(Level.Invocation);
+            }
+        } else {
+            call(method, benchmark, arguments);
+        }
+    }
+
+    private static void call(Method target, Object instance, Object... args) throws Exception {
+        try {
+            target.invoke(instance, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    String getName() {
+        return benchmark.getClass().getName() + "." + method.getName();
+    }
+
+    SortedMap<String, String> getParams() {
+        return params;
+    }
+}
@@ -0,0 +1,174 @@
+package com.github.mcfongtw;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.github.mcfongtw.profiler.EnvironmentFingerprintProfiler;
+import com.github.mcfongtw.profiler.InvocationOverheadProfiler;
+import com.github.mcfongtw.store.ResultStore;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.NoBenchmarksException;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Single entry point of all benchmarks, instead of the main() of each benchmark class:
+ *
+ * <pre>
+ * java -jar BenchmarkRunner-jmh-1.20.jar -suite io,concurrency -f 1 -t 4 -prof gc -rff nightly-result.json \
+ *      -prof com.github.mcfongtw.profiler.StackSamplingProfiler:dir=nightly-stacks
+ * </pre>
+ *
+ * <ul>
+ *     <li>-suite: comma separated {@link BenchmarkSuite} tags, or "all" (default)</li>
+ *     <li>-store: {@link ResultStore} dir to append the merged JSON results to as a run, and to rewrite the trend page
+ *     of</li>
+ *     <li>any other argument is a JMH option, i.e. -f / -t / -prof override the annotations of every benchmark;
+ *     benchmark regexps narrow down the suites</li>
+ * </ul>
+ *
+ * Suites run one after the other, each writing its own {@code <suite>-result.<format>}; all results are then merged
+ * into one report, -rff / -rf, by default {@code benchmark-result.json}. Unless -foe false is given, the exit code is
+ * non-zero if any suite fails. JSON results record the {@link EnvironmentFingerprint} of the forks of their own
+ * benchmark and @Param values as {@code environment}, see {@link EnvironmentFingerprintProfiler}.
+ */
+public class BenchmarkRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(BenchmarkRunner.class);
+
+    private static final String SUITE_OPTION = "-suite";
+
+    private static final String STORE_OPTION = "-store";
+
+    private static final String DEFAULT_REPORT_PREFIX = "benchmark-result";
+
+    private static final String USAGE = "Usage: BenchmarkRunner [" + SUITE_OPTION + " " + BenchmarkSuite.ALL + "|<tag>[,<tag>...]] [" + STORE_OPTION + " <dir>] [JMH options] [regexp*], tags: " + BenchmarkSuite.getAllTags();
+
+    public static void main(String[] args) throws Exception {
+        String suiteTags = BenchmarkSuite.ALL;
+        File storeDir = null;
+        List<String> jmhArgs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (SUITE_OPTION.equals(args[i]) && i + 1 < args.length) {
+                suiteTags = args[++i];
+            } else if (STORE_OPTION.equals(args[i]) && i + 1 < args.length) {
+                storeDir = new File(args[++i]);
+            } else {
+                jmhArgs.add(args[i]);
+            }
+        }
+
+        List<BenchmarkSuite> suites;
+        CommandLineOptions jmhOptions;
+        CommandLineOptions jmhOptionsWithoutIncludes;
+        try {
+            suites = BenchmarkSuite.parse(suiteTags);
+            jmhOptions = new CommandLineOptions(jmhArgs.toArray(new String[0]));
+            // includes of the parent options are OR-ed into each suite, move them into the suite regex instead
+            List<String> otherArgs = new ArrayList<>(jmhArgs);
+            otherArgs.removeAll(jmhOptions.getIncludes());
+            jmhOptionsWithoutIncludes = new CommandLineOptions(otherArgs.toArray(new String[0]));
+        } catch (IllegalArgumentException | CommandLineOptionException e) {
+            System.err.println("Error parsing command line: " + e.getMessage());
+            System.err.println(USAGE);
+            System.exit(1);
+            return;
+        }
+
+        if (jmhOptions.shouldHelp()) {
+            System.out.println(USAGE);
+            jmhOptions.showHelp();
+            return;
+        }
+
+        ResultFormatType resultFormat = jmhOptions.getResultFormat().orElse(ResultFormatType.JSON);
+        String report = jmhOptions.getResult().orElse(DEFAULT_REPORT_PREFIX + "." + resultFormat.toString().toLowerCase(Locale.ROOT));
+
+        List<RunResult> results = new ArrayList<>();
+        List<BenchmarkSuite> failedSuites = new ArrayList<>();
+        // a fingerprint per benchmark and @Param values, written by the forks
+        File fingerprintDir = Files.createTempDirectory("jmh-fingerprints").toFile();
+        try {
+            runSuites(suites, jmhOptions, jmhOptionsWithoutIncludes, resultFormat, fingerprintDir, results, failedSuites);
+            writeReport(results, resultFormat, report, fingerprintDir, storeDir);
+        } finally {
+            FileUtils.deleteDirectory(fingerprintDir);
+        }
+        logger.info("Merged [{}] results of suites [{}] into [{}]", new Object[]{results.size(), suiteTags, report});
+
+        System.out.println();
+        System.out.println("# Merged results");
+        ResultFormatFactory.getInstance(ResultFormatType.TEXT, System.out).writeOut(results);
+
+        if (!failedSuites.isEmpty()) {
+            logger.error("Failed suites: {}", failedSuites);
+            System.exit(1);
+        }
+    }
+
+    private static void runSuites(List<BenchmarkSuite> suites, CommandLineOptions jmhOptions, CommandLineOptions jmhOptionsWithoutIncludes,
+                                  ResultFormatType resultFormat, File fingerprintDir, List<RunResult> results, List<BenchmarkSuite> failedSuites) throws IOException {
+        String extension = resultFormat.toString().toLowerCase(Locale.ROOT);
+        for (BenchmarkSuite suite : suites) {
+            File suiteReport = new File(suite.getTag() + "-result." + extension);
+
+            Options opt = new OptionsBuilder()
+                    .parent(jmhOptionsWithoutIncludes)
+                    .include(suite.getIncludeRegex(jmhOptions.getIncludes()))
+                    .addProfiler(EnvironmentFingerprintProfiler.class, "dir=" + fingerprintDir.getAbsolutePath())
+                    .addProfiler(InvocationOverheadProfiler.class)
+                    .shouldFailOnError(jmhOptions.shouldFailOnError().orElse(true))
+                    .resultFormat(resultFormat)
+                    .result(suiteReport.getPath())
+                    .build();
+
+            logger.info("Running suite [{}]...", suite.getTag());
+            try {
+                results.addAll(new Runner(opt).run());
+                if (resultFormat == ResultFormatType.JSON) {
+                    JsonResults.embedEnvironments(suiteReport, fingerprintDir);
+                }
+                logger.info("Running suite [{}]...DONE", suite.getTag());
+            } catch (NoBenchmarksException e) {
+                logger.info("No benchmark matched in suite [{}]", suite.getTag());
+            } catch (RunnerException e) {
+                failedSuites.add(suite);
+                logger.error("Suite [" + suite.getTag() + "] failed", e);
+            }
+        }
+    }
+
+    private static void writeReport(List<RunResult> results, ResultFormatType resultFormat, String report, File fingerprintDir, File storeDir) throws IOException {
+        if (resultFormat == ResultFormatType.JSON) {
+            ArrayNode json = JsonResults.toJson(results);
+            int missing = JsonResults.putEnvironments(json, fingerprintDir);
+            if (missing > 0) {
+                logger.warn("[{}] results without environment fingerprint", missing);
+            }
+            JsonResults.write(json, new File(report));
+            if (storeDir != null && !results.isEmpty()) {
+                try (ResultStore store = ResultStore.open(storeDir)) {
+                    store.append(json, report, System.currentTimeMillis());
+                    logger.info("Trends of [{}] runs in [{}]", store.getRunCount(), store.writeTrendPage(ResultStore.DEFAULT_LAST_RUNS));
+                }
+            }
+        } else {
+            ResultFormatFactory.getInstance(resultFormat, report).writeOut(results);
+            if (storeDir != null) {
+                logger.warn("Results not stored in [{}], only JSON results are", storeDir);
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.github.mcfongtw;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Tags of {@link BenchmarkRunner}: a suite is a set of benchmark classes, given by package or class name prefix.
+ *
+ * NOTE: a new benchmark outside of the io, concurrency, spring.data and tutorial packages has to be added here.
+ */
+public enum BenchmarkSuite {
+
+    IO("com.github.mcfongtw.io."),
+
+    CONCURRENCY("com.github.mcfongtw.concurrency.",
+            "com.github.mcfongtw.RingBufferBenchmark."),
+
+    CODEC("com.github.mcfongtw.ByteBufBenchmark.",
+            "com.github.mcfongtw.CommonHashBenchmark.",
+            "com.github.mcfongtw.CSVParsingBenchmark.",
+            "com.github.mcfongtw.JavaCompressionBenchmark.",
+            "com.github.mcfongtw.StringReplaceBenchmark."),
+
+    ORM("com.github.mcfongtw.spring.data."),
+
+    GC("com.github.mcfongtw.tutorial.ConcurrentMarkSweepGcBenchmark.",
+            "com.github.mcfongtw.tutorial.G1GcBenchmark.",
+            "com.github.mcfongtw.tutorial.ParallelGcBenchmark.",
+            "com.github.mcfongtw.ObjectReferenceBenchmark."),
+
+    CORE("com.github.mcfongtw.FibonacciBenchmark.",
+            "com.github.mcfongtw.MetricKeyBenchmark.",
+            "com.github.mcfongtw.StreamBenchmark.",
+            "com.github.mcfongtw.SystemTimeBenchmark.",
+            "com.github.mcfongtw.TryWithResourceBenchmark.",
+            "com.github.mcfongtw.tutorial.IntroToJmhBenchmark.");
+
+    public static final String ALL = "all";
+
+    private final String suiteRegex;
+
+    BenchmarkSuite(String... prefixes) {
+        List<String> regexps = new ArrayList<>();
+        for (String prefix : prefixes) {
+            regexps.add(Pattern.quote(prefix));
+        }
+
+        this.suiteRegex = "(?:" + StringUtils.join(regexps, "|") + ")";
+    }
+
+    public String getTag() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return JMH include regex of this suite, narrowed to the benchmarks matching any of {@code userIncludes}, if any
+     */
+    public String getIncludeRegex(List<String> userIncludes) {
+        if (userIncludes == null || userIncludes.isEmpty()) {
+            return "^" + suiteRegex;
+        }
+
+        return "^(?=.*(?:" + StringUtils.join(userIncludes, "|") + "))" + suiteRegex;
+    }
+
+    /**
+     * @param tags comma separated, i.e. "io,gc", or "all"
+     */
+    public static List<BenchmarkSuite> parse(String tags) {
+        if (StringUtils.isBlank(tags) || ALL.equalsIgnoreCase(tags.trim())) {
+            return Arrays.asList(values());
+        }
+
+        Set<BenchmarkSuite> suites = new LinkedHashSet<>();
+        for (String tag : StringUtils.split(tags, ',')) {
+            String trimmedTag = tag.trim();
+            try {
+                suites.add(valueOf(trimmedTag.toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown suite [" + trimmedTag + "], expected " + ALL + " or any of " + getAllTags());
+            }
+        }
+
+        return new ArrayList<>(suites);
+    }
+
+    /**
+     * @return all tags, i.e. "io,concurrency,..."
+     */
+    public static String getAllTags() {
+        List<String> tags = new ArrayList<>();
+        for (BenchmarkSuite suite : values()) {
+            tags.add(suite.getTag());
+        }
+
+        return StringUtils.join(tags, ",");
+    }
+}
@@ -1,5 +1,10 @@
 package com.github.mcfongtw;
 
+import com.github.mcfongtw.hook.BatchedFixtures;
+import com.github.mcfongtw.hook.InvocationOverheadCalibrationHook;
+import com.github.mcfongtw.profiler.InvocationOverheadProfiler;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hasher;
 import com.google.common.hash.Hashing;
 import org.openjdk.jmh.annotations.*;
@@ -20,6 +25,9 @@ import java.util.concurrent.TimeUnit;
 @Threads(1)
 public class CommonHashBenchmark extends BenchmarkBase {
 
+    // small enough for the pre-built hashers to stay in cache
+    private static final int BATCH_SIZE = 1_000;
+
     @State(Scope.Benchmark)
     public static class BenchmarkState extends SimpleBenchmarkLifecycle {
 
@@ -29,6 +37,9 @@ public class CommonHashBenchmark extends BenchmarkBase {
 
         public String password = "1gq3t123fasdsg1334";
 
+        // a Hasher is good for a single hash(), so it is built per invocation: report what Level.Invocation adds, see main()
+        private final InvocationOverheadCalibrationHook invocationOverheadHook = hooks.register(Level.Trial, new InvocationOverheadCalibrationHook(stateName));
+
         @Setup(Level.Trial)
         @Override
         public void doTrialSetUp() throws Exception {
@@ -70,6 +81,91 @@ public class CommonHashBenchmark extends BenchmarkBase {
         }
     }
 
+    /*
+     * Same as above without Level.Invocation: the hashers of an iteration are built beforehand, and each iteration is a
+     * single shot of BATCH_SIZE hashes, i.e. the score is the time of BATCH_SIZE hashes. A state per algorithm, so that
+     * each benchmark only builds the batch it uses.
+     */
+    public static abstract class BatchedHasherState extends SimpleBenchmarkLifecycle {
+
+        public String password = "1gq3t123fasdsg1334";
+
+        protected final BatchedFixtures<Hasher> hashers;
+
+        protected BatchedHasherState(final HashFunction hashFunction) {
+            hashers = hooks.register(Level.Iteration, new BatchedFixtures<>(BATCH_SIZE, new BatchedFixtures.Factory<Hasher>() {
+                @Override
+                public Hasher newFixture() {
+                    return hashFunction.newHasher();
+                }
+            }));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class BatchedMurmur3State extends BatchedHasherState {
+
+        public BatchedMurmur3State() {
+            super(Hashing.murmur3_128());
+        }
+
+        @Setup(Level.Trial)
+        @Override
+        public void doTrialSetUp() throws Exception {
+            super.doTrialSetUp();
+        }
+
+        @TearDown(Level.Trial)
+        @Override
+        public void doTrialTearDown() throws Exception {
+            super.doTrialTearDown();
+        }
+
+        @Setup(Level.Iteration)
+        @Override
+        public void doIterationSetup() throws Exception {
+            super.doIterationSetup();
+        }
+
+        @TearDown(Level.Iteration)
+        @Override
+        public void doIterationTearDown() throws Exception {
+            super.doIterationTearDown();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class BatchedSha256State extends BatchedHasherState {
+
+        public BatchedSha256State() {
+            super(Hashing.sha256());
+        }
+
+        @Setup(Level.Trial)
+        @Override
+        public void doTrialSetUp() throws Exception {
+            super.doTrialSetUp();
+        }
+
+        @TearDown(Level.Trial)
+        @Override
+        public void doTrialTearDown() throws Exception {
+            super.doTrialTearDown();
+        }
+
+        @Setup(Level.Iteration)
+        @Override
+        public void doIterationSetup() throws Exception {
+            super.doIterationSetup();
+        }
+
+        @TearDown(Level.Iteration)
+        @Override
+        public void doIterationTearDown() throws Exception {
+            super.doIterationTearDown();
+        }
+    }
+
     @Benchmark
     public void measureMurmur3_128(BenchmarkState state) {
         state.murmur3.putString(state.password, Charset.defaultCharset());
@@ -82,9 +178,32 @@ public class CommonHashBenchmark extends BenchmarkBase {
         state.sha256.hash();
     }
 
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 200, batchSize = BATCH_SIZE)
+    @Measurement(iterations = 50, batchSize = BATCH_SIZE)
+    public HashCode measureBatchedMurmur3_128(BatchedMurmur3State state) {
+        Hasher murmur3 = state.hashers.next();
+        murmur3.putString(state.password, Charset.defaultCharset());
+        return murmur3.hash();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 200, batchSize = BATCH_SIZE)
+    @Measurement(iterations = 50, batchSize = BATCH_SIZE)
+    public HashCode measureBatchedSha256(BatchedSha256State state) {
+        Hasher sha256 = state.hashers.next();
+        sha256.putString(state.password, Charset.defaultCharset());
+        return sha256.hash();
+    }
+
     public static void main(String[] args) throws RunnerException {
         Options opt = new OptionsBuilder()
                 .include(CommonHashBenchmark.class.getSimpleName())
+                .addProfiler(InvocationOverheadProfiler.class)
                 .resultFormat(ResultFormatType.JSON)
                 .result("CommonHashBenchmark-result.json")
                 .build();
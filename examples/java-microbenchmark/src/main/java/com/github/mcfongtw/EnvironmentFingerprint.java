@@ -0,0 +1,273 @@
+package com.github.mcfongtw;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * What a benchmark result depends on besides the code: kernel, CPU, CPU governor, transparent huge pages, file system of
+ * the temp dir, page cache, JVM, JVM flags, GC and MALLOC_ARENA_MAX, read from /proc, /sys and the management beans.
+ *
+ * {@link BenchmarkRunner} and {@link ParallelForkScheduler} embed the fingerprint of the forked JVM, as written by
+ * {@link com.github.mcfongtw.profiler.EnvironmentFingerprintProfiler}, into each JSON result as {@code environment}, and {@link BenchmarkBaselineComparator} refuses to compare results of different environments.
+ * Values which change from run to run, i.e. the page cache, are recorded but not compared.
+ */
+public class EnvironmentFingerprint {
+
+    static final String UNKNOWN = "n/a";
+
+    /**
+     * Keys of values recorded but not compared
+     */
+    private static final String VOLATILE_KEY_PREFIX = "pagecache.";
+
+    private final SortedMap<String, String> values;
+
+    EnvironmentFingerprint(Map<String, String> values) {
+        this.values = Collections.unmodifiableSortedMap(new TreeMap<>(values));
+    }
+
+    /**
+     * @return fingerprint of this JVM and the host it runs on
+     */
+    public static EnvironmentFingerprint capture() {
+        Map<String, String> values = new HashMap<>();
+
+        values.put("os.kernel", readFirstLine("/proc/sys/kernel/osrelease"));
+        values.put("cpu.model", findValue("/proc/cpuinfo", "model name", ":"));
+        values.put("cpu.count", String.valueOf(Runtime.getRuntime().availableProcessors()));
+        values.put("cpu.governor", readFirstLine("/sys/devices/system/cpu/cpu0/cpufreq/scaling_governor"));
+        values.put("mm.thp.enabled", toSelected(readFirstLine("/sys/kernel/mm/transparent_hugepage/enabled")));
+        values.put("mm.thp.defrag", toSelected(readFirstLine("/sys/kernel/mm/transparent_hugepage/defrag")));
+        values.put("mm.memTotal", findValue("/proc/meminfo", "MemTotal", ":"));
+        values.put("fs.tmpdir", findFileSystem(System.getProperty("java.io.tmpdir")));
+        values.put("pagecache.cached", findValue("/proc/meminfo", "Cached", ":"));
+        values.put("pagecache.dirty", findValue("/proc/meminfo", "Dirty", ":"));
+
+        values.put("jvm.version", System.getProperty("java.vm.name") + " " + System.getProperty("java.runtime.version"));
+        values.put("jvm.args", StringUtils.join(ManagementFactory.getRuntimeMXBean().getInputArguments(), " "));
+        values.put("jvm.gc", StringUtils.join(getGcNames(), ","));
+        values.put("jvm.maxHeap", String.valueOf(Runtime.getRuntime().maxMemory()));
+        values.put("env.MALLOC_ARENA_MAX", StringUtils.defaultString(System.getenv("MALLOC_ARENA_MAX"), UNKNOWN));
+
+        return new EnvironmentFingerprint(values);
+    }
+
+    public SortedMap<String, String> getValues() {
+        return values;
+    }
+
+    /**
+     * @return the compared values which differ, i.e. {@code jvm.gc: [G1 Young Generation,G1 Old Generation] != [PS Scavenge,PS MarkSweep]}
+     */
+    public List<String> differences(EnvironmentFingerprint other) {
+        SortedSet<String> keys = new TreeSet<>(values.keySet());
+        keys.addAll(other.values.keySet());
+
+        List<String> differences = new ArrayList<>();
+        for (String key : keys) {
+            if (isVolatile(key)) {
+                continue;
+            }
+
+            String value = StringUtils.defaultString(values.get(key), UNKNOWN);
+            String otherValue = StringUtils.defaultString(other.values.get(key), UNKNOWN);
+            if (!value.equals(otherValue)) {
+                differences.add(key + ": [" + value + "] != [" + otherValue + "]");
+            }
+        }
+
+        return differences;
+    }
+
+    /**
+     * @return this fingerprint without the values which are recorded but not compared, i.e. equal for two fingerprints
+     * without {@link #differences(EnvironmentFingerprint)}
+     */
+    public EnvironmentFingerprint withoutVolatileValues() {
+        Map<String, String> comparedValues = new HashMap<>();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            if (!isVolatile(entry.getKey())) {
+                comparedValues.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        return new EnvironmentFingerprint(comparedValues);
+    }
+
+    private static boolean isVolatile(String key) {
+        return key.startsWith(VOLATILE_KEY_PREFIX);
+    }
+
+    public ObjectNode toJson() {
+        ObjectNode json = new ObjectMapper().createObjectNode();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            json.put(entry.getKey(), entry.getValue());
+        }
+
+        return json;
+    }
+
+    /**
+     * @return null if missing
+     */
+    public static EnvironmentFingerprint fromJson(JsonNode json) {
+        if (json == null || !json.isObject()) {
+            return null;
+        }
+
+        Map<String, String> values = new HashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = json.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            values.put(field.getKey(), field.getValue().asText());
+        }
+
+        return new EnvironmentFingerprint(values);
+    }
+
+    public void write(File file) throws IOException {
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file, toJson());
+    }
+
+    /**
+     * @return null if the file does not exist, i.e. the benchmark did not run
+     */
+    public static EnvironmentFingerprint read(File file) throws IOException {
+        if (!file.exists() || file.length() == 0) {
+            return null;
+        }
+
+        return fromJson(new ObjectMapper().readTree(file));
+    }
+
+    /**
+     * @return file of the fingerprint of the forks of a benchmark, mode and @Param values, i.e.
+     * {@code <dir>/com.github.mcfongtw.CommonHashBenchmark.measureSha256-thrpt.json}
+     */
+    public static File getFile(File dir, BenchmarkParams params) {
+        Map<String, String> paramValues = new HashMap<>();
+        for (String key : params.getParamsKeys()) {
+            paramValues.put(key, params.getParam(key));
+        }
+
+        return getFile(dir, params.getBenchmark(), params.getMode().shortLabel(), paramValues);
+    }
+
+    /**
+     * @return file of the fingerprint of the forks of a JSON result, as of {@link #getFile(File, BenchmarkParams)}
+     */
+    static File getFile(File dir, JsonNode result) {
+        Map<String, String> paramValues = new HashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = result.path("params").fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            paramValues.put(field.getKey(), field.getValue().asText());
+        }
+
+        return getFile(dir, result.path("benchmark").asText(), result.path("mode").asText(), paramValues);
+    }
+
+    static File getFile(File dir, String benchmark, String mode, Map<String, String> params) {
+        StringBuilder name = new StringBuilder(benchmark).append('-').append(mode);
+        for (Map.Entry<String, String> param : new TreeMap<>(params).entrySet()) {
+            name.append('-').append(param.getKey()).append('=').append(param.getValue());
+        }
+
+        return new File(dir, name.toString().replaceAll("[^A-Za-z0-9._=-]", "_") + ".json");
+    }
+
+    @Override
+    public String toString() {
+        return values.toString();
+    }
+
+    private static List<String> getGcNames() {
+        List<String> names = new ArrayList<>();
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            names.add(bean.getName());
+        }
+
+        return names;
+    }
+
+    private static List<String> readLines(String path) {
+        try {
+            return Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8);
+        } catch (IOException | RuntimeException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    private static String readFirstLine(String path) {
+        List<String> lines = readLines(path);
+
+        return lines.isEmpty() ? UNKNOWN : lines.get(0).trim();
+    }
+
+    /**
+     * @return value of the first line of {@code name<separator>value}, i.e. "MemTotal:   8048492 kB"
+     */
+    private static String findValue(String path, String name, String separator) {
+        for (String line : readLines(path)) {
+            String[] nameValue = StringUtils.split(line, separator, 2);
+            if (nameValue.length == 2 && nameValue[0].trim().equals(name)) {
+                return nameValue[1].trim();
+            }
+        }
+
+        return UNKNOWN;
+    }
+
+    /**
+     * @param choices i.e. "always [madvise] never"
+     * @return the selected one, i.e. "madvise"
+     */
+    static String toSelected(String choices) {
+        String selected = StringUtils.substringBetween(choices, "[", "]");
+
+        return selected == null ? choices : selected;
+    }
+
+    /**
+     * @return type of the longest mount point of /proc/mounts containing the path
+     */
+    private static String findFileSystem(String path) {
+        String canonicalPath;
+        try {
+            canonicalPath = new File(path).getCanonicalPath();
+        } catch (IOException e) {
+            return UNKNOWN;
+        }
+
+        String mountPoint = "";
+        String type = UNKNOWN;
+        for (String line : readLines("/proc/mounts")) {
+            // device mount-point type options dump pass
+            String[] fields = StringUtils.split(line, ' ');
+            if (fields.length < 3) {
+                continue;
+            }
+
+            String candidate = fields[1].replace("\\040", " ");
+            boolean isContained = canonicalPath.equals(candidate) || "/".equals(candidate) || canonicalPath.startsWith(candidate + "/");
+            if (isContained && candidate.length() >= mountPoint.length()) {
+                mountPoint = candidate;
+                type = fields[2];
+            }
+        }
+
+        return type;
+    }
+}
@@ -1,5 +1,6 @@
 package com.github.mcfongtw;
 
+import com.github.mcfongtw.profiler.StackSamplingProfiler;
 import com.ning.compress.lzf.LZFDecoder;
 import com.ning.compress.lzf.LZFEncoder;
 import net.jpountz.lz4.LZ4Compressor;
@@ -11,6 +12,7 @@ import org.openjdk.jmh.profile.GCProfiler;
 import org.openjdk.jmh.results.format.ResultFormatType;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
 import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
 import org.openjdk.jmh.runner.options.VerboseMode;
@@ -305,14 +307,17 @@ public class JavaCompressionBenchmark extends BenchmarkBase {
         //TODO: Need to recreate table via command line:
         //curl -XPOST 'http://localhost:8086/query' --data-urlencode 'q=DROP DATABASE "demo"'
         //curl -XPOST 'http://localhost:8086/query' --data-urlencode 'q=CREATE DATABASE "demo"'
-        Options opt = new OptionsBuilder()
+        ChainedOptionsBuilder builder = new OptionsBuilder()
                 .include(JavaCompressionBenchmark.class.getSimpleName())
                 .detectJvmArgs()
                 .addProfiler(GCProfiler.class)
                 .resultFormat(ResultFormatType.JSON)
                 .verbosity(VerboseMode.EXTRA)
-                .result("JavaCompressionBenchmark-result.json")
-                .build();
+                .result("JavaCompressionBenchmark-result.json");
+        if (StackSamplingProfiler.isEnabled()) {
+            builder.addProfiler(StackSamplingProfiler.class);
+        }
+        Options opt = builder.build();
 
         new Runner(opt).run();
     }
@@ -0,0 +1,106 @@
+package com.github.mcfongtw;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * JMH results as JSON, to record what JMH does not, i.e. the {@link EnvironmentFingerprint}, next to each result.
+ */
+class JsonResults {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private JsonResults() {
+    }
+
+    /**
+     * @return array of results, as JMH writes them with -rf json
+     */
+    static ArrayNode toJson(Collection<RunResult> results) throws IOException {
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        try (PrintStream out = new PrintStream(json, true, StandardCharsets.UTF_8.name())) {
+            ResultFormatFactory.getInstance(ResultFormatType.JSON, out).writeOut(results);
+        }
+
+        JsonNode root = mapper.readTree(json.toByteArray());
+
+        return root.isArray() ? (ArrayNode) root : mapper.createArrayNode();
+    }
+
+    static ArrayNode read(File file) throws IOException {
+        JsonNode root = mapper.readTree(file);
+
+        return root != null && root.isArray() ? (ArrayNode) root : mapper.createArrayNode();
+    }
+
+    static void write(ArrayNode results, File file) throws IOException {
+        mapper.writerWithDefaultPrettyPrinter().writeValue(file, results);
+    }
+
+    /**
+     * Set {@code environment} of a result. jvm.args is taken from the result itself, i.e. without the arguments JMH
+     * passes to its forks.
+     */
+    static void putEnvironment(JsonNode result, EnvironmentFingerprint fingerprint) {
+        ObjectNode environment = fingerprint.toJson();
+
+        JsonNode jvmArgs = result.path("jvmArgs");
+        if (jvmArgs.isArray()) {
+            List<String> args = new ArrayList<>();
+            for (JsonNode arg : jvmArgs) {
+                args.add(arg.asText());
+            }
+            environment.put("jvm.args", StringUtils.join(args, " "));
+        }
+
+        ((ObjectNode) result).set("environment", environment);
+    }
+
+    /**
+     * Set {@code environment} of each result to the fingerprint its own forks wrote into {@code fingerprintDir}, see
+     * {@link com.github.mcfongtw.profiler.EnvironmentFingerprintProfiler}; results without one are left as is
+     *
+     * @return number of results without fingerprint
+     */
+    static int putEnvironments(ArrayNode results, File fingerprintDir) throws IOException {
+        int missing = 0;
+        for (JsonNode result : results) {
+            EnvironmentFingerprint fingerprint = EnvironmentFingerprint.read(EnvironmentFingerprint.getFile(fingerprintDir, result));
+            if (fingerprint != null) {
+                putEnvironment(result, fingerprint);
+            } else {
+                missing++;
+            }
+        }
+
+        return missing;
+    }
+
+    /**
+     * Add the fingerprints of {@code fingerprintDir} to the results of a result file written by JMH
+     */
+    static void embedEnvironments(File file, File fingerprintDir) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+
+        ArrayNode results = read(file);
+        putEnvironments(results, fingerprintDir);
+        write(results, file);
+    }
+}
@@ -0,0 +1,14 @@
+package com.github.mcfongtw;
+
+/**
+ * A fixture which a state declares in its {@link LifecycleHooks}, at the level of its choice, instead of overriding
+ * the pre / post methods of {@link BenchmarkLifecycle}, i.e. dropping OS caches after each iteration.
+ *
+ * See com.github.mcfongtw.hook for the common ones.
+ */
+public interface LifecycleHook {
+
+    void setUp() throws Exception;
+
+    void tearDown() throws Exception;
+}
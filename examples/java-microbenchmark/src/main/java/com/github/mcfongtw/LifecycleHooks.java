@@ -0,0 +1,75 @@
+package com.github.mcfongtw;
+
+import com.github.mcfongtw.jfr.JfrPhase;
+import org.openjdk.jmh.annotations.Level;
+
+import java.util.Arrays;
+
+/**
+ * Hooks of a state by {@link Level}. On set up, hooks run in order of registration, before the pre / post methods of
+ * the level; on tear down, in reverse order, after them. A level without hooks costs an array length check.
+ *
+ * Tear down runs every hook even if one fails, and rethrows the first failure.
+ */
+// a JfrPhase is only closed by its try block, never referenced in it
+@SuppressWarnings("try")
+public class LifecycleHooks {
+
+    private final LifecycleHook[][] hooksByLevel = new LifecycleHook[Level.values().length][0];
+
+    private final String[][] namesByLevel = new String[Level.values().length][0];
+
+    /**
+     * @return the given hook, i.e. to keep it in a field of the state
+     */
+    public <T extends LifecycleHook> T register(Level level, T hook) {
+        int index = level.ordinal();
+
+        LifecycleHook[] hooks = Arrays.copyOf(hooksByLevel[index], hooksByLevel[index].length + 1);
+        hooks[hooks.length - 1] = hook;
+        String[] names = Arrays.copyOf(namesByLevel[index], namesByLevel[index].length + 1);
+        names[names.length - 1] = hook.getClass().getSimpleName().isEmpty() ? hook.getClass().getName() : hook.getClass().getSimpleName();
+
+        hooksByLevel[index] = hooks;
+        namesByLevel[index] = names;
+
+        return hook;
+    }
+
+    public boolean isEmpty(Level level) {
+        return hooksByLevel[level.ordinal()].length == 0;
+    }
+
+    public void setUp(Level level, String stateName) throws Exception {
+        LifecycleHook[] hooks = hooksByLevel[level.ordinal()];
+        String[] names = namesByLevel[level.ordinal()];
+
+        for (int i = 0; i < hooks.length; i++) {
+            try (JfrPhase phase = JfrPhase.begin(stateName, level.name(), names[i] + ".SetUp")) {
+                hooks[i].setUp();
+            }
+        }
+    }
+
+    public void tearDown(Level level, String stateName) throws Exception {
+        LifecycleHook[] hooks = hooksByLevel[level.ordinal()];
+        String[] names = namesByLevel[level.ordinal()];
+
+        Exception failure = null;
+        for (int i = hooks.length - 1; i >= 0; i--) {
+            try (JfrPhase phase = JfrPhase.begin(stateName, level.name(), names[i] + ".TearDown")) {
+                hooks[i].tearDown();
+            } catch (Exception e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
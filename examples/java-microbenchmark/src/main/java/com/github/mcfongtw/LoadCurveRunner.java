@@ -0,0 +1,367 @@
+package com.github.mcfongtw;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.Getter;
+import org.HdrHistogram.Histogram;
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.runner.BenchmarkList;
+import org.openjdk.jmh.runner.BenchmarkListEntry;
+import org.openjdk.jmh.runner.format.OutputFormatFactory;
+import org.openjdk.jmh.runner.options.VerboseMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Latency at load of a @Benchmark method, for capacity planning:
+ *
+ * <pre>
+ * java -cp BenchmarkRunner-jmh-1.20.jar com.github.mcfongtw.LoadCurveRunner -p bufferSize=8192 SequentialReplicationBenchmark.copyWithFileChannel
+ * </pre>
+ *
+ * <ul>
+ *     <li>-load: comma separated percentages of the max throughput, default 10,50,80,95</li>
+ *     <li>-w / -r: warmup / measurement seconds of each step, default 5 / 10</li>
+ *     <li>-p: @Param value, i.e. -p bufferSize=8192; the first value of the annotation otherwise</li>
+ *     <li>-rff: JSON report, default {@code loadcurve-result.json}</li>
+ * </ul>
+ *
+ * The max throughput is measured closed-loop first, i.e. invocations back to back. Each load is then run open-loop: the
+ * invocations are scheduled at a fixed rate, and the latency of an invocation is measured from its scheduled time, not
+ * from when it actually started, so the time spent waiting behind a slow invocation counts (no coordinated omission).
+ *
+ * The method is invoked in this JVM, by a single thread, through {@link BenchmarkInvoker}; @Setup / @TearDown of
+ * Level.Iteration run around each step. The reflective call and the timestamps add some 100 ns to each invocation,
+ * i.e. this is meant for methods of microseconds and more, like the I/O benchmarks.
+ */
+public class LoadCurveRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadCurveRunner.class);
+
+    private static final String USAGE = "Usage: LoadCurveRunner [-load <percent>[,<percent>...]] [-w <seconds>] [-r <seconds>] [-p <param>=<value>]* [-rff <file>] <benchmark regexp>";
+
+    private static final double[] DEFAULT_LOADS_IN_PERCENT = {10, 50, 80, 95};
+
+    private static final int DEFAULT_WARMUP_IN_SECONDS = 5;
+
+    private static final int DEFAULT_MEASUREMENT_IN_SECONDS = 10;
+
+    private static final String DEFAULT_REPORT = "loadcurve-result.json";
+
+    /**
+     * Sleep until this close to the scheduled time, then spin
+     */
+    private static final long SPIN_THRESHOLD_IN_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /**
+     * Latency percentiles reported
+     */
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    /**
+     * One step of the curve
+     */
+    @Getter
+    public static class LoadPoint {
+
+        /**
+         * Percent of the max throughput, 100 for the closed-loop run
+         */
+        private final double loadInPercent;
+
+        /**
+         * ops/s, NaN for the closed-loop run
+         */
+        private final double targetRate;
+
+        private final double achievedRate;
+
+        /**
+         * Scheduled invocations which could not be issued in time, i.e. the method cannot sustain the rate
+         */
+        private final long numOmitted;
+
+        /**
+         * Latency in nanos
+         */
+        private final Histogram histogram;
+
+        LoadPoint(double loadInPercent, double targetRate, double achievedRate, long numOmitted, Histogram histogram) {
+            this.loadInPercent = loadInPercent;
+            this.targetRate = targetRate;
+            this.achievedRate = achievedRate;
+            this.numOmitted = numOmitted;
+            this.histogram = histogram;
+        }
+
+        public boolean isSaturated() {
+            return numOmitted > 0;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        double[] loadsInPercent = DEFAULT_LOADS_IN_PERCENT;
+        long warmupInSeconds = DEFAULT_WARMUP_IN_SECONDS;
+        long measurementInSeconds = DEFAULT_MEASUREMENT_IN_SECONDS;
+        String report = DEFAULT_REPORT;
+        Map<String, String> params = new LinkedHashMap<>();
+        String regexp = null;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if ("-load".equals(args[i]) && i + 1 < args.length) {
+                    loadsInPercent = parseLoads(args[++i]);
+                } else if ("-w".equals(args[i]) && i + 1 < args.length) {
+                    warmupInSeconds = Long.parseLong(args[++i]);
+                } else if ("-r".equals(args[i]) && i + 1 < args.length) {
+                    measurementInSeconds = Long.parseLong(args[++i]);
+                } else if ("-rff".equals(args[i]) && i + 1 < args.length) {
+                    report = args[++i];
+                } else if ("-p".equals(args[i]) && i + 1 < args.length) {
+                    String[] nameValue = StringUtils.split(args[++i], "=", 2);
+                    if (nameValue.length != 2) {
+                        throw new IllegalArgumentException("Invalid param [" + args[i] + "]");
+                    }
+                    params.put(nameValue[0], nameValue[1]);
+                } else if (regexp == null && !args[i].startsWith("-")) {
+                    regexp = args[i];
+                } else {
+                    throw new IllegalArgumentException("Unknown option [" + args[i] + "]");
+                }
+            }
+
+            if (regexp == null || warmupInSeconds < 0 || measurementInSeconds < 1) {
+                throw new IllegalArgumentException("No benchmark given");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error parsing command line: " + e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        String benchmark = findBenchmark(regexp);
+        String className = StringUtils.substringBeforeLast(benchmark, ".");
+        String methodName = StringUtils.substringAfterLast(benchmark, ".");
+
+        BenchmarkInvoker invoker = new BenchmarkInvoker(Class.forName(className), methodName, params);
+        List<LoadPoint> points = run(invoker, loadsInPercent, TimeUnit.SECONDS.toNanos(warmupInSeconds), TimeUnit.SECONDS.toNanos(measurementInSeconds));
+
+        System.out.println();
+        System.out.println("# Load curve of " + invoker.getName() + " " + invoker.getParams());
+        printReport(points, System.out);
+
+        writeReport(invoker, points, new File(report));
+        logger.info("Load curve written to [{}]", report);
+    }
+
+    static double[] parseLoads(String loads) {
+        String[] tokens = StringUtils.split(loads, ',');
+        double[] loadsInPercent = new double[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            loadsInPercent[i] = Double.parseDouble(tokens[i].trim());
+            if (loadsInPercent[i] <= 0 || loadsInPercent[i] > 100) {
+                throw new IllegalArgumentException("Invalid load [" + tokens[i] + "], expected (0, 100]");
+            }
+        }
+
+        return loadsInPercent;
+    }
+
+    /**
+     * @return the single benchmark matching, as of JMH
+     */
+    private static String findBenchmark(String regexp) {
+        SortedSet<String> benchmarks = new TreeSet<>();
+        for (BenchmarkListEntry entry : BenchmarkList.defaultList().find(OutputFormatFactory.createFormatInstance(System.out, VerboseMode.SILENT),
+                Collections.singletonList(regexp), Collections.<String>emptyList())) {
+            benchmarks.add(entry.getUsername());
+        }
+
+        if (benchmarks.size() != 1) {
+            throw new IllegalArgumentException("Expected one benchmark matching [" + regexp + "], found " + benchmarks);
+        }
+
+        return benchmarks.first();
+    }
+
+    /**
+     * @return closed-loop step, then one open-loop step per load
+     */
+    static List<LoadPoint> run(BenchmarkInvoker invoker, double[] loadsInPercent, long warmupInNanos, long measurementInNanos) throws Exception {
+        List<LoadPoint> points = new ArrayList<>();
+
+        invoker.setUp(Level.Trial);
+        try {
+            logger.info("Measuring max throughput of [{}]...", invoker.getName());
+            invoker.setUp(Level.Iteration);
+            try {
+                points.add(runClosedLoop(invoker, warmupInNanos, measurementInNanos));
+            } finally {
+                invoker.tearDown(Level.Iteration);
+            }
+
+            double maxRate = points.get(0).getAchievedRate();
+            logger.info("Max throughput: [{}] ops/s", String.format("%.3f", maxRate));
+
+            for (double loadInPercent : loadsInPercent) {
+                double targetRate = maxRate * loadInPercent / 100;
+                logger.info("Running at [{}%] = [{}] ops/s...", loadInPercent, String.format("%.3f", targetRate));
+
+                invoker.setUp(Level.Iteration);
+                try {
+                    points.add(runOpenLoop(invoker, loadInPercent, targetRate, warmupInNanos, measurementInNanos));
+                } finally {
+                    invoker.tearDown(Level.Iteration);
+                }
+            }
+        } finally {
+            invoker.tearDown(Level.Trial);
+        }
+
+        return points;
+    }
+
+    static LoadPoint runClosedLoop(BenchmarkInvoker invoker, long warmupInNanos, long measurementInNanos) throws Exception {
+        Histogram histogram = new Histogram(3);
+
+        long measurementStart = System.nanoTime() + warmupInNanos;
+        long end = measurementStart + measurementInNanos;
+        long now = System.nanoTime();
+        while (now < end) {
+            long start = now;
+            invoker.invoke();
+            now = System.nanoTime();
+
+            if (start >= measurementStart) {
+                histogram.recordValue(now - start);
+            }
+        }
+
+        return new LoadPoint(100, Double.NaN, toRate(histogram.getTotalCount(), now - measurementStart), 0, histogram);
+    }
+
+    /**
+     * Invoke at a fixed rate, measuring latency from the scheduled time of each invocation. The schedule does not
+     * wait for a late invocation: the ones scheduled meanwhile are issued back to back until it catches up. If it never
+     * does, the scheduled invocations left after another measurement period are omitted.
+     */
+    static LoadPoint runOpenLoop(BenchmarkInvoker invoker, double loadInPercent, double targetRate, long warmupInNanos, long measurementInNanos) throws Exception {
+        Histogram histogram = new Histogram(3);
+        double intervalInNanos = TimeUnit.SECONDS.toNanos(1) / targetRate;
+
+        long start = System.nanoTime();
+        long measurementStart = start + warmupInNanos;
+        long end = measurementStart + measurementInNanos;
+        long deadline = end + measurementInNanos;
+
+        long numScheduled = (long) Math.ceil((end - start) / intervalInNanos);
+        long numMeasured = 0;
+        long numOmitted = 0;
+        for (long i = 0; i < numScheduled; i++) {
+            long scheduled = start + (long) (i * intervalInNanos);
+            long now = waitUntil(scheduled);
+            if (now >= deadline) {
+                numOmitted = numScheduled - i;
+                break;
+            }
+
+            invoker.invoke();
+
+            if (scheduled >= measurementStart) {
+                histogram.recordValue(System.nanoTime() - scheduled);
+                numMeasured++;
+            }
+        }
+
+        return new LoadPoint(loadInPercent, targetRate, toRate(numMeasured, measurementInNanos), numOmitted, histogram);
+    }
+
+    /**
+     * @return now
+     */
+    private static long waitUntil(long time) {
+        long now = System.nanoTime();
+        while (now < time) {
+            if (time - now > SPIN_THRESHOLD_IN_NANOS) {
+                LockSupport.parkNanos(time - now - SPIN_THRESHOLD_IN_NANOS);
+            }
+            now = System.nanoTime();
+        }
+
+        return now;
+    }
+
+    private static double toRate(long count, long elapsedInNanos) {
+        return elapsedInNanos <= 0 ? 0 : count * (double) TimeUnit.SECONDS.toNanos(1) / elapsedInNanos;
+    }
+
+    static void printReport(List<LoadPoint> points, PrintStream out) {
+        out.printf("%8s %14s %14s %10s", "Load", "Target ops/s", "Actual ops/s", "Count");
+        for (double percentile : PERCENTILES) {
+            out.printf(" %12s", "p" + format(percentile) + " us");
+        }
+        out.printf(" %12s%n", "max us");
+
+        for (LoadPoint point : points) {
+            out.printf("%8s %14s %14.3f %10d",
+                    Double.isNaN(point.getTargetRate()) ? "max" : format(point.getLoadInPercent()) + "%",
+                    Double.isNaN(point.getTargetRate()) ? "" : String.format("%.3f", point.getTargetRate()),
+                    point.getAchievedRate(), point.getHistogram().getTotalCount());
+            for (double percentile : PERCENTILES) {
+                out.printf(" %12.3f", toMicros(point.getHistogram().getValueAtPercentile(percentile)));
+            }
+            out.printf(" %12.3f%s%n", toMicros(point.getHistogram().getMaxValue()),
+                    point.isSaturated() ? "  saturated, " + point.getNumOmitted() + " omitted" : "");
+        }
+    }
+
+    private static void writeReport(BenchmarkInvoker invoker, List<LoadPoint> points, File file) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+
+        ObjectNode root = mapper.createObjectNode();
+        root.put("benchmark", invoker.getName());
+        ObjectNode params = root.putObject("params");
+        for (Map.Entry<String, String> param : invoker.getParams().entrySet()) {
+            params.put(param.getKey(), param.getValue());
+        }
+        root.set("environment", EnvironmentFingerprint.capture().toJson());
+
+        ArrayNode curve = root.putArray("points");
+        for (LoadPoint point : points) {
+            ObjectNode node = curve.addObject();
+            node.put("load", Double.isNaN(point.getTargetRate()) ? "max" : format(point.getLoadInPercent()) + "%");
+            if (!Double.isNaN(point.getTargetRate())) {
+                node.put("targetRate", point.getTargetRate());
+            }
+            node.put("achievedRate", point.getAchievedRate());
+            node.put("count", point.getHistogram().getTotalCount());
+            node.put("omitted", point.getNumOmitted());
+
+            ObjectNode latency = node.putObject("latencyInNanos");
+            for (double percentile : PERCENTILES) {
+                latency.put("p" + format(percentile), point.getHistogram().getValueAtPercentile(percentile));
+            }
+            latency.put("max", point.getHistogram().getMaxValue());
+        }
+
+        mapper.writerWithDefaultPrettyPrinter().writeValue(file, root);
+    }
+
+    private static String format(double percent) {
+        return percent == Math.rint(percent) ? String.valueOf((long) percent) : String.valueOf(percent);
+    }
+
+    private static double toMicros(long nanos) {
+        return nanos / 1000.0;
+    }
+}
@@ -0,0 +1,105 @@
+package com.github.mcfongtw;
+
+import com.github.mcfongtw.metrics.LatencyMetric;
+import com.github.mcfongtw.metrics.MetricKey;
+import com.google.common.collect.ImmutableMap;
+import lombok.Getter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.kickstarter.dropwizard.metrics.MetricsUtils.influxName;
+
+/*
+ * Cost of getting hold of a LatencyMetric on the request path, plus one addTime():
+ *  - Concat: new LatencyMetric(prefix), i.e. MetricUtils.concat() + 2 registry lookups
+ *  - InfluxName: new LatencyMetric(influxName(prefix, tags)), as InfluxdbLatencyMetric does
+ *  - KeyOf: MetricKey.of(prefix, tags).latencyMetric(), i.e. 1 interning lookup
+ *  - PreResolvedKey: latencyMetric() of a MetricKey held in a field
+ *  - PreResolvedMetric: LatencyMetric held in a field, as the lower bound
+ */
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Measurement(iterations = 10)
+@Warmup(iterations = 5)
+@Fork(3)
+public class MetricKeyBenchmark extends BenchmarkBase {
+
+    private static final String PREFIX = MetricKeyBenchmark.class.getName();
+
+    private static final Map<String, String> TAGS = ImmutableMap.of("benchmark", "MetricKey", "host", "localhost");
+
+    @Getter
+    @State(Scope.Benchmark)
+    public static class BenchmarkState extends SimpleBenchmarkLifecycle {
+
+        private MetricKey metricKey = MetricKey.of(PREFIX, TAGS);
+
+        private LatencyMetric latencyMetric = metricKey.latencyMetric();
+
+        @Setup(Level.Trial)
+        @Override
+        public void doTrialSetUp() throws Exception {
+            super.doTrialSetUp();
+        }
+
+        @TearDown(Level.Trial)
+        @Override
+        public void doTrialTearDown() throws Exception {
+            super.doTrialTearDown();
+        }
+
+        @Setup(Level.Iteration)
+        @Override
+        public void doIterationSetup() throws Exception {
+            super.doIterationSetup();
+        }
+
+        @TearDown(Level.Iteration)
+        @Override
+        public void doIterationTearDown() throws Exception {
+            super.doIterationTearDown();
+        }
+    }
+
+    @Benchmark
+    public void measureConcat(BenchmarkState state) {
+        new LatencyMetric(PREFIX).addTime(1, TimeUnit.MICROSECONDS);
+    }
+
+    @Benchmark
+    public void measureInfluxName(BenchmarkState state) {
+        new LatencyMetric(influxName(PREFIX, TAGS)).addTime(1, TimeUnit.MICROSECONDS);
+    }
+
+    @Benchmark
+    public void measureKeyOf(BenchmarkState state) {
+        MetricKey.of(PREFIX, TAGS).latencyMetric().addTime(1, TimeUnit.MICROSECONDS);
+    }
+
+    @Benchmark
+    public void measurePreResolvedKey(BenchmarkState state) {
+        state.getMetricKey().latencyMetric().addTime(1, TimeUnit.MICROSECONDS);
+    }
+
+    @Benchmark
+    public void measurePreResolvedMetric(BenchmarkState state) {
+        state.getLatencyMetric().addTime(1, TimeUnit.MICROSECONDS);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(MetricKeyBenchmark.class.getSimpleName())
+                .resultFormat(ResultFormatType.JSON)
+                .result("MetricKeyBenchmark-result.json")
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -1,5 +1,6 @@
 package com.github.mcfongtw;
 
+import com.github.mcfongtw.hook.ForceGcHook;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.profile.GCProfiler;
 import org.openjdk.jmh.results.format.ResultFormatType;
@@ -29,6 +30,9 @@ public class ObjectReferenceBenchmark extends BenchmarkBase {
         @Param({"100", "10000", "1000000"})
         public int numOfRefs;
 
+        // finalizable garbage of the previous iteration should not be collected during the next one
+        private final ForceGcHook forceGcHook = hooks.register(Level.Iteration, new ForceGcHook());
+
         @Setup(Level.Trial)
         @Override
         public void doTrialSetUp() throws Exception {
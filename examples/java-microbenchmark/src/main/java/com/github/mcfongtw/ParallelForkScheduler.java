@@ -0,0 +1,376 @@
+package com.github.mcfongtw;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.mcfongtw.profiler.EnvironmentFingerprintProfiler;
+import com.github.mcfongtw.profiler.InvocationOverheadProfiler;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.BenchmarkList;
+import org.openjdk.jmh.runner.BenchmarkListEntry;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.format.OutputFormatFactory;
+import org.openjdk.jmh.runner.options.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.Pattern;
+
+/**
+ * Run benchmarks in parallel on a multi-core machine, each one on its own set of CPUs:
+ *
+ * <pre>
+ * java -cp BenchmarkRunner-jmh-1.20.jar com.github.mcfongtw.ParallelForkScheduler -suite io,codec -cpus 0-63 -cpusPerFork 4
+ * </pre>
+ *
+ * <ul>
+ *     <li>-suite: as of {@link BenchmarkRunner}</li>
+ *     <li>-cpus: CPUs to use, i.e. "0-31,64-95", all by default</li>
+ *     <li>-cpusPerFork: size of a CPU set, default 2, i.e. the benchmark thread plus JIT / GC threads</li>
+ *     <li>any other argument is a JMH option or benchmark regexp</li>
+ * </ul>
+ *
+ * The CPUs are split into disjoint sets. Every single-threaded benchmark is a job which runs its forks one after the
+ * other on one set, through {@code taskset}, while the other sets run other jobs. Serial benchmarks are not run next to
+ * anything: they run one by one afterwards, on all CPUs. These are contention benchmarks, i.e. with more than one
+ * thread, thread groups or in {@link BenchmarkSuite#CONCURRENCY}, and the ones of {@link BenchmarkSuite#IO}, which
+ * share the disk and page cache, and may drop the caches system-wide, see DropSystemCacheHook.
+ *
+ * Forks are required, i.e. -f 0 is rejected: without a forked JVM there is nothing to pin.
+ *
+ * The output of each job goes to {@code <benchmark>.log}; results are merged into one report, -rff, by default
+ * {@code benchmark-result.json}, where each result records its CPU set as {@code cpuSet} and the
+ * {@link EnvironmentFingerprint} of its forks as {@code environment}.
+ */
+public class ParallelForkScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelForkScheduler.class);
+
+    private static final int DEFAULT_CPUS_PER_FORK = 2;
+
+    private static final String DEFAULT_REPORT_PREFIX = "benchmark-result";
+
+    private static final String USAGE = "Usage: ParallelForkScheduler [-suite all|<tag>[,<tag>...]] [-cpus <list>] [-cpusPerFork <n>] [JMH options] [regexp*]";
+
+    /**
+     * A benchmark with all its forks, pinned to a CPU set
+     */
+    static class Job {
+
+        private final String benchmark;
+
+        /**
+         * Not to be run next to other jobs
+         */
+        private final boolean isSerial;
+
+        private String cpuSet;
+
+        private Collection<RunResult> results = Collections.emptyList();
+
+        private Exception failure;
+
+        Job(String benchmark, boolean isSerial) {
+            this.benchmark = benchmark;
+            this.isSerial = isSerial;
+        }
+
+        String getBenchmark() {
+            return benchmark;
+        }
+
+        boolean isSerial() {
+            return isSerial;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        // every job has its own Runner in this JVM, which would otherwise lock each other out
+        System.setProperty("jmh.ignoreLock", "true");
+
+        String suiteTags = BenchmarkSuite.ALL;
+        String cpuList = null;
+        int cpusPerFork = DEFAULT_CPUS_PER_FORK;
+        List<String> jmhArgs = new ArrayList<>();
+
+        List<BenchmarkSuite> suites;
+        List<Integer> cpus;
+        CommandLineOptions jmhOptions;
+        CommandLineOptions jmhOptionsWithoutIncludes;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if ("-suite".equals(args[i]) && i + 1 < args.length) {
+                    suiteTags = args[++i];
+                } else if ("-cpus".equals(args[i]) && i + 1 < args.length) {
+                    cpuList = args[++i];
+                } else if ("-cpusPerFork".equals(args[i]) && i + 1 < args.length) {
+                    cpusPerFork = Integer.parseInt(args[++i]);
+                } else {
+                    jmhArgs.add(args[i]);
+                }
+            }
+
+            suites = BenchmarkSuite.parse(suiteTags);
+            cpus = cpuList == null ? allCpus() : parseCpuList(cpuList);
+            if (cpus.isEmpty() || cpusPerFork < 1) {
+                throw new IllegalArgumentException("No CPU to run on");
+            }
+
+            jmhOptions = new CommandLineOptions(jmhArgs.toArray(new String[0]));
+            if (jmhOptions.getForkCount().orElse(1) < 1) {
+                throw new IllegalArgumentException("-f 0 would run the benchmarks in this JVM, in parallel and not pinned");
+            }
+            List<String> otherArgs = new ArrayList<>(jmhArgs);
+            otherArgs.removeAll(jmhOptions.getIncludes());
+            jmhOptionsWithoutIncludes = new CommandLineOptions(otherArgs.toArray(new String[0]));
+        } catch (IllegalArgumentException | CommandLineOptionException e) {
+            System.err.println("Error parsing command line: " + e.getMessage());
+            System.err.println(USAGE);
+            System.exit(1);
+            return;
+        }
+
+        List<Job> jobs;
+        try {
+            jobs = findJobs(suites, jmhOptions);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+        List<String> cpuSets = splitCpus(cpus, cpusPerFork);
+        String allCpuSet = toCpuSet(cpus);
+        String jvm = jmhOptions.getJvm().orElse(new File(System.getProperty("java.home"), "bin/java").getAbsolutePath());
+
+        File scriptDir = Files.createTempDirectory("jmh-taskset").toFile();
+        scriptDir.deleteOnExit();
+        // a fingerprint per benchmark and @Param values, written by the forks
+        final File fingerprintDir = Files.createTempDirectory("jmh-fingerprints").toFile();
+
+        List<Job> parallelJobs = new ArrayList<>();
+        List<Job> serialJobs = new ArrayList<>();
+        for (Job job : jobs) {
+            (job.isSerial ? serialJobs : parallelJobs).add(job);
+        }
+        logger.info("Running [{}] benchmarks on [{}] CPU sets of {}, then [{}] serial benchmarks on [{}]",
+                new Object[]{parallelJobs.size(), cpuSets.size(), cpuSets, serialJobs.size(), allCpuSet});
+
+        final BlockingQueue<String> freeCpuSets = new LinkedBlockingQueue<>(cpuSets);
+        ExecutorService executor = Executors.newFixedThreadPool(cpuSets.size());
+        List<Future<?>> futures = new ArrayList<>();
+        for (final Job job : parallelJobs) {
+            final Options parent = jmhOptionsWithoutIncludes;
+            final String javaPath = jvm;
+            final File dir = scriptDir;
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    String cpuSet = freeCpuSets.take();
+                    try {
+                        run(job, cpuSet, parent, javaPath, dir, fingerprintDir);
+                    } finally {
+                        freeCpuSets.put(cpuSet);
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        for (Job job : serialJobs) {
+            run(job, allCpuSet, jmhOptionsWithoutIncludes, jvm, scriptDir, fingerprintDir);
+        }
+
+        try {
+            writeReport(jobs, jmhOptions, fingerprintDir);
+        } finally {
+            FileUtils.deleteDirectory(fingerprintDir);
+        }
+
+        boolean isFailed = false;
+        for (Job job : jobs) {
+            logger.info("[{}] on CPUs [{}]: {}", new Object[]{job.benchmark, job.cpuSet, job.failure == null ? "OK" : job.failure.getMessage()});
+            isFailed |= job.failure != null;
+        }
+        if (isFailed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if a benchmark would not fork, i.e. @Fork(0)
+     */
+    static List<Job> findJobs(List<BenchmarkSuite> suites, CommandLineOptions jmhOptions) {
+        List<String> includes = new ArrayList<>();
+        for (BenchmarkSuite suite : suites) {
+            includes.add(suite.getIncludeRegex(jmhOptions.getIncludes()));
+        }
+
+        Pattern concurrencySuite = Pattern.compile(BenchmarkSuite.CONCURRENCY.getIncludeRegex(Collections.<String>emptyList()));
+        Pattern ioSuite = Pattern.compile(BenchmarkSuite.IO.getIncludeRegex(Collections.<String>emptyList()));
+
+        Map<String, Job> jobs = new LinkedHashMap<>();
+        for (BenchmarkListEntry entry : BenchmarkList.defaultList().find(OutputFormatFactory.createFormatInstance(System.out, VerboseMode.SILENT), includes, jmhOptions.getExcludes())) {
+            if (jmhOptions.getForkCount().orElse(entry.getForks().orElse(1)) < 1) {
+                throw new IllegalArgumentException("[" + entry.getUsername() + "] does not fork, i.e. would run in this JVM, in parallel and not pinned");
+            }
+
+            int threads = jmhOptions.getThreads().orElse(entry.getThreads().orElse(1));
+            int numGroupThreads = 0;
+            for (int groupThreads : entry.getThreadGroups()) {
+                numGroupThreads += groupThreads;
+            }
+
+            boolean isContention = threads != 1 || numGroupThreads > 1 || concurrencySuite.matcher(entry.getUsername()).find();
+            boolean isSerial = isContention || ioSuite.matcher(entry.getUsername()).find();
+
+            Job job = jobs.get(entry.getUsername());
+            if (job == null) {
+                jobs.put(entry.getUsername(), new Job(entry.getUsername(), isSerial));
+            } else if (isSerial && !job.isSerial) {
+                jobs.put(entry.getUsername(), new Job(entry.getUsername(), true));
+            }
+        }
+
+        return new ArrayList<>(jobs.values());
+    }
+
+    private static void run(Job job, String cpuSet, Options parent, String jvm, File scriptDir, File fingerprintDir) {
+        job.cpuSet = cpuSet;
+        try {
+            File resultFile = new File(scriptDir, job.benchmark + "-result.json");
+            resultFile.deleteOnExit();
+
+            Options opt = new OptionsBuilder()
+                    .parent(parent)
+                    .include("^" + Pattern.quote(job.benchmark) + "$")
+                    .jvm(getTasksetScript(jvm, cpuSet, scriptDir).getAbsolutePath())
+                    .addProfiler(EnvironmentFingerprintProfiler.class, "dir=" + fingerprintDir.getAbsolutePath())
+                    .addProfiler(InvocationOverheadProfiler.class)
+                    .shouldFailOnError(parent.shouldFailOnError().orElse(true))
+                    .output(job.benchmark + ".log")
+                    // merged by writeReport()
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(resultFile.getAbsolutePath())
+                    .build();
+
+            logger.info("Running [{}] on CPUs [{}]...", job.benchmark, cpuSet);
+            job.results = new Runner(opt).run();
+            logger.info("Running [{}] on CPUs [{}]...DONE", job.benchmark, cpuSet);
+        } catch (Exception e) {
+            job.failure = e;
+            logger.error("[" + job.benchmark + "] failed", e);
+        }
+    }
+
+    /**
+     * @return script to be run as the JVM of a fork, which pins the fork to the CPU set
+     */
+    private static synchronized File getTasksetScript(String jvm, String cpuSet, File scriptDir) throws IOException {
+        File script = new File(scriptDir, "java-cpus-" + cpuSet.replace(',', '_'));
+        if (!script.exists()) {
+            String content = "#!/bin/sh\nexec taskset -c " + cpuSet + " '" + jvm + "' \"$@\"\n";
+            Files.write(script.toPath(), content.getBytes(StandardCharsets.UTF_8));
+            if (!script.setExecutable(true)) {
+                throw new IOException("Failed to make [" + script + "] executable");
+            }
+            script.deleteOnExit();
+        }
+
+        return script;
+    }
+
+    /**
+     * Write results in order of the jobs, with the CPU set and environment of each, if the report is JSON
+     */
+    private static void writeReport(List<Job> jobs, CommandLineOptions jmhOptions, File fingerprintDir) throws IOException {
+        ResultFormatType resultFormat = jmhOptions.getResultFormat().orElse(ResultFormatType.JSON);
+        String report = jmhOptions.getResult().orElse(DEFAULT_REPORT_PREFIX + "." + resultFormat.toString().toLowerCase(Locale.ROOT));
+
+        List<RunResult> results = new ArrayList<>();
+        List<Job> resultJobs = new ArrayList<>();
+        for (Job job : jobs) {
+            for (RunResult result : job.results) {
+                results.add(result);
+                resultJobs.add(job);
+            }
+        }
+
+        if (resultFormat != ResultFormatType.JSON) {
+            ResultFormatFactory.getInstance(resultFormat, report).writeOut(results);
+            return;
+        }
+
+        ArrayNode json = JsonResults.toJson(results);
+        for (int i = 0; i < json.size(); i++) {
+            ((ObjectNode) json.get(i)).put("cpuSet", resultJobs.get(i).cpuSet);
+        }
+        JsonResults.putEnvironments(json, fingerprintDir);
+        JsonResults.write(json, new File(report));
+
+        logger.info("Merged [{}] results into [{}]", results.size(), report);
+    }
+
+    private static List<Integer> allCpus() {
+        List<Integer> cpus = new ArrayList<>();
+        for (int cpu = 0; cpu < Runtime.getRuntime().availableProcessors(); cpu++) {
+            cpus.add(cpu);
+        }
+
+        return cpus;
+    }
+
+    /**
+     * @param cpuList i.e. "0-3,8,10-11", as of taskset
+     */
+    static List<Integer> parseCpuList(String cpuList) {
+        Set<Integer> cpus = new TreeSet<>();
+        for (String range : StringUtils.split(cpuList, ',')) {
+            String[] bounds = StringUtils.split(range.trim(), '-');
+            try {
+                int from = Integer.parseInt(bounds[0].trim());
+                int to = bounds.length > 1 ? Integer.parseInt(bounds[1].trim()) : from;
+                for (int cpu = from; cpu <= to; cpu++) {
+                    cpus.add(cpu);
+                }
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid CPU list [" + cpuList + "]");
+            }
+        }
+
+        return new ArrayList<>(cpus);
+    }
+
+    /**
+     * @return disjoint CPU sets of {@code cpusPerFork} CPUs, the remainder is left unused; a single set of all CPUs if
+     * there are not enough
+     */
+    static List<String> splitCpus(List<Integer> cpus, int cpusPerFork) {
+        List<String> cpuSets = new ArrayList<>();
+        for (int from = 0; from + cpusPerFork <= cpus.size(); from += cpusPerFork) {
+            cpuSets.add(toCpuSet(cpus.subList(from, from + cpusPerFork)));
+        }
+
+        if (cpuSets.isEmpty()) {
+            cpuSets.add(toCpuSet(cpus));
+        }
+
+        return cpuSets;
+    }
+
+    static String toCpuSet(List<Integer> cpus) {
+        return StringUtils.join(cpus, ",");
+    }
+}
@@ -0,0 +1,445 @@
+package com.github.mcfongtw;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.Getter;
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.*;
+
+/**
+ * Explore a numeric @Param as a range instead of the few values of its annotation, i.e. to find the buffer size from
+ * which mmap beats FileChannel:
+ *
+ * <pre>
+ * java -cp BenchmarkRunner-jmh-1.20.jar com.github.mcfongtw.ParamSpaceExplorer -param bufferSize=32:1048576 -f 1 \
+ *      'SequentialReplicationBenchmark.copyWith(Mmap|FileChannel)$'
+ * </pre>
+ *
+ * <ul>
+ *     <li>-param: name=from:to, the range to explore</li>
+ *     <li>-points: number of values of the first, coarse round, default 5</li>
+ *     <li>-scale: log (default) or linear spacing of the values</li>
+ *     <li>-rounds: max number of bisection rounds, default 4</li>
+ *     <li>-slope: change of slope which makes a knee, default 0.5; in log-log for -scale log, i.e. O(n) to O(n^1.5)</li>
+ *     <li>-rff: JSON report, default {@code paramspace-result.json}</li>
+ *     <li>any other argument is a JMH option or benchmark regexp</li>
+ * </ul>
+ *
+ * Every round runs the matching benchmarks at the new values only. An interval between two adjacent values is bisected
+ * in the next round if two benchmarks swap ranks across it by more than their score errors (a crossover), or if a
+ * benchmark changes slope at either end (a knee), until the values are adjacent integers or the rounds run out. The
+ * crossovers, interpolated within their last interval, and the knees are then reported.
+ */
+public class ParamSpaceExplorer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParamSpaceExplorer.class);
+
+    private static final String USAGE = "Usage: ParamSpaceExplorer -param <name>=<from>:<to> [-points <n>] [-scale log|linear] [-rounds <n>] [-slope <change>] [-rff <file>] [JMH options] [regexp*]";
+
+    private static final int DEFAULT_POINTS = 5;
+
+    private static final int DEFAULT_ROUNDS = 4;
+
+    private static final double DEFAULT_SLOPE_CHANGE = 0.5;
+
+    private static final String DEFAULT_REPORT = "paramspace-result.json";
+
+    /**
+     * Scores of one benchmark along the explored param, the other params being fixed
+     */
+    @Getter
+    public static class Series {
+
+        private final String key;
+
+        /**
+         * Mode and other params: only series of the same group are compared
+         */
+        private final String group;
+
+        private final boolean isHigherBetter;
+
+        private final SortedMap<Long, Double> scores = new TreeMap<>();
+
+        /**
+         * Score errors, NaN if unknown, i.e. a single iteration
+         */
+        private final SortedMap<Long, Double> scoreErrors = new TreeMap<>();
+
+        Series(String key, String group, boolean isHigherBetter) {
+            this.key = key;
+            this.group = group;
+            this.isHigherBetter = isHigherBetter;
+        }
+
+        /**
+         * @return true if this scores better than other at value
+         */
+        boolean isBetter(Series other, long value) {
+            double score = scores.get(value);
+            double otherScore = other.scores.get(value);
+
+            return isHigherBetter ? score > otherScore : score < otherScore;
+        }
+
+        /**
+         * @return true if this and other score apart at value, by more than their errors if known
+         */
+        boolean isDifferent(Series other, long value) {
+            double gap = Math.abs(scores.get(value) - other.scores.get(value));
+            Double error = scoreErrors.get(value);
+            Double otherError = other.scoreErrors.get(value);
+            if (error != null && otherError != null && gap <= error + otherError) {
+                return false;
+            }
+
+            return gap > 0;
+        }
+    }
+
+    /**
+     * Two benchmarks swapping ranks between lower and upper
+     */
+    @Getter
+    public static class Crossover {
+
+        private final String below;
+
+        private final String above;
+
+        private final long lower;
+
+        private final long upper;
+
+        /**
+         * Linear interpolation of where the scores are equal
+         */
+        private final double estimate;
+
+        Crossover(String below, String above, long lower, long upper, double estimate) {
+            this.below = below;
+            this.above = above;
+            this.lower = lower;
+            this.upper = upper;
+            this.estimate = estimate;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s is better below ~%.0f, %s above (between %d and %d)", below, estimate, above, lower, upper);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String param = null;
+        long from = 0;
+        long to = 0;
+        int numPoints = DEFAULT_POINTS;
+        boolean isLog = true;
+        int maxRounds = DEFAULT_ROUNDS;
+        double slopeChange = DEFAULT_SLOPE_CHANGE;
+        String report = DEFAULT_REPORT;
+        List<String> jmhArgs = new ArrayList<>();
+
+        CommandLineOptions jmhOptions;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if ("-param".equals(args[i]) && i + 1 < args.length) {
+                    String[] nameRange = StringUtils.split(args[++i], "=", 2);
+                    String[] range = nameRange.length == 2 ? StringUtils.split(nameRange[1], ':') : new String[0];
+                    if (range.length != 2) {
+                        throw new IllegalArgumentException("Invalid range [" + args[i] + "], expected <name>=<from>:<to>");
+                    }
+                    param = nameRange[0];
+                    from = Long.parseLong(range[0].trim());
+                    to = Long.parseLong(range[1].trim());
+                } else if ("-points".equals(args[i]) && i + 1 < args.length) {
+                    numPoints = Integer.parseInt(args[++i]);
+                } else if ("-scale".equals(args[i]) && i + 1 < args.length) {
+                    String scale = args[++i];
+                    if (!"log".equals(scale) && !"linear".equals(scale)) {
+                        throw new IllegalArgumentException("Invalid scale [" + scale + "], expected log / linear");
+                    }
+                    isLog = "log".equals(scale);
+                } else if ("-rounds".equals(args[i]) && i + 1 < args.length) {
+                    maxRounds = Integer.parseInt(args[++i]);
+                } else if ("-slope".equals(args[i]) && i + 1 < args.length) {
+                    slopeChange = Double.parseDouble(args[++i]);
+                } else if ("-rff".equals(args[i]) && i + 1 < args.length) {
+                    report = args[++i];
+                } else {
+                    jmhArgs.add(args[i]);
+                }
+            }
+
+            if (param == null || from >= to || (isLog && from < 1) || numPoints < 2) {
+                throw new IllegalArgumentException("Expected -param <name>=<from>:<to> with from < to, and from >= 1 on a log scale");
+            }
+            jmhOptions = new CommandLineOptions(jmhArgs.toArray(new String[0]));
+        } catch (IllegalArgumentException | CommandLineOptionException e) {
+            System.err.println("Error parsing command line: " + e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        Map<String, Series> series = new LinkedHashMap<>();
+        SortedSet<Long> values = initialValues(from, to, numPoints, isLog);
+        for (int round = 0; round <= maxRounds && !values.isEmpty(); round++) {
+            logger.info("Round [{}]: {} = {}", new Object[]{round, param, values});
+            run(jmhOptions, param, values, series);
+            values = nextValues(series.values(), isLog, slopeChange);
+        }
+
+        List<Crossover> crossovers = findCrossovers(series.values());
+        Map<String, List<Long>> knees = new LinkedHashMap<>();
+        for (Series s : series.values()) {
+            knees.put(s.getKey(), findKnees(s, isLog, slopeChange));
+        }
+
+        printReport(param, series.values(), crossovers, knees, System.out);
+        writeReport(param, series.values(), crossovers, knees, new File(report));
+        logger.info("Param space of [{}] written to [{}]", param, report);
+    }
+
+    private static void run(CommandLineOptions jmhOptions, String param, SortedSet<Long> values, Map<String, Series> series) throws Exception {
+        String[] paramValues = new String[values.size()];
+        int i = 0;
+        for (long value : values) {
+            paramValues[i++] = String.valueOf(value);
+        }
+
+        Options opt = new OptionsBuilder()
+                .parent(jmhOptions)
+                .param(param, paramValues)
+                .shouldFailOnError(jmhOptions.shouldFailOnError().orElse(true))
+                .build();
+
+        for (RunResult result : new Runner(opt).run()) {
+            BenchmarkParams params = result.getParams();
+            String value = params.getParam(param);
+            if (value == null) {
+                continue;
+            }
+
+            SortedMap<String, String> otherParams = new TreeMap<>();
+            for (String key : params.getParamsKeys()) {
+                if (!key.equals(param)) {
+                    otherParams.put(key, params.getParam(key));
+                }
+            }
+
+            String group = "[" + params.getMode().shortLabel() + "]" + (otherParams.isEmpty() ? "" : " " + otherParams);
+            String key = params.getBenchmark() + " " + group;
+            Series s = series.get(key);
+            if (s == null) {
+                s = new Series(key, group, params.getMode().shortLabel().equals("thrpt"));
+                series.put(key, s);
+            }
+            s.scores.put(Long.parseLong(value), result.getPrimaryResult().getScore());
+            s.scoreErrors.put(Long.parseLong(value), result.getPrimaryResult().getScoreError());
+        }
+    }
+
+    static SortedSet<Long> initialValues(long from, long to, int numPoints, boolean isLog) {
+        SortedSet<Long> values = new TreeSet<>();
+        for (int i = 0; i < numPoints; i++) {
+            double fraction = (double) i / (numPoints - 1);
+            values.add(isLog ?
+                    Math.round(Math.exp(Math.log(from) + fraction * (Math.log(to) - Math.log(from)))) :
+                    Math.round(from + fraction * (to - from)));
+        }
+
+        return values;
+    }
+
+    /**
+     * @return midpoints of the intervals with a crossover or a knee, not explored yet
+     */
+    static SortedSet<Long> nextValues(Collection<Series> series, boolean isLog, double slopeChange) {
+        SortedSet<Long> values = new TreeSet<>();
+
+        TreeSet<Long> allExplored = new TreeSet<>();
+        for (Series s : series) {
+            allExplored.addAll(s.scores.keySet());
+        }
+        for (Crossover crossover : findCrossovers(series)) {
+            // both ends of the values within the score errors, if any, or else the single interval
+            addMidpoint(values, crossover.getLower(), allExplored.higher(crossover.getLower()), isLog);
+            addMidpoint(values, allExplored.lower(crossover.getUpper()), crossover.getUpper(), isLog);
+        }
+
+        for (Series s : series) {
+            List<Long> explored = new ArrayList<>(s.scores.keySet());
+            for (long knee : findKnees(s, isLog, slopeChange)) {
+                int index = explored.indexOf(knee);
+                addMidpoint(values, explored.get(index - 1), knee, isLog);
+                addMidpoint(values, knee, explored.get(index + 1), isLog);
+            }
+        }
+
+        for (Series s : series) {
+            values.removeAll(s.scores.keySet());
+        }
+
+        return values;
+    }
+
+    private static void addMidpoint(Set<Long> values, long lower, long upper, boolean isLog) {
+        long midpoint = isLog ? Math.round(Math.sqrt((double) lower * upper)) : (lower + upper) / 2;
+        if (midpoint > lower && midpoint < upper) {
+            values.add(midpoint);
+        }
+    }
+
+    /**
+     * @return for each pair of series of the same group, the values between which they swap ranks, by more than the score
+     * errors on both sides; values in between, if any, score within the errors
+     */
+    static List<Crossover> findCrossovers(Collection<Series> series) {
+        List<Crossover> crossovers = new ArrayList<>();
+
+        List<Series> all = new ArrayList<>(series);
+        for (int i = 0; i < all.size(); i++) {
+            for (int j = i + 1; j < all.size(); j++) {
+                Series a = all.get(i);
+                Series b = all.get(j);
+                if (!a.getGroup().equals(b.getGroup())) {
+                    continue;
+                }
+
+                SortedSet<Long> common = new TreeSet<>(a.scores.keySet());
+                common.retainAll(b.scores.keySet());
+
+                // values within the score errors are skipped, i.e. the crossover spans them until bisected out
+                Long previous = null;
+                for (long value : common) {
+                    if (!a.isDifferent(b, value)) {
+                        continue;
+                    }
+                    if (previous != null && a.isBetter(b, previous) != a.isBetter(b, value)) {
+                        double lowerDiff = a.scores.get(previous) - b.scores.get(previous);
+                        double upperDiff = a.scores.get(value) - b.scores.get(value);
+                        double estimate = previous + (value - previous) * lowerDiff / (lowerDiff - upperDiff);
+
+                        boolean isABetterBelow = a.isBetter(b, previous);
+                        crossovers.add(new Crossover(isABetterBelow ? a.getKey() : b.getKey(), isABetterBelow ? b.getKey() : a.getKey(),
+                                previous, value, estimate));
+                    }
+                    previous = value;
+                }
+            }
+        }
+
+        return crossovers;
+    }
+
+    /**
+     * @return explored values where the slope of the scores changes by more than slopeChange, in log-log for a log scale,
+     * or of log(score) over the normalized value for a linear one. A change of score within the score errors is flat.
+     */
+    static List<Long> findKnees(Series series, boolean isLog, double slopeChange) {
+        List<Long> knees = new ArrayList<>();
+
+        List<Long> values = new ArrayList<>(series.scores.keySet());
+        if (values.size() < 3) {
+            return knees;
+        }
+        double range = values.get(values.size() - 1) - values.get(0);
+
+        for (int i = 1; i + 1 < values.size(); i++) {
+            double before = slope(series, values.get(i - 1), values.get(i), isLog, range);
+            double after = slope(series, values.get(i), values.get(i + 1), isLog, range);
+            if (!Double.isNaN(before) && !Double.isNaN(after) && Math.abs(after - before) > slopeChange) {
+                knees.add(values.get(i));
+            }
+        }
+
+        return knees;
+    }
+
+    private static double slope(Series series, long lower, long upper, boolean isLog, double range) {
+        double lowerScore = series.scores.get(lower);
+        double upperScore = series.scores.get(upper);
+        if (lowerScore <= 0 || upperScore <= 0 || (isLog && lower <= 0)) {
+            return Double.NaN;
+        }
+
+        Double lowerError = series.scoreErrors.get(lower);
+        Double upperError = series.scoreErrors.get(upper);
+        if (lowerError != null && upperError != null && Math.abs(upperScore - lowerScore) <= lowerError + upperError) {
+            return 0;
+        }
+
+        double dx = isLog ? Math.log(upper) - Math.log(lower) : (upper - lower) / range;
+
+        return (Math.log(upperScore) - Math.log(lowerScore)) / dx;
+    }
+
+    private static void printReport(String param, Collection<Series> series, List<Crossover> crossovers, Map<String, List<Long>> knees, PrintStream out) {
+        out.println();
+        for (Series s : series) {
+            out.println("# " + s.getKey());
+            out.printf("%16s %16s%n", param, "Score");
+            for (Map.Entry<Long, Double> score : s.scores.entrySet()) {
+                out.printf("%16d %16.3f%s%n", score.getKey(), score.getValue(), knees.get(s.getKey()).contains(score.getKey()) ? "  knee" : "");
+            }
+            out.println();
+        }
+
+        out.println("# Crossovers of " + param);
+        if (crossovers.isEmpty()) {
+            out.println("none");
+        }
+        for (Crossover crossover : crossovers) {
+            out.println(crossover);
+        }
+    }
+
+    private static void writeReport(String param, Collection<Series> series, List<Crossover> crossovers, Map<String, List<Long>> knees, File file) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+
+        ObjectNode root = mapper.createObjectNode();
+        root.put("param", param);
+
+        ArrayNode seriesNode = root.putArray("series");
+        for (Series s : series) {
+            ObjectNode node = seriesNode.addObject();
+            node.put("benchmark", s.getKey());
+            ObjectNode scores = node.putObject("scores");
+            for (Map.Entry<Long, Double> score : s.scores.entrySet()) {
+                scores.put(String.valueOf(score.getKey()), score.getValue());
+            }
+            ArrayNode kneesNode = node.putArray("knees");
+            for (long knee : knees.get(s.getKey())) {
+                kneesNode.add(knee);
+            }
+        }
+
+        ArrayNode crossoversNode = root.putArray("crossovers");
+        for (Crossover crossover : crossovers) {
+            ObjectNode node = crossoversNode.addObject();
+            node.put("below", crossover.getBelow());
+            node.put("above", crossover.getAbove());
+            node.put("lower", crossover.getLower());
+            node.put("upper", crossover.getUpper());
+            node.put("estimate", crossover.getEstimate());
+        }
+
+        mapper.writerWithDefaultPrettyPrinter().writeValue(file, root);
+    }
+}
@@ -1,5 +1,6 @@
 package com.github.mcfongtw;
 
+import com.github.mcfongtw.profiler.StackSamplingProfiler;
 import com.lmax.disruptor.EventFactory;
 import com.lmax.disruptor.EventHandler;
 import com.lmax.disruptor.RingBuffer;
@@ -12,6 +13,7 @@ import org.openjdk.jmh.results.RunResult;
 import org.openjdk.jmh.results.format.ResultFormatType;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
 import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
 
@@ -192,12 +194,15 @@ public class RingBufferBenchmark extends BenchmarkBase {
         //TODO: Need to recreate table via command line:
         //curl -XPOST 'http://localhost:8086/query' --data-urlencode 'q=DROP DATABASE "demo"'
         //curl -XPOST 'http://localhost:8086/query' --data-urlencode 'q=CREATE DATABASE "demo"'
-        Options opt = new OptionsBuilder()
+        ChainedOptionsBuilder builder = new OptionsBuilder()
                 .include(RingBufferBenchmark.class.getSimpleName())
                 .addProfiler(GCProfiler.class)
                 .resultFormat(ResultFormatType.JSON)
-                .result("RingBufferBenchmark-result.json")
-                .build();
+                .result("RingBufferBenchmark-result.json");
+        if (StackSamplingProfiler.isEnabled()) {
+            builder.addProfiler(StackSamplingProfiler.class);
+        }
+        Options opt = builder.build();
 
         Collection<RunResult> runResultCollection = new Runner(opt).run();
     }
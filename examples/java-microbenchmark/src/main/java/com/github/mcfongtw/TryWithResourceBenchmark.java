@@ -1,6 +1,6 @@
 package com.github.mcfongtw;
 
-import com.google.common.io.Files;
+import com.github.mcfongtw.hook.TempDirHook;
 import org.apache.commons.io.FileUtils;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.profile.GCProfiler;
@@ -32,33 +32,29 @@ public class TryWithResourceBenchmark extends BenchmarkBase {
 
         File tryCatchFinallyTempDir;
 
+        private final TempDirHook tryWithResourceTempDirHook = hooks.register(Level.Trial, new TempDirHook());
+
+        private final TempDirHook tryCatchFinallyTempDirHook = hooks.register(Level.Trial, new TempDirHook());
+
         int count = 1;
 
         @Setup(Level.Trial)
         @Override
         public void doTrialSetUp() throws Exception {
             super.doTrialSetUp();
-            tryWithResourceTempDir = Files.createTempDir();
+            tryWithResourceTempDir = tryWithResourceTempDirHook.getTempDir();
             new File(tryWithResourceTempDir.getAbsolutePath() + "/in/").mkdirs();
             new File(tryWithResourceTempDir.getAbsolutePath() + "/out/").mkdirs();
-            System.out.println("Temp dir created at [" + tryWithResourceTempDir.getAbsolutePath() + "]");
 
-            tryCatchFinallyTempDir = Files.createTempDir();
+            tryCatchFinallyTempDir = tryCatchFinallyTempDirHook.getTempDir();
             new File(tryCatchFinallyTempDir.getAbsolutePath() + "/in/").mkdirs();
             new File(tryCatchFinallyTempDir.getAbsolutePath() + "/out/").mkdirs();
-            System.out.println("Temp dir created at [" + tryCatchFinallyTempDir.getAbsolutePath() + "]");
         }
 
         @TearDown(Level.Trial)
         @Override
         public void doTrialTearDown() throws Exception {
             super.doTrialTearDown();
-
-            FileUtils.deleteDirectory(tryWithResourceTempDir);
-            System.out.println("Temp dir deleted at [" + tryWithResourceTempDir.getAbsolutePath() + "]");
-
-            FileUtils.deleteDirectory(tryCatchFinallyTempDir);
-            System.out.println("Temp dir deleted at [" + tryCatchFinallyTempDir.getAbsolutePath() + "]");
         }
 
         @Setup(Level.Iteration)
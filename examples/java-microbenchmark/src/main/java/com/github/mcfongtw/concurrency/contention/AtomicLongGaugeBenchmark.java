@@ -0,0 +1,143 @@
+package com.github.mcfongtw.concurrency.contention;
+
+import com.codahale.metrics.Counter;
+import com.github.mcfongtw.BenchmarkBase;
+import com.github.mcfongtw.SimpleBenchmarkLifecycle;
+import com.github.mcfongtw.metrics.AtomicLongGauge;
+import com.github.mcfongtw.metrics.MetricUtils;
+import lombok.Getter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * "Set absolute value" on a shared metric:
+ *  - IncCounter: MetricUtils.incCounter(), i.e. Counter.getCount() + Counter.inc(delta)
+ *  - AtomicGauge: AtomicLongGauge.set()
+ *  - AtomicGaugeMax: AtomicLongGauge.updateMax(), CAS loop
+ */
+@BenchmarkMode({Mode.Throughput})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Measurement(iterations = 10)
+@Warmup(iterations = 5)
+@Fork(3)
+public class AtomicLongGaugeBenchmark extends BenchmarkBase {
+
+    @Getter
+    @State(Scope.Benchmark)
+    public static class BenchmarkState extends SimpleBenchmarkLifecycle {
+
+        private Counter counter = new Counter();
+
+        private AtomicLongGauge gauge = new AtomicLongGauge();
+
+        @Setup(Level.Trial)
+        @Override
+        public void doTrialSetUp() throws Exception {
+            super.doTrialSetUp();
+        }
+
+        @TearDown(Level.Trial)
+        @Override
+        public void doTrialTearDown() throws Exception {
+            super.doTrialTearDown();
+        }
+
+        @Setup(Level.Iteration)
+        @Override
+        public void doIterationSetup() throws Exception {
+            super.doIterationSetup();
+        }
+
+        @TearDown(Level.Iteration)
+        @Override
+        public void doIterationTearDown() throws Exception {
+            super.doIterationTearDown();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        public long value = 0;
+    }
+
+    /////////////////
+
+    @Benchmark
+    @Threads(1)
+    @SuppressWarnings("deprecation")
+    public void measureIncCounter_1(BenchmarkState state, ThreadState threadState) {
+        MetricUtils.incCounter(state.getCounter(), threadState.value++);
+    }
+
+    @Benchmark
+    @Threads(2)
+    @SuppressWarnings("deprecation")
+    public void measureIncCounter_2(BenchmarkState state, ThreadState threadState) {
+        MetricUtils.incCounter(state.getCounter(), threadState.value++);
+    }
+
+    @Benchmark
+    @Threads(4)
+    @SuppressWarnings("deprecation")
+    public void measureIncCounter_4(BenchmarkState state, ThreadState threadState) {
+        MetricUtils.incCounter(state.getCounter(), threadState.value++);
+    }
+
+    /////////////////
+
+    @Benchmark
+    @Threads(1)
+    public void measureAtomicGauge_1(BenchmarkState state, ThreadState threadState) {
+        state.getGauge().set(threadState.value++);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public void measureAtomicGauge_2(BenchmarkState state, ThreadState threadState) {
+        state.getGauge().set(threadState.value++);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void measureAtomicGauge_4(BenchmarkState state, ThreadState threadState) {
+        state.getGauge().set(threadState.value++);
+    }
+
+    /////////////////
+
+    @Benchmark
+    @Threads(1)
+    public long measureAtomicGaugeMax_1(BenchmarkState state, ThreadState threadState) {
+        return state.getGauge().updateMax(threadState.value++);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public long measureAtomicGaugeMax_2(BenchmarkState state, ThreadState threadState) {
+        return state.getGauge().updateMax(threadState.value++);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long measureAtomicGaugeMax_4(BenchmarkState state, ThreadState threadState) {
+        return state.getGauge().updateMax(threadState.value++);
+    }
+
+    /////////////////
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(AtomicLongGaugeBenchmark.class.getSimpleName())
+                .resultFormat(ResultFormatType.JSON)
+                .result("AtomicLongGaugeBenchmark-result.json")
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,165 @@
+package com.github.mcfongtw.concurrency.contention;
+
+import com.github.mcfongtw.BenchmarkBase;
+import com.github.mcfongtw.SimpleBenchmarkLifecycle;
+import com.github.mcfongtw.metrics.HdrHistogramReservoir;
+import com.github.mcfongtw.metrics.LatencyMetric;
+import com.github.mcfongtw.metrics.StripedHdrHistogramReservoir;
+import lombok.Getter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * One LatencyMetric shared by 1 ~ 32 threads:
+ *  - Default: ExponentiallyDecayingReservoir, guarded by a read-write lock
+ *  - Hdr: single HdrHistogram Recorder, shared by all writers
+ *  - Striped: one SingleWriterRecorder per thread, merged at snapshot time
+ */
+@BenchmarkMode({Mode.Throughput})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Measurement(iterations = 10)
+@Warmup(iterations = 5)
+@Fork(3)
+public class LatencyMetricContentionBenchmark extends BenchmarkBase {
+
+    @Getter
+    @State(Scope.Benchmark)
+    public static class BenchmarkState extends SimpleBenchmarkLifecycle {
+
+        private LatencyMetric defaultLatencyMetric = new LatencyMetric(LatencyMetricContentionBenchmark.class.getName() + ".Default");
+
+        private LatencyMetric hdrLatencyMetric = new LatencyMetric(LatencyMetricContentionBenchmark.class.getName() + ".Hdr",
+                new HdrHistogramReservoir());
+
+        private LatencyMetric stripedLatencyMetric = new LatencyMetric(LatencyMetricContentionBenchmark.class.getName() + ".Striped",
+                new StripedHdrHistogramReservoir());
+
+        @Setup(Level.Trial)
+        @Override
+        public void doTrialSetUp() throws Exception {
+            super.doTrialSetUp();
+        }
+
+        @TearDown(Level.Trial)
+        @Override
+        public void doTrialTearDown() throws Exception {
+            super.doTrialTearDown();
+            logger.info("Default: [{}] samples; Hdr: [{}] samples; Striped: [{}] samples",
+                    new Object[]{defaultLatencyMetric.getSnapshot().size(), hdrLatencyMetric.getSnapshot().size(), stripedLatencyMetric.getSnapshot().size()});
+        }
+
+        @Setup(Level.Iteration)
+        @Override
+        public void doIterationSetup() throws Exception {
+            super.doIterationSetup();
+        }
+
+        @TearDown(Level.Iteration)
+        @Override
+        public void doIterationTearDown() throws Exception {
+            super.doIterationTearDown();
+        }
+    }
+
+    private static long nextLatencyInNanos() {
+        // 1 micros ~ 1 millis
+        return ThreadLocalRandom.current().nextLong(1_000, 1_000_000);
+    }
+
+    /////////////////
+
+    @Benchmark
+    @Threads(1)
+    public void measureDefaultReservoir_1(BenchmarkState state) {
+        state.getDefaultLatencyMetric().addTime(nextLatencyInNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void measureDefaultReservoir_4(BenchmarkState state) {
+        state.getDefaultLatencyMetric().addTime(nextLatencyInNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void measureDefaultReservoir_16(BenchmarkState state) {
+        state.getDefaultLatencyMetric().addTime(nextLatencyInNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void measureDefaultReservoir_32(BenchmarkState state) {
+        state.getDefaultLatencyMetric().addTime(nextLatencyInNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /////////////////
+
+    @Benchmark
+    @Threads(1)
+    public void measureHdrReservoir_1(BenchmarkState state) {
+        state.getHdrLatencyMetric().addTime(nextLatencyInNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void measureHdrReservoir_4(BenchmarkState state) {
+        state.getHdrLatencyMetric().addTime(nextLatencyInNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void measureHdrReservoir_16(BenchmarkState state) {
+        state.getHdrLatencyMetric().addTime(nextLatencyInNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void measureHdrReservoir_32(BenchmarkState state) {
+        state.getHdrLatencyMetric().addTime(nextLatencyInNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /////////////////
+
+    @Benchmark
+    @Threads(1)
+    public void measureStripedReservoir_1(BenchmarkState state) {
+        state.getStripedLatencyMetric().addTime(nextLatencyInNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void measureStripedReservoir_4(BenchmarkState state) {
+        state.getStripedLatencyMetric().addTime(nextLatencyInNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void measureStripedReservoir_16(BenchmarkState state) {
+        state.getStripedLatencyMetric().addTime(nextLatencyInNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void measureStripedReservoir_32(BenchmarkState state) {
+        state.getStripedLatencyMetric().addTime(nextLatencyInNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /////////////////
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(LatencyMetricContentionBenchmark.class.getSimpleName())
+                .resultFormat(ResultFormatType.JSON)
+                .result("LatencyMetricContentionBenchmark-result.json")
+                .build();
+
+        new Runner(opt).run();
+    }
+}
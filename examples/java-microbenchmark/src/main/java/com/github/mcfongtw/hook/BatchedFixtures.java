@@ -0,0 +1,65 @@
+package com.github.mcfongtw.hook;
+
+import com.github.mcfongtw.LifecycleHook;
+
+/**
+ * Fixtures pre-built on set up, i.e. per iteration, and handed out one by one with {@link #next()}, instead of
+ * building each one in a Level.Invocation fixture.
+ *
+ * A benchmark must not call {@link #next()} more than {@code batchSize} times per iteration, so register it at
+ * Level.Iteration, and run the benchmark in {@code Mode.SingleShotTime} with {@code batchSize} of both @Warmup and
+ * \@Measurement set to the same size. NOTE: the score is then the time of a whole batch.
+ */
+public class BatchedFixtures<T> implements LifecycleHook {
+
+    public interface Factory<T> {
+        T newFixture() throws Exception;
+    }
+
+    private final Object[] fixtures;
+
+    private final Factory<T> factory;
+
+    private int nextIndex;
+
+    public BatchedFixtures(int batchSize, Factory<T> factory) {
+        this.fixtures = new Object[batchSize];
+        this.factory = factory;
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        for (int i = 0; i < fixtures.length; i++) {
+            fixtures[i] = factory.newFixture();
+        }
+        nextIndex = 0;
+    }
+
+    /**
+     * @throws IllegalStateException if the batch is used up
+     */
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (nextIndex >= fixtures.length) {
+            throw new IllegalStateException("All [" + fixtures.length + "] fixtures used, batch size of the benchmark is too large");
+        }
+
+        T fixture = (T) fixtures[nextIndex];
+        // used fixtures can be collected as soon as possible
+        fixtures[nextIndex++] = null;
+
+        return fixture;
+    }
+
+    public int getBatchSize() {
+        return fixtures.length;
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        for (int i = nextIndex; i < fixtures.length; i++) {
+            fixtures[i] = null;
+        }
+        nextIndex = 0;
+    }
+}
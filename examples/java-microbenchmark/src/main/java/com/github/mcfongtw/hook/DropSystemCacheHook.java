@@ -0,0 +1,38 @@
+package com.github.mcfongtw.hook;
+
+import com.github.mcfongtw.LifecycleHook;
+import com.github.mcfongtw.utils.SudoExecutors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * On tear down, sync dirty pages to disk and drop page cache, dentries and inodes, so that the next iteration reads
+ * from storage rather than from memory. Requires sudo; register it only if a password is given. System-wide, see
+ * {@link EvictPageCacheHook} to evict the benchmark's own files only.
+ */
+public class DropSystemCacheHook implements LifecycleHook {
+
+    private static final Logger logger = LoggerFactory.getLogger(DropSystemCacheHook.class);
+
+    private final String sudoPassword;
+
+    public DropSystemCacheHook(String sudoPassword) {
+        this.sudoPassword = sudoPassword;
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        //no-op
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        logger.debug("Start to sync page cache to disk...");
+        SudoExecutors.exec("sync", sudoPassword);
+        logger.debug("Start to sync page cache to disk...DONE");
+
+        logger.debug("Start to drop free pagecache, dentries and inodes...");
+        SudoExecutors.exec("echo 3 > /proc/sys/vm/drop_caches", sudoPassword);
+        logger.debug("Start to drop free pagecache, dentries and inodes...DONE");
+    }
+}
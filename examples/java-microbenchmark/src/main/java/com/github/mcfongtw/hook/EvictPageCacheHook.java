@@ -0,0 +1,72 @@
+package com.github.mcfongtw.hook;
+
+import com.github.mcfongtw.LifecycleHook;
+import com.github.mcfongtw.jni.utils.NativeSystemCaller;
+import com.github.mcfongtw.jni.utils.PageCacheUtils;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * On set up, sync and evict the files of a temp dir from the page cache, then check with mincore() that none of their
+ * pages is still resident, so that each iteration, the first included, reads the benchmark's own files from storage.
+ * Unlike {@link DropSystemCacheHook}, this needs neither root nor a shell, takes milliseconds, and leaves the page
+ * cache of other processes alone.
+ *
+ * Pages of a file still mapped, i.e. by a MappedByteBuffer not yet collected, cannot be evicted and are reported.
+ */
+public class EvictPageCacheHook implements LifecycleHook {
+
+    private static final Logger logger = LoggerFactory.getLogger(EvictPageCacheHook.class);
+
+    private final TempDirHook tempDirHook;
+
+    private long residentPages;
+
+    public EvictPageCacheHook(TempDirHook tempDirHook) {
+        this.tempDirHook = tempDirHook;
+
+        // fail on construction of the state, rather than on the first iteration, if libnative-jni is missing
+        NativeSystemCaller.getpagesize();
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        File tempDir = tempDirHook.getTempDir();
+        if (tempDir == null) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        int evictedFiles = 0;
+        residentPages = 0;
+        for (File file : FileUtils.listFiles(tempDir, null, true)) {
+            PageCacheUtils.evict(file);
+            evictedFiles++;
+
+            long fileResidentPages = PageCacheUtils.getResidentPages(file);
+            if (fileResidentPages > 0) {
+                logger.warn("[{}] of [{}] pages of [{}] still resident after eviction", new Object[]{fileResidentPages, PageCacheUtils.getPages(file), file});
+            }
+            residentPages += fileResidentPages;
+        }
+
+        logger.debug("Evicted [{}] files of [{}] from page cache in [{}] us", new Object[]{evictedFiles, tempDir,
+                TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start)});
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        //no-op
+    }
+
+    /**
+     * @return pages left resident by the last eviction, 0 if all files are cold
+     */
+    public long getResidentPages() {
+        return residentPages;
+    }
+}
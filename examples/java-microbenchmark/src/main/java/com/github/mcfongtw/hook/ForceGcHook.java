@@ -0,0 +1,49 @@
+package com.github.mcfongtw.hook;
+
+import com.github.mcfongtw.LifecycleHook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * On set up, run GC and finalization, so that garbage of the previous run is not collected during this one. Same as
+ * JMH -gc true, but for a single state.
+ */
+public class ForceGcHook implements LifecycleHook {
+
+    private static final Logger logger = LoggerFactory.getLogger(ForceGcHook.class);
+
+    private static final long MAX_WAIT_IN_MILLIS = 1000;
+
+    @Override
+    public void setUp() throws Exception {
+        long beforeGcCount = getGcCount();
+        long deadline = System.currentTimeMillis() + MAX_WAIT_IN_MILLIS;
+
+        System.gc();
+        System.runFinalization();
+
+        // System.gc() is a hint, i.e. concurrent collectors may still be running
+        while (getGcCount() == beforeGcCount && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        logger.debug("Forced [{}] GC", getGcCount() - beforeGcCount);
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        //no-op
+    }
+
+    private static long getGcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(bean.getCollectionCount(), 0);
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.mcfongtw.hook;
+
+import com.github.mcfongtw.BenchmarkLifecycle;
+import com.github.mcfongtw.LifecycleHook;
+import com.github.mcfongtw.SimpleBenchmarkLifecycle;
+import com.github.mcfongtw.profiler.InvocationOverheadProfiler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+
+/**
+ * Measure what a Level.Invocation fixture adds per invocation on set up, and report it to the
+ * {@link InvocationOverheadProfiler}, as secondary result {@code invocation.overhead}.
+ *
+ * With Level.Invocation fixtures, JMH times every invocation on its own, i.e. a pair of System.nanoTime() calls
+ * around it, and calls the fixture chain of {@link com.github.mcfongtw.AbstractBenchmarkLifecycle} in between. The
+ * work of the state's own fixtures is left out of the score, so this hook times an empty
+ * {@link SimpleBenchmarkLifecycle} instead: the median over batches of {@link #BATCH_SIZE} rounds, after warming up.
+ * Register it at Level.Trial. A score of the same order as the overhead is dominated by the timer, use
+ * {@link BatchedFixtures} instead.
+ */
+public class InvocationOverheadCalibrationHook implements LifecycleHook {
+
+    private static final Logger logger = LoggerFactory.getLogger(InvocationOverheadCalibrationHook.class);
+
+    private static final int BATCH_SIZE = 10_000;
+
+    private static final int NUM_WARMUP_BATCHES = 50;
+
+    private static final int NUM_MEASURED_BATCHES = 50;
+
+    private final String stateName;
+
+    private double overheadInNanos = Double.NaN;
+
+    /**
+     * Last round trip, keeps the timer calls from being eliminated
+     */
+    private long sink;
+
+    public InvocationOverheadCalibrationHook(String stateName) {
+        this.stateName = stateName;
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        BenchmarkLifecycle emptyLifecycle = new SimpleBenchmarkLifecycle();
+
+        for (int i = 0; i < NUM_WARMUP_BATCHES; i++) {
+            measureBatch(emptyLifecycle);
+        }
+
+        double[] batchMeansInNanos = new double[NUM_MEASURED_BATCHES];
+        for (int i = 0; i < NUM_MEASURED_BATCHES; i++) {
+            batchMeansInNanos[i] = measureBatch(emptyLifecycle);
+        }
+        Arrays.sort(batchMeansInNanos);
+        overheadInNanos = batchMeansInNanos[NUM_MEASURED_BATCHES / 2];
+
+        logger.info("Level.Invocation overhead of [{}]: [{}] ns per invocation", stateName, String.format("%.1f", overheadInNanos));
+        InvocationOverheadProfiler.recordOverhead(overheadInNanos);
+    }
+
+    private double measureBatch(BenchmarkLifecycle emptyLifecycle) throws Exception {
+        long beforeTime = System.nanoTime();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            long invocationBeforeTime = System.nanoTime();
+            emptyLifecycle.doInvocationSetup();
+            emptyLifecycle.doInvocationTearDown();
+            sink = System.nanoTime() - invocationBeforeTime;
+        }
+        long afterTime = System.nanoTime();
+
+        return (double) (afterTime - beforeTime) / BATCH_SIZE;
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        logger.info("Level.Invocation of [{}] adds [{}] ns per invocation, of timer calls and an empty fixture chain", stateName, String.format("%.1f", overheadInNanos));
+    }
+
+    /**
+     * @return NaN if not calibrated yet
+     */
+    public double getOverheadInNanos() {
+        return overheadInNanos;
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.mcfongtw.hook;
+
+import com.github.mcfongtw.LifecycleHook;
+import com.github.mcfongtw.metrics.export.MetricExportPipeline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Run a {@link MetricExportPipeline} between set up and tear down, and close its sink on tear down.
+ *
+ * A single instance is meant to be shared by every state of the trial which exports to the pipeline: the first set up
+ * starts it, the last tear down stops it and closes the sink. A closed pipeline is not started again, i.e. with -f 0
+ * only the first trial is exported.
+ */
+public class MetricExportHook implements LifecycleHook {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricExportHook.class);
+
+    private final MetricExportPipeline pipeline;
+
+    private int numUsers;
+
+    private boolean isClosed;
+
+    public MetricExportHook(MetricExportPipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    @Override
+    public synchronized void setUp() throws Exception {
+        if (isClosed) {
+            logger.warn("Metric export pipeline already closed, not exporting");
+            return;
+        }
+
+        if (numUsers++ == 0) {
+            pipeline.start();
+        }
+    }
+
+    @Override
+    public synchronized void tearDown() throws Exception {
+        if (isClosed || numUsers == 0 || --numUsers > 0) {
+            return;
+        }
+
+        isClosed = true;
+        // stops the export thread after flushing, then closes the sink
+        pipeline.close();
+        logger.info("Exported [{}] samples in [{}] batches; dropped [{}]; sink write p99.9 [{}] ns",
+                new Object[]{pipeline.getExportedCount(), pipeline.getBatchCount(), pipeline.getDroppedCount(),
+                        pipeline.getSinkWriteLatencySnapshot().get999thPercentile()});
+    }
+}
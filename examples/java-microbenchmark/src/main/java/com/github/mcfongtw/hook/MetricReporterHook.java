@@ -0,0 +1,49 @@
+package com.github.mcfongtw.hook;
+
+import com.github.mcfongtw.LifecycleHook;
+import com.github.mcfongtw.io.InfluxdbReporterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Report a metric registry to InfluxDB between set up and tear down, see {@link InfluxdbReporterRegistry}.
+ */
+public class MetricReporterHook implements LifecycleHook {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricReporterHook.class);
+
+    private final String registryName;
+
+    private final long period;
+
+    private final TimeUnit unit;
+
+    private final long quietPeriodInMillis;
+
+    /**
+     * @param quietPeriodInMillis sleep after stopping, i.e. to tell trials apart on a dashboard
+     */
+    public MetricReporterHook(String registryName, long period, TimeUnit unit, long quietPeriodInMillis) {
+        this.registryName = registryName;
+        this.period = period;
+        this.unit = unit;
+        this.quietPeriodInMillis = quietPeriodInMillis;
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        logger.info("Starting reporting metric...");
+        InfluxdbReporterRegistry.getInstance().start(registryName, period, unit);
+        logger.info("Starting reporting metric...DONE");
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        logger.info("Stopping reporting metric...");
+        InfluxdbReporterRegistry.getInstance().stop(registryName);
+        Thread.sleep(quietPeriodInMillis);
+        logger.info("Stopping reporting metric...DONE");
+    }
+}
@@ -0,0 +1,60 @@
+package com.github.mcfongtw.hook;
+
+import com.github.mcfongtw.LifecycleHook;
+import com.github.mcfongtw.jni.utils.PageCacheUtils;
+import com.github.mcfongtw.profiler.PageResidencyProfiler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.Collection;
+
+/**
+ * Measure with mincore() the share of the pages of some files resident in the page cache, on set up and tear down, and
+ * report it to the {@link PageResidencyProfiler}. A no-op unless the profiler is enabled, i.e. no native call.
+ *
+ * The files are resolved on each set up, i.e. once the trial created them.
+ */
+public abstract class PageResidencyHook implements LifecycleHook {
+
+    private static final Logger logger = LoggerFactory.getLogger(PageResidencyHook.class);
+
+    /**
+     * @return files to inspect, empty if not created yet
+     */
+    protected abstract Collection<File> getFiles();
+
+    @Override
+    public void setUp() throws Exception {
+        if (PageResidencyProfiler.isRecording()) {
+            double residency = getResidencyInPercent(getFiles());
+            logger.debug("[{}]% resident before iteration", residency);
+            PageResidencyProfiler.recordBefore(residency);
+        }
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        if (PageResidencyProfiler.isRecording()) {
+            double residency = getResidencyInPercent(getFiles());
+            logger.debug("[{}]% resident after iteration", residency);
+            PageResidencyProfiler.recordAfter(residency);
+        }
+    }
+
+    /**
+     * @return resident pages of all files, in percent of their pages; 0 if they have none
+     */
+    public static double getResidencyInPercent(Collection<File> files) {
+        long pages = 0;
+        long residentPages = 0;
+        for (File file : files) {
+            if (file.isFile()) {
+                pages += PageCacheUtils.getPages(file);
+                residentPages += PageCacheUtils.getResidentPages(file);
+            }
+        }
+
+        return pages == 0 ? 0 : 100.0 * residentPages / pages;
+    }
+}
@@ -0,0 +1,41 @@
+package com.github.mcfongtw.hook;
+
+import com.github.mcfongtw.LifecycleHook;
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+
+/**
+ * A temp dir, created on set up and deleted with its content on tear down.
+ */
+public class TempDirHook implements LifecycleHook {
+
+    private static final Logger logger = LoggerFactory.getLogger(TempDirHook.class);
+
+    private File tempDir;
+
+    @Override
+    public void setUp() throws Exception {
+        tempDir = Files.createTempDir();
+        logger.debug("Temp dir created at [{}]", tempDir.getAbsolutePath());
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        if (tempDir != null) {
+            FileUtils.deleteDirectory(tempDir);
+            logger.debug("Temp dir deleted at [{}]", tempDir.getAbsolutePath());
+            tempDir = null;
+        }
+    }
+
+    /**
+     * @return null if not set up
+     */
+    public File getTempDir() {
+        return tempDir;
+    }
+}
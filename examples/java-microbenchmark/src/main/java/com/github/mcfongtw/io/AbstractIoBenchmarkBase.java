@@ -1,21 +1,34 @@
 package com.github.mcfongtw.io;
 
-import com.codahale.metrics.ScheduledReporter;
+import com.codahale.metrics.Reservoir;
 import com.github.mcfongtw.AbstractBenchmarkLifecycle;
 import com.github.mcfongtw.BenchmarkBase;
-import com.github.mcfongtw.utils.SudoExecutors;
-import com.google.common.io.Files;
+import com.github.mcfongtw.hook.DropSystemCacheHook;
+import com.github.mcfongtw.hook.EvictPageCacheHook;
+import com.github.mcfongtw.hook.MetricExportHook;
+import com.github.mcfongtw.hook.MetricReporterHook;
+import com.github.mcfongtw.hook.PageResidencyHook;
+import com.github.mcfongtw.hook.TempDirHook;
+import com.github.mcfongtw.metrics.HdrHistogramReservoir;
+import com.github.mcfongtw.metrics.MetricUtils;
+import com.github.mcfongtw.metrics.export.ExportingReservoir;
+import com.github.mcfongtw.metrics.export.FileMetricSink;
+import com.github.mcfongtw.metrics.export.MetricExportPipeline;
 import lombok.Getter;
 import lombok.Setter;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Level;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
@@ -34,68 +47,75 @@ public abstract class AbstractIoBenchmarkBase extends BenchmarkBase {
 
     protected static final int UNIT_ONE_PAGE = 4 * UNIT_ONE_KILO;
 
-    protected static ScheduledReporter metricReporter = InfluxdbReporterSingleton.newInstance();
+    protected static final int METRIC_REPORT_INTERVAL_IN_MILLIS = 500;
 
-    protected static abstract class AbstractIoBenchmarkLifecycle extends AbstractBenchmarkLifecycle {
-        protected Logger logger = LoggerFactory.getLogger(this.getClass());
+    /**
+     * Push samples to -DmetricExportFile=<path> in line protocol, instead of polling the registry; null if not set.
+     */
+    protected static MetricExportPipeline metricExportPipeline = newMetricExportPipeline();
 
-        private String sudoPassword = "";
+    /**
+     * Shared by all states, i.e. starts and stops the pipeline once per trial; null without a pipeline
+     */
+    private static final MetricExportHook metricExportHook = metricExportPipeline == null ? null : new MetricExportHook(metricExportPipeline);
 
-        private boolean isMetricReporterEnabled = false;
+    private static MetricExportPipeline newMetricExportPipeline() {
+        String metricExportFile = System.getProperty("metricExportFile");
+        if (StringUtils.isEmpty(metricExportFile)) {
+            return null;
+        }
 
+        try {
+            return new MetricExportPipeline(new FileMetricSink(Paths.get(metricExportFile)));
+        } catch (IOException e) {
+            LoggerFactory.getLogger(AbstractIoBenchmarkBase.class).error("Failed to open metric export file: " + metricExportFile, e);
+            return null;
+        }
+    }
 
-        public AbstractIoBenchmarkLifecycle() {
-            isMetricReporterEnabled = Boolean.valueOf(System.getProperty("isMetricReporterEnabled", "false"));
+    protected static Reservoir newLatencyReservoir(String name) {
+        if (metricExportPipeline == null) {
+            return new HdrHistogramReservoir();
+        }
 
-            if(isMetricReporterEnabled) {
-                logger.info("Starting reporting metric...");
-                metricReporter.start(500, TimeUnit.MILLISECONDS);
-                logger.info("Starting reporting metric...DONE");
-            }
+        return new ExportingReservoir(new HdrHistogramReservoir(), metricExportPipeline.newChannel(name));
+    }
+
+    protected static abstract class AbstractIoBenchmarkLifecycle extends AbstractBenchmarkLifecycle {
+        protected Logger logger = LoggerFactory.getLogger(this.getClass());
 
-            String sudoPasswordVal = System.getProperty("sudoPassword");
-            if(StringUtils.isNotEmpty(sudoPasswordVal)) {
-                sudoPassword = sudoPasswordVal;
+        public AbstractIoBenchmarkLifecycle() {
+            boolean isMetricReporterEnabled = Boolean.valueOf(System.getProperty("isMetricReporterEnabled", "false"));
+            if(isMetricReporterEnabled) {
+                hooks.register(Level.Trial, new MetricReporterHook(MetricUtils.DEFAULT_METRIC_REGISTRY_NAME,
+                        METRIC_REPORT_INTERVAL_IN_MILLIS, TimeUnit.MILLISECONDS, SLEEP_TIME_BETWEEN_TRIALS_IN_MILLIS));
             }
-            logger.debug("SudoPassword: {}", sudoPassword);
-        }
 
-        private void persistCacheToStorage() throws IOException, InterruptedException {
-            if(StringUtils.isNotEmpty(sudoPassword)) {
-                logger.debug("Start to sync page cache to disk...");
-                SudoExecutors.exec("sync", sudoPassword);
-                logger.debug("Start to sync page cache to disk...DONE");
+            if(metricExportHook != null) {
+                hooks.register(Level.Trial, metricExportHook);
             }
-        }
 
-        private void flushSystemCache() throws IOException, InterruptedException {
+            String sudoPassword = System.getProperty("sudoPassword");
+            logger.debug("SudoPassword: {}", sudoPassword);
             if(StringUtils.isNotEmpty(sudoPassword)) {
-                logger.debug("Start to drop free pagecache, dentries and inodes...");
-                SudoExecutors.exec("echo 3 > /proc/sys/vm/drop_caches", sudoPassword);
-                logger.debug("Start to drop free pagecache, dentries and inodes...DONE");
+                hooks.register(Level.Iteration, new DropSystemCacheHook(sudoPassword));
             }
         }
 
+        /**
+         * Temp dir of the trial; with -DevictPageCache=true, its files are evicted from the page cache before each
+         * iteration, see {@link EvictPageCacheHook}
+         */
+        protected TempDirHook registerTempDirHook() {
+            TempDirHook tempDirHook = hooks.register(Level.Trial, new TempDirHook());
 
-        @Override
-        public void postTrialTearDown() throws Exception {
-            super.postTrialTearDown();
-            logger.info("Stopping reporting metric...");
-            if(isMetricReporterEnabled) {
-                metricReporter.stop();
-                Thread.sleep(SLEEP_TIME_BETWEEN_TRIALS_IN_MILLIS);
+            boolean isPageCacheEvicted = Boolean.valueOf(System.getProperty("evictPageCache", "false"));
+            if(isPageCacheEvicted) {
+                hooks.register(Level.Iteration, new EvictPageCacheHook(tempDirHook));
             }
-            logger.info("Stopping reporting metric...DONE");
-        }
 
-
-        @Override
-        public void postIterationTearDown()  throws Exception {
-            super.postIterationTearDown();
-            persistCacheToStorage();
-            flushSystemCache();
+            return tempDirHook;
         }
-
     }
 
 
@@ -108,14 +128,22 @@ public abstract class AbstractIoBenchmarkBase extends BenchmarkBase {
 
         protected File tempDir;
 
+        private final TempDirHook tempDirHook = registerTempDirHook();
+
+        private final PageResidencyHook inputResidencyHook = hooks.register(Level.Iteration, new PageResidencyHook() {
+            @Override
+            protected Collection<File> getFiles() {
+                return finPath == null ? Collections.<File>emptyList() : Collections.singletonList(new File(finPath));
+            }
+        });
+
         private static final int TOTAL_DATA_WRITTEN = 32 * UNIT_ONE_MEGA;
 
         @Override
         public void preTrialSetUp() throws Exception {
             super.preTrialSetUp();
 
-            tempDir = Files.createTempDir();
-            new File(tempDir.getAbsolutePath()).mkdirs();
+            tempDir = tempDirHook.getTempDir();
 
             finPath = tempDir.getAbsolutePath() + "/in.data";
             foutPath = tempDir.getAbsolutePath() + "/out.data";
@@ -136,14 +164,6 @@ public abstract class AbstractIoBenchmarkBase extends BenchmarkBase {
             logger.debug("File created at [{}]", finPath);
             logger.debug("File created at [{}]", foutPath);
         }
-
-        @Override
-        public void postTrialTearDown() throws Exception {
-            super.postTrialTearDown();
-
-            FileUtils.deleteDirectory(tempDir);
-            logger.debug("Temp dir deleted at [{}]", tempDir.getAbsolutePath());
-        }
     }
 
     @Getter
@@ -155,14 +175,15 @@ public abstract class AbstractIoBenchmarkBase extends BenchmarkBase {
 
         protected File tempDir;
 
+        private final TempDirHook tempDirHook = registerTempDirHook();
+
         protected int fileSize;
 
         @Override
         public void preTrialSetUp() throws Exception {
             super.preTrialSetUp();
 
-            tempDir = Files.createTempDir();
-            new File(tempDir.getAbsolutePath()).mkdirs();
+            tempDir = tempDirHook.getTempDir();
 
             finPath = tempDir.getAbsolutePath() + "/in.data";
             foutPath = tempDir.getAbsolutePath() + "/out.data";
@@ -186,14 +207,6 @@ public abstract class AbstractIoBenchmarkBase extends BenchmarkBase {
             logger.debug("File created at [{}]", finPath);
             logger.debug("File created at [{}]", foutPath);
         }
-
-        @Override
-        public void postTrialTearDown() throws Exception {
-            super.postTrialTearDown();
-
-            FileUtils.deleteDirectory(tempDir);
-            logger.debug("Temp dir deleted at [{}]", tempDir.getAbsolutePath());
-        }
     }
 
     @Getter
@@ -210,6 +223,8 @@ public abstract class AbstractIoBenchmarkBase extends BenchmarkBase {
 
         protected File tempDir;
 
+        private final TempDirHook tempDirHook = registerTempDirHook();
+
         public enum DataType {
             INTEGER(1, 4),
             DOUBLE(2, 8),
@@ -270,8 +285,7 @@ public abstract class AbstractIoBenchmarkBase extends BenchmarkBase {
 
             Random rand = new Random(System.currentTimeMillis());
 
-            tempDir = Files.createTempDir();
-            new File(tempDir.getAbsolutePath()).mkdirs();
+            tempDir = tempDirHook.getTempDir();
 
             finPath = tempDir.getAbsolutePath() + "/in.data";
             fmetaPath = tempDir.getAbsolutePath() + "/meta.data";
@@ -352,14 +366,6 @@ public abstract class AbstractIoBenchmarkBase extends BenchmarkBase {
             logger.debug("File created at [{}]", finPath);
             logger.debug("File created at [{}]", fmetaPath);
         }
-
-        @Override
-        public void postTrialTearDown() throws Exception {
-            super.postTrialTearDown();
-
-            FileUtils.deleteDirectory(tempDir);
-            logger.debug("Temp dir deleted at [{}]", tempDir.getAbsolutePath());
-        }
     }
 
     @Getter
@@ -371,12 +377,26 @@ public abstract class AbstractIoBenchmarkBase extends BenchmarkBase {
 
         protected File tempDir;
 
+        private final TempDirHook tempDirHook = registerTempDirHook();
+
         protected int fileSize;
 
         protected List<String> listOfFinPath = new ArrayList<>();
 
         protected List<String> listOfFoutPath = new ArrayList<>();
 
+        private final PageResidencyHook inputResidencyHook = hooks.register(Level.Iteration, new PageResidencyHook() {
+            @Override
+            protected Collection<File> getFiles() {
+                List<File> files = new ArrayList<>();
+                for (String finPath : listOfFinPath) {
+                    files.add(new File(finPath));
+                }
+
+                return files;
+            }
+        });
+
         public final static int MAX_NUM_FILES = 100;
 
         public final static int BUFFER_SIZE = UNIT_ONE_PAGE;
@@ -385,8 +405,7 @@ public abstract class AbstractIoBenchmarkBase extends BenchmarkBase {
         public void preTrialSetUp() throws Exception {
             super.preTrialSetUp();
 
-            tempDir = Files.createTempDir();
-            new File(tempDir.getAbsolutePath()).mkdirs();
+            tempDir = tempDirHook.getTempDir();
 
             for(int index = 0; index < MAX_NUM_FILES; index ++) {
                 String finPath = String.format(tempDir.getAbsolutePath() + "/in-%d.data", index);
@@ -415,14 +434,6 @@ public abstract class AbstractIoBenchmarkBase extends BenchmarkBase {
                 logger.debug("File created at [{}]", foutPath);
             }
         }
-
-        @Override
-        public void postTrialTearDown() throws Exception {
-            super.postTrialTearDown();
-
-            FileUtils.deleteDirectory(tempDir);
-            logger.debug("Temp dir deleted at [{}]", tempDir.getAbsolutePath());
-        }
     }
 
 }
@@ -1,5 +1,6 @@
 package com.github.mcfongtw.io;
 
+import com.codahale.metrics.Reservoir;
 import com.github.mcfongtw.metrics.LatencyMetric;
 import com.google.common.collect.ImmutableMap;
 
@@ -10,4 +11,8 @@ public class InfluxdbLatencyMetric extends LatencyMetric {
     public InfluxdbLatencyMetric(String prefix) {
         super(influxName(prefix, ImmutableMap.of()));
     }
+
+    public InfluxdbLatencyMetric(String prefix, Reservoir reservoir) {
+        super(influxName(prefix, ImmutableMap.of()), reservoir);
+    }
 }
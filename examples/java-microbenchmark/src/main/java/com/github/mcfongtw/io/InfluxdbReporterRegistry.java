@@ -0,0 +1,249 @@
+package com.github.mcfongtw.io;
+
+import com.codahale.metrics.*;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import com.github.mcfongtw.metrics.MetricUtils;
+import com.kickstarter.dropwizard.metrics.influxdb.InfluxDbMeasurementReporterFactory;
+import io.dropwizard.jackson.Jackson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InfluxDB reporters of named {@link MetricRegistry}s, see {@link SharedMetricRegistries}.
+ *
+ * Every reporter is built at most once, even if requested by several threads at the same time, and each registry is
+ * reported at its own interval. Nothing is parsed nor built until needed: {@link #start(String, long, TimeUnit)} on an
+ * empty registry only installs a listener, and the reporter is built and started when the first metric is added.
+ */
+public class InfluxdbReporterRegistry {
+
+    private static Logger logger = LoggerFactory.getLogger(InfluxdbReporterRegistry.class);
+
+    private static final String DEFAULT_CONFIG_RESOURCE = "/influxdb.json";
+
+    private static class InstanceHolder {
+        private static final InfluxdbReporterRegistry INSTANCE = new InfluxdbReporterRegistry(new InfluxdbReporterFactory(DEFAULT_CONFIG_RESOURCE));
+    }
+
+    public static InfluxdbReporterRegistry getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    interface ReporterFactory {
+        /**
+         * @return null if the reporter cannot be built
+         */
+        ScheduledReporter build(MetricRegistry metricRegistry);
+    }
+
+    private final ReporterFactory reporterFactory;
+
+    private final ConcurrentMap<String, ReporterEntry> entries = new ConcurrentHashMap<>();
+
+    InfluxdbReporterRegistry(ReporterFactory reporterFactory) {
+        this.reporterFactory = reporterFactory;
+    }
+
+    /**
+     * @return the reporter of the named registry, or null if the InfluxDB configuration cannot be read
+     */
+    public ScheduledReporter getReporter(String registryName) {
+        return getEntry(registryName).getReporter();
+    }
+
+    /**
+     * Report the named registry every {@code period}; deferred until the registry has at least one metric.
+     */
+    public void start(String registryName, long period, TimeUnit unit) {
+        getEntry(registryName).start(period, unit);
+    }
+
+    public boolean isStarted(String registryName) {
+        return getEntry(registryName).isStarted();
+    }
+
+    /**
+     * Stop reporting the named registry. The next {@link #start(String, long, TimeUnit)} builds a new reporter, as a
+     * stopped {@link ScheduledReporter} cannot be restarted.
+     */
+    public void stop(String registryName) {
+        ReporterEntry entry = entries.get(registryName);
+        if (entry != null) {
+            entry.stop();
+        }
+    }
+
+    public void stopAll() {
+        for (ReporterEntry entry : entries.values()) {
+            entry.stop();
+        }
+    }
+
+    private ReporterEntry getEntry(String registryName) {
+        ReporterEntry entry = entries.get(registryName);
+        if (entry == null) {
+            ReporterEntry newEntry = new ReporterEntry(registryName);
+            entry = entries.putIfAbsent(registryName, newEntry);
+            if (entry == null) {
+                entry = newEntry;
+            }
+        }
+
+        return entry;
+    }
+
+    private static MetricRegistry getMetricRegistry(String registryName) {
+        if (MetricUtils.DEFAULT_METRIC_REGISTRY_NAME.equals(registryName)) {
+            return MetricUtils.getDefaultMetricRegistry();
+        }
+
+        return SharedMetricRegistries.getOrCreate(registryName);
+    }
+
+    private class ReporterEntry extends MetricRegistryListener.Base {
+
+        private final String registryName;
+
+        private final MetricRegistry metricRegistry;
+
+        // guarded by this
+        private ScheduledReporter reporter;
+
+        private boolean isStartRequested = false;
+
+        private boolean isStarted = false;
+
+        private long period;
+
+        private TimeUnit unit;
+
+        private ReporterEntry(String registryName) {
+            this.registryName = registryName;
+            this.metricRegistry = getMetricRegistry(registryName);
+        }
+
+        private synchronized ScheduledReporter getReporter() {
+            if (reporter == null) {
+                reporter = reporterFactory.build(metricRegistry);
+            }
+
+            return reporter;
+        }
+
+        private synchronized void start(long period, TimeUnit unit) {
+            if (isStartRequested) {
+                logger.warn("Reporter of [{}] is already started", registryName);
+                return;
+            }
+
+            isStartRequested = true;
+            this.period = period;
+            this.unit = unit;
+
+            // existing metrics are replayed to the listener, so a non-empty registry starts right away
+            metricRegistry.addListener(this);
+            if (!isStarted) {
+                logger.info("Reporter of [{}] is deferred until the first metric is registered", registryName);
+            }
+        }
+
+        private synchronized boolean isStarted() {
+            return isStarted;
+        }
+
+        private synchronized void stop() {
+            metricRegistry.removeListener(this);
+            isStartRequested = false;
+
+            if (isStarted) {
+                reporter.stop();
+                reporter = null;
+                isStarted = false;
+            }
+        }
+
+        private synchronized void onMetricAdded() {
+            if (!isStartRequested || isStarted) {
+                return;
+            }
+
+            ScheduledReporter scheduledReporter = getReporter();
+            if (scheduledReporter != null) {
+                scheduledReporter.start(period, unit);
+                isStarted = true;
+                logger.info("Reporter of [{}] is started every [{}] {}", new Object[]{registryName, period, unit});
+            }
+            metricRegistry.removeListener(this);
+        }
+
+        @Override
+        public void onGaugeAdded(String name, Gauge<?> gauge) {
+            onMetricAdded();
+        }
+
+        @Override
+        public void onCounterAdded(String name, Counter counter) {
+            onMetricAdded();
+        }
+
+        @Override
+        public void onHistogramAdded(String name, Histogram histogram) {
+            onMetricAdded();
+        }
+
+        @Override
+        public void onMeterAdded(String name, Meter meter) {
+            onMetricAdded();
+        }
+
+        @Override
+        public void onTimerAdded(String name, Timer timer) {
+            onMetricAdded();
+        }
+    }
+
+    /**
+     * Build reporters from the InfluxDB configuration, which is parsed once on first use.
+     */
+    private static class InfluxdbReporterFactory implements ReporterFactory {
+
+        private final String configResource;
+
+        private InfluxDbMeasurementReporterFactory factory;
+
+        private boolean isFactoryInitialized = false;
+
+        private InfluxdbReporterFactory(String configResource) {
+            this.configResource = configResource;
+        }
+
+        @Override
+        public synchronized ScheduledReporter build(MetricRegistry metricRegistry) {
+            if (!isFactoryInitialized) {
+                isFactoryInitialized = true;
+
+                final ObjectMapper mapper = Jackson.newObjectMapper();
+                mapper.registerModule(new ParameterNamesModule(JsonCreator.Mode.PROPERTIES));
+
+                try (InputStream is = InfluxdbReporterRegistry.class.getResourceAsStream(configResource)) {
+                    if (is == null) {
+                        throw new IOException("Resource not found: " + configResource);
+                    }
+                    factory = mapper.readValue(is, InfluxDbMeasurementReporterFactory.class);
+                } catch (IOException e) {
+                    logger.error("Failed to read InfluxDB reporter configuration: " + e.getMessage());
+                }
+            }
+
+            return factory == null ? null : factory.build(metricRegistry);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.github.mcfongtw.io;
+
+import com.codahale.metrics.ConsoleReporter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.ScheduledReporter;
+import com.codahale.metrics.Timer;
+import com.github.mcfongtw.BenchmarkBase;
+import com.github.mcfongtw.SimpleBenchmarkLifecycle;
+import com.github.mcfongtw.metrics.HdrHistogramReservoir;
+import com.github.mcfongtw.metrics.export.ExportingReservoir;
+import com.github.mcfongtw.metrics.export.FileMetricSink;
+import com.github.mcfongtw.metrics.export.MetricExportPipeline;
+import com.google.common.io.ByteStreams;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Jitter induced by the metric reporter on the threads being measured, i.e. compare p99.9 / p99.99 of:
+ *  - None: no reporter
+ *  - Scheduled: ScheduledReporter polling a snapshot of the whole registry every 500 ms
+ *  - Pipeline: MetricExportPipeline, samples pushed to a ring buffer and exported by a low-priority thread
+ */
+@BenchmarkMode({Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Measurement(iterations = 10)
+@Warmup(iterations = 5)
+@Fork(3)
+@Threads(1)
+public class MetricReporterJitterBenchmark extends BenchmarkBase {
+
+    private static final int NUM_TIMERS = 256;
+
+    private static final long NUM_CPU_TOKENS = 1000;
+
+    @State(Scope.Benchmark)
+    public static class BenchmarkState extends SimpleBenchmarkLifecycle {
+
+        @Param({"None", "Scheduled", "Pipeline"})
+        public String reporterType;
+
+        private MetricRegistry registry;
+
+        private Timer[] timers;
+
+        private ScheduledReporter scheduledReporter;
+
+        private MetricExportPipeline metricExportPipeline;
+
+        private File exportFile;
+
+        @Setup(Level.Trial)
+        @Override
+        public void doTrialSetUp() throws Exception {
+            super.doTrialSetUp();
+
+            registry = new MetricRegistry();
+            if (reporterType.equals("Pipeline")) {
+                exportFile = File.createTempFile(MetricReporterJitterBenchmark.class.getSimpleName(), ".txt");
+                metricExportPipeline = new MetricExportPipeline(new FileMetricSink(exportFile.toPath()));
+            }
+
+            timers = new Timer[NUM_TIMERS];
+            for (int i = 0; i < NUM_TIMERS; i++) {
+                String name = MetricRegistry.name(MetricReporterJitterBenchmark.class, "Timer" + i);
+                Reservoir reservoir = new HdrHistogramReservoir();
+                if (metricExportPipeline != null) {
+                    reservoir = new ExportingReservoir(reservoir, metricExportPipeline.newChannel(name));
+                }
+                timers[i] = registry.register(name, new Timer(reservoir));
+            }
+
+            if (reporterType.equals("Scheduled")) {
+                scheduledReporter = ConsoleReporter.forRegistry(registry)
+                        .outputTo(new PrintStream(ByteStreams.nullOutputStream()))
+                        .build();
+                scheduledReporter.start(500, TimeUnit.MILLISECONDS);
+            } else if (metricExportPipeline != null) {
+                metricExportPipeline.start();
+            }
+        }
+
+        @TearDown(Level.Trial)
+        @Override
+        public void doTrialTearDown() throws Exception {
+            super.doTrialTearDown();
+
+            if (scheduledReporter != null) {
+                scheduledReporter.stop();
+            }
+            if (metricExportPipeline != null) {
+                metricExportPipeline.close();
+                logger.info("Exported [{}] samples in [{}] batches; dropped [{}]",
+                        new Object[]{metricExportPipeline.getExportedCount(), metricExportPipeline.getBatchCount(), metricExportPipeline.getDroppedCount()});
+                exportFile.delete();
+            }
+        }
+
+        @Setup(Level.Iteration)
+        @Override
+        public void doIterationSetup() throws Exception {
+            super.doIterationSetup();
+        }
+
+        @TearDown(Level.Iteration)
+        @Override
+        public void doIterationTearDown() throws Exception {
+            super.doIterationTearDown();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        public int index = 0;
+    }
+
+    @Benchmark
+    public void measureTimedWork(BenchmarkState state, ThreadState threadState) {
+        long beforeTime = System.nanoTime();
+        Blackhole.consumeCPU(NUM_CPU_TOKENS);
+        long afterTime = System.nanoTime();
+
+        state.timers[threadState.index++ & (NUM_TIMERS - 1)].update(afterTime - beforeTime, TimeUnit.NANOSECONDS);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(MetricReporterJitterBenchmark.class.getSimpleName())
+                .resultFormat(ResultFormatType.JSON)
+                .result("MetricReporterJitterBenchmark-result.json")
+                .build();
+
+        new Runner(opt).run();
+    }
+}
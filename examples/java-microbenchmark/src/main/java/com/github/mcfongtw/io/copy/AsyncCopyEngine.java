@@ -0,0 +1,301 @@
+package com.github.mcfongtw.io.copy;
+
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pipelined file copy over {@link AsynchronousFileChannel}, in the spirit of an io_uring submission queue: the source
+ * is split into chunks of bufferSize, and up to queueDepth reads plus queueDepth writes are kept in flight, i.e. the
+ * read of a chunk is submitted while earlier chunks are still being written.
+ *
+ * The 2 x queueDepth direct buffers are allocated once and recycled across chunks and copies, and completions run on
+ * a small fixed handler pool shared by both channels. On Linux the JDK emulates asynchronous file I/O, i.e. the
+ * handler threads also issue the blocking pread / pwrite, so the handler pool bounds the actual I/O parallelism.
+ *
+ * One copy at a time; the engine is meant to live for a trial and be closed afterwards.
+ */
+public class AsyncCopyEngine implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncCopyEngine.class);
+
+    private static final Set<OpenOption> READ_OPTIONS = Collections.<OpenOption>singleton(StandardOpenOption.READ);
+
+    private static final Set<OpenOption> WRITE_OPTIONS = Collections.<OpenOption>unmodifiableSet(EnumSet.of(
+            StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING));
+
+    @Getter
+    private final int queueDepth;
+
+    @Getter
+    private final int bufferSize;
+
+    private final BlockingQueue<ByteBuffer> bufferPool;
+
+    private final ExecutorService handlerPool;
+
+    public AsyncCopyEngine(int queueDepth, int bufferSize, int handlerThreads) {
+        if (queueDepth < 1 || bufferSize < 1 || handlerThreads < 1) {
+            throw new IllegalArgumentException("queueDepth, bufferSize and handlerThreads must be positive");
+        }
+
+        this.queueDepth = queueDepth;
+        this.bufferSize = bufferSize;
+
+        this.bufferPool = new ArrayBlockingQueue<>(2 * queueDepth);
+        for (int i = 0; i < 2 * queueDepth; i++) {
+            bufferPool.add(ByteBuffer.allocateDirect(bufferSize));
+        }
+
+        this.handlerPool = Executors.newFixedThreadPool(handlerThreads, new ThreadFactory() {
+
+            private final AtomicInteger threadIndex = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "async-copy-handler-" + threadIndex.getAndIncrement());
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Copy source to target, created or truncated.
+     *
+     * @return bytes copied
+     * @throws IOException of the first failed read or write; chunks in flight are drained before
+     */
+    public synchronized long copy(Path source, Path target) throws IOException {
+        try (
+                AsynchronousFileChannel sourceChannel = AsynchronousFileChannel.open(source, READ_OPTIONS, handlerPool);
+                AsynchronousFileChannel targetChannel = AsynchronousFileChannel.open(target, WRITE_OPTIONS, handlerPool);
+        ) {
+            long size = sourceChannel.size();
+
+            new Pipeline(sourceChannel, targetChannel).run(size);
+
+            logger.trace("Copied [{}] bytes from [{}] to [{}]", new Object[]{size, source, target});
+
+            return size;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        handlerPool.shutdown();
+        try {
+            if (!handlerPool.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("Handler pool not terminated after 10 seconds");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A chunk of the file, from read submission to write completion
+     */
+    private static class Chunk {
+
+        private final long position;
+
+        private final ByteBuffer buffer;
+
+        private Chunk(long position, ByteBuffer buffer) {
+            this.position = position;
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * State of a single copy
+     */
+    private class Pipeline {
+
+        private final AsynchronousFileChannel sourceChannel;
+
+        private final AsynchronousFileChannel targetChannel;
+
+        private final Semaphore readSlots = new Semaphore(queueDepth);
+
+        private final Semaphore writeSlots = new Semaphore(queueDepth);
+
+        /**
+         * Chunks read, waiting for a write slot
+         */
+        private final Queue<Chunk> pendingWrites = new ConcurrentLinkedQueue<>();
+
+        /**
+         * Chunks not yet written, plus one held by the submitting thread until all reads are submitted
+         */
+        private final AtomicInteger unfinishedChunks = new AtomicInteger(1);
+
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        private final CompletionHandler<Integer, Chunk> readHandler = new CompletionHandler<Integer, Chunk>() {
+
+            @Override
+            public void completed(Integer bytesRead, Chunk chunk) {
+                if (bytesRead < 0) {
+                    fail(chunk, readSlots, new IOException("Unexpected end of file at position " + (chunk.position + chunk.buffer.position())));
+                } else if (chunk.buffer.hasRemaining()) {
+                    // short read
+                    read(chunk);
+                } else {
+                    readSlots.release();
+                    chunk.buffer.flip();
+                    pendingWrites.add(chunk);
+                    submitWrites();
+                }
+            }
+
+            @Override
+            public void failed(Throwable exc, Chunk chunk) {
+                fail(chunk, readSlots, exc);
+            }
+        };
+
+        private final CompletionHandler<Integer, Chunk> writeHandler = new CompletionHandler<Integer, Chunk>() {
+
+            @Override
+            public void completed(Integer bytesWritten, Chunk chunk) {
+                if (chunk.buffer.hasRemaining()) {
+                    // short write
+                    write(chunk);
+                } else {
+                    writeSlots.release();
+                    finish(chunk);
+                    submitWrites();
+                }
+            }
+
+            @Override
+            public void failed(Throwable exc, Chunk chunk) {
+                fail(chunk, writeSlots, exc);
+            }
+        };
+
+        private Pipeline(AsynchronousFileChannel sourceChannel, AsynchronousFileChannel targetChannel) {
+            this.sourceChannel = sourceChannel;
+            this.targetChannel = targetChannel;
+        }
+
+        private void run(long size) throws IOException {
+            boolean isSubmitInterrupted = false;
+            try {
+                for (long position = 0; position < size && failure.get() == null; position += bufferSize) {
+                    readSlots.acquire();
+                    ByteBuffer buffer = bufferPool.take();
+                    buffer.clear().limit((int) Math.min(bufferSize, size - position));
+
+                    unfinishedChunks.incrementAndGet();
+                    read(new Chunk(position, buffer));
+                }
+            } catch (InterruptedException e) {
+                isSubmitInterrupted = true;
+            }
+
+            if (unfinishedChunks.decrementAndGet() == 0) {
+                finished.countDown();
+            }
+            // uninterruptibly, as the buffers in flight must be back in the pool before the next copy, and the channels
+            // open until then, even if interrupted while submitting reads
+            boolean interrupted = isSubmitInterrupted;
+            while (true) {
+                try {
+                    finished.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (isSubmitInterrupted) {
+                throw new InterruptedIOException("Interrupted while submitting reads");
+            }
+
+            Throwable cause = failure.get();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause != null) {
+                throw new IOException("Failed to copy", cause);
+            }
+        }
+
+        private void read(Chunk chunk) {
+            sourceChannel.read(chunk.buffer, chunk.position + chunk.buffer.position(), chunk, readHandler);
+        }
+
+        private void write(Chunk chunk) {
+            targetChannel.write(chunk.buffer, chunk.position + chunk.buffer.position(), chunk, writeHandler);
+        }
+
+        /**
+         * Write as many pending chunks as there are free write slots; called by any handler thread
+         */
+        private void submitWrites() {
+            while (writeSlots.tryAcquire()) {
+                Chunk chunk = pendingWrites.poll();
+                if (chunk == null) {
+                    writeSlots.release();
+                    // a chunk queued between poll() and release() would otherwise wait for the next completion
+                    if (pendingWrites.isEmpty()) {
+                        return;
+                    }
+                } else {
+                    write(chunk);
+                }
+            }
+        }
+
+        /**
+         * Record the first failure, so that no further read is submitted, and free the slot of the chunk
+         */
+        private void fail(Chunk chunk, Semaphore slots, Throwable exc) {
+            if (failure.compareAndSet(null, exc)) {
+                logger.error("Failed to copy chunk at position [{}]", chunk.position, exc);
+            }
+            slots.release();
+            finish(chunk);
+        }
+
+        private void finish(Chunk chunk) {
+            bufferPool.add(chunk.buffer);
+
+            if (unfinishedChunks.decrementAndGet() == 0) {
+                finished.countDown();
+            }
+        }
+    }
+}
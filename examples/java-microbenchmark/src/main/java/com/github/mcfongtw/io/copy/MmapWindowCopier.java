@@ -0,0 +1,238 @@
+package com.github.mcfongtw.io.copy;
+
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * File copy through a sliding window of memory mappings, for files of any size: unlike mapping the whole file, which
+ * an int length limits to 2 GB, only one window of source and target is mapped at a time, and each window is unmapped
+ * as soon as it is copied instead of whenever the GC collects it.
+ *
+ * With prefetch, a helper thread maps the next source window and faults it in with {@link MappedByteBuffer#load()}
+ * while the current window is being copied.
+ */
+public class MmapWindowCopier implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MmapWindowCopier.class);
+
+    /**
+     * sun.misc.Unsafe.invokeCleaner(ByteBuffer) as of Java 9, null before
+     */
+    private static final Method INVOKE_CLEANER;
+
+    private static final Object UNSAFE;
+
+    /**
+     * sun.nio.ch.DirectBuffer.cleaner() and sun.misc.Cleaner.clean() up to Java 8
+     */
+    private static final Method CLEANER;
+
+    private static final Method CLEAN;
+
+    static {
+        Method invokeCleaner = null;
+        Object unsafe = null;
+        Method cleaner = null;
+        Method clean = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            try {
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                unsafe = theUnsafe.get(null);
+            } catch (NoSuchMethodException e) {
+                cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+                clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to resolve the cleaner of mapped buffers; they are unmapped by GC only", e);
+            invokeCleaner = null;
+            cleaner = null;
+        }
+
+        INVOKE_CLEANER = invokeCleaner;
+        UNSAFE = unsafe;
+        CLEANER = cleaner;
+        CLEAN = clean;
+    }
+
+    @Getter
+    private final int windowSize;
+
+    @Getter
+    private final boolean prefetch;
+
+    private final ExecutorService prefetcher;
+
+    public MmapWindowCopier(int windowSize, boolean prefetch) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("windowSize must be positive");
+        }
+
+        this.windowSize = windowSize;
+        this.prefetch = prefetch;
+
+        this.prefetcher = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "mmap-prefetcher");
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Copy source to target, created or truncated.
+     *
+     * @return bytes copied
+     */
+    public synchronized long copy(Path source, Path target) throws IOException {
+        try (
+                FileChannel sourceChannel = FileChannel.open(source, StandardOpenOption.READ);
+                FileChannel targetChannel = FileChannel.open(target, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        ) {
+            long size = sourceChannel.size();
+
+            MappedByteBuffer sourceWindow = null;
+            Future<MappedByteBuffer> nextSourceWindow = null;
+            try {
+                for (long position = 0; position < size; position += windowSize) {
+                    if (nextSourceWindow != null) {
+                        sourceWindow = await(nextSourceWindow);
+                        nextSourceWindow = null;
+                    } else {
+                        sourceWindow = map(sourceChannel, position, size, false);
+                    }
+
+                    if (prefetch && position + windowSize < size) {
+                        nextSourceWindow = prefetch(sourceChannel, position + windowSize, size);
+                    }
+
+                    // mapping past the end of the target extends it
+                    MappedByteBuffer targetWindow = targetChannel.map(FileChannel.MapMode.READ_WRITE, position, sourceWindow.remaining());
+                    try {
+                        targetWindow.put(sourceWindow);
+                    } finally {
+                        unmap(targetWindow);
+                    }
+
+                    unmap(sourceWindow);
+                    sourceWindow = null;
+
+                    logger.trace("mmapped [{}] / [{}] bytes w/ window size [{}]", new Object[]{Math.min(position + windowSize, size), size, windowSize});
+                }
+            } finally {
+                if (sourceWindow != null) {
+                    unmap(sourceWindow);
+                }
+                if (nextSourceWindow != null) {
+                    unmapWhenDone(nextSourceWindow);
+                }
+            }
+
+            return size;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        prefetcher.shutdown();
+        try {
+            if (!prefetcher.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("Prefetcher not terminated after 10 seconds");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private MappedByteBuffer map(FileChannel channel, long position, long size, boolean load) throws IOException {
+        MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, size - position));
+        if (load) {
+            window.load();
+        }
+
+        return window;
+    }
+
+    private Future<MappedByteBuffer> prefetch(final FileChannel channel, final long position, final long size) {
+        return prefetcher.submit(new Callable<MappedByteBuffer>() {
+            @Override
+            public MappedByteBuffer call() throws Exception {
+                return map(channel, position, size, true);
+            }
+        });
+    }
+
+    private static MappedByteBuffer await(Future<MappedByteBuffer> window) throws IOException {
+        try {
+            return window.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while prefetching");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed to prefetch", e.getCause());
+        }
+    }
+
+    /**
+     * On failure of the copy, unmap the window being prefetched once mapped, or leave it to GC
+     */
+    private void unmapWhenDone(final Future<MappedByteBuffer> window) {
+        prefetcher.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    unmap(window.get());
+                } catch (Exception e) {
+                    logger.debug("Prefetched window not unmapped", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Release the mapping now rather than on GC of the buffer, i.e. its pages can be evicted and the file deleted
+     * right away. The buffer must not be accessed afterwards, which would crash the JVM.
+     */
+    public static void unmap(MappedByteBuffer buffer) {
+        try {
+            if (INVOKE_CLEANER != null) {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            } else if (CLEANER != null) {
+                Object cleaner = CLEANER.invoke(buffer);
+                if (cleaner != null) {
+                    CLEAN.invoke(cleaner);
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to unmap buffer; left to GC", e);
+        }
+    }
+}
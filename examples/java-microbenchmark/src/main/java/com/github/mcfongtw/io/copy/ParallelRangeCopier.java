@@ -0,0 +1,219 @@
+package com.github.mcfongtw.io.copy;
+
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * File copy split into ranges copied concurrently on a fork-join pool, i.e. several requests in flight to the device,
+ * which a single thread does not issue. The file is halved recursively down to a range per thread, on page boundaries,
+ * and each range is copied with positional I/O, see {@link Method}. With fsync, the target is synced once, after all
+ * ranges are copied.
+ */
+public class ParallelRangeCopier implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelRangeCopier.class);
+
+    private static final int PAGE_SIZE = 4096;
+
+    public enum Method {
+        /**
+         * FileChannel.transferTo of the range, to a target channel of its own positioned at the range
+         */
+        TRANSFER_TO,
+        /**
+         * Positional read and write of the range through a direct buffer per thread
+         */
+        READ_WRITE
+    }
+
+    @Getter
+    private final int threads;
+
+    @Getter
+    private final Method method;
+
+    @Getter
+    private final boolean fsync;
+
+    private final int bufferSize;
+
+    private final ForkJoinPool pool;
+
+    private final ThreadLocal<ByteBuffer> buffers = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+    };
+
+    public ParallelRangeCopier(int threads, Method method, boolean fsync, int bufferSize) {
+        if (threads < 1 || bufferSize < 1) {
+            throw new IllegalArgumentException("threads and bufferSize must be positive");
+        }
+
+        this.threads = threads;
+        this.method = method;
+        this.fsync = fsync;
+        this.bufferSize = bufferSize;
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * Copy source to target, created or truncated.
+     *
+     * @return bytes copied
+     */
+    public long copy(Path source, Path target) throws IOException {
+        try (
+                FileChannel sourceChannel = FileChannel.open(source, StandardOpenOption.READ);
+                FileChannel targetChannel = FileChannel.open(target, StandardOpenOption.WRITE,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        ) {
+            long size = sourceChannel.size();
+            // a range per thread, rounded up to a page
+            long rangeSize = Math.max(PAGE_SIZE, ((size + threads - 1) / threads + PAGE_SIZE - 1) / PAGE_SIZE * PAGE_SIZE);
+
+            try {
+                pool.invoke(new RangeCopy(sourceChannel, targetChannel, target, 0, size, rangeSize));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            if (fsync) {
+                targetChannel.force(false);
+            }
+
+            logger.trace("Copied [{}] bytes from [{}] to [{}] in ranges of [{}] bytes", new Object[]{size, source, target, rangeSize});
+
+            return size;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("Fork-join pool not terminated after 10 seconds");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private class RangeCopy extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel sourceChannel;
+
+        private final FileChannel targetChannel;
+
+        private final Path target;
+
+        private final long position;
+
+        private final long length;
+
+        private final long rangeSize;
+
+        private RangeCopy(FileChannel sourceChannel, FileChannel targetChannel, Path target, long position, long length, long rangeSize) {
+            this.sourceChannel = sourceChannel;
+            this.targetChannel = targetChannel;
+            this.target = target;
+            this.position = position;
+            this.length = length;
+            this.rangeSize = rangeSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (length > rangeSize) {
+                long half = Math.max(rangeSize, length / 2 / rangeSize * rangeSize);
+                RangeCopy lower = new RangeCopy(sourceChannel, targetChannel, target, position, half, rangeSize);
+                RangeCopy upper = new RangeCopy(sourceChannel, targetChannel, target, position + half, length - half, rangeSize);
+
+                // unlike invokeAll(), joins both halves even if one fails, i.e. no range is still being copied once
+                // copy() has thrown and closed the channels
+                upper.fork();
+                RuntimeException failure = null;
+                try {
+                    lower.invoke();
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+                try {
+                    upper.join();
+                } catch (RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+
+                if (failure != null) {
+                    throw failure;
+                }
+                return;
+            }
+
+            try {
+                if (method == Method.TRANSFER_TO) {
+                    transferTo();
+                } else {
+                    readWrite();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void transferTo() throws IOException {
+            // transferTo writes at the position of the target channel, hence a channel per range
+            try (FileChannel rangeChannel = FileChannel.open(target, StandardOpenOption.WRITE)) {
+                rangeChannel.position(position);
+
+                for (long transferred = 0; transferred < length; ) {
+                    long count = sourceChannel.transferTo(position + transferred, length - transferred, rangeChannel);
+                    if (count <= 0) {
+                        throw new IOException("Unexpected end of file at position " + (position + transferred));
+                    }
+                    transferred += count;
+                }
+            }
+        }
+
+        private void readWrite() throws IOException {
+            ByteBuffer buffer = buffers.get();
+
+            for (long copied = 0; copied < length; ) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), length - copied));
+                while (buffer.hasRemaining()) {
+                    if (sourceChannel.read(buffer, position + copied + buffer.position()) < 0) {
+                        throw new IOException("Unexpected end of file at position " + (position + copied + buffer.position()));
+                    }
+                }
+
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    targetChannel.write(buffer, position + copied + buffer.position());
+                }
+
+                copied += buffer.limit();
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.github.mcfongtw.io.file;
+
+import com.github.mcfongtw.io.AbstractIoBenchmarkBase;
+import com.github.mcfongtw.io.copy.AsyncCopyEngine;
+import com.github.mcfongtw.metrics.LatencyMetric;
+import lombok.Getter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the pipelined {@link AsyncCopyEngine} across queue depths, for the file sizes of
+ * {@link FileReplicationBenchmark}; bytes per second is the score times fileSize. Unlike
+ * SequentialReplicationBenchmark.copyWithAsyncFileChannel, i.e. one blocking read then one write at a time,
+ * queueDepth reads and queueDepth writes are in flight. The handler pool is sized to match, i.e. 2 x queueDepth
+ * threads, otherwise it, and not the queue depth, would bound the I/O in flight.
+ */
+@BenchmarkMode({Mode.Throughput})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Measurement(iterations = 20)
+@Warmup(iterations = 5)
+@Fork(3)
+@Threads(1)
+public class AsyncFileReplicationBenchmark extends AbstractIoBenchmarkBase {
+
+    public static Logger LOG = LoggerFactory.getLogger(AsyncFileReplicationBenchmark.class);
+
+    @Getter
+    @State(Scope.Benchmark)
+    public static class BenchmarkState extends AbstractReplicationIoBenchmarkLifecycle {
+
+        private LatencyMetric ioLatencyMetric = new LatencyMetric(AsyncFileReplicationBenchmark.class.getName(), newLatencyReservoir(AsyncFileReplicationBenchmark.class.getName()));
+
+        //1MB, 10MB, 100MB
+        @Param({"1048576", "10485760", "104857600"})
+        protected int fileSize;
+
+        @Param({"1", "4", "16", "64"})
+        protected int queueDepth;
+
+        //128KB
+        @Param({"131072"})
+        protected int bufferSize;
+
+        private AsyncCopyEngine copyEngine;
+
+        @Override
+        public void preTrialSetUp() throws Exception {
+            super.preTrialSetUp();
+
+            // a handler thread per read and write in flight, as they issue the blocking pread / pwrite on Linux
+            copyEngine = new AsyncCopyEngine(queueDepth, bufferSize, 2 * queueDepth);
+        }
+
+        @Override
+        public void postTrialTearDown() throws Exception {
+            copyEngine.close();
+
+            super.postTrialTearDown();
+        }
+
+        @Override
+        @Setup(Level.Trial)
+        public void doTrialSetUp() throws Exception {
+            super.doTrialSetUp();
+        }
+
+        @Override
+        @TearDown(Level.Trial)
+        public void doTrialTearDown() throws Exception {
+            super.doTrialTearDown();
+
+            assert tempDir.exists() == false;
+        }
+
+        @Override
+        @Setup(Level.Iteration)
+        public void doIterationSetup() throws Exception {
+            super.doIterationSetup();
+        }
+
+        @Override
+        @TearDown(Level.Iteration)
+        public void doIterationTearDown() throws Exception {
+            super.doIterationTearDown();
+        }
+    }
+
+    @Benchmark
+    public void pipelinedAsyncCopy(BenchmarkState state, Blackhole blackhole) throws Exception {
+        Path srcPath = Paths.get(state.getFinPath());
+        Path dstPath = Paths.get(state.getFoutPath());
+
+        long beforeTime = System.nanoTime();
+
+        long bytesCopied = state.copyEngine.copy(srcPath, dstPath);
+
+        assert bytesCopied == state.getFileSize() && dstPath.toFile().length() == bytesCopied;
+
+        long afterTime = System.nanoTime();
+        state.ioLatencyMetric.addTime(afterTime - beforeTime, TimeUnit.NANOSECONDS);
+
+        blackhole.consume(bytesCopied);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(AsyncFileReplicationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("AsyncFileReplicationBenchmark-result.json")
+                .build();
+
+        new Runner(opt).run();
+    }
+
+}
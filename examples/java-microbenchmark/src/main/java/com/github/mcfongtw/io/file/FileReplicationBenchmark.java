@@ -37,7 +37,7 @@ public class FileReplicationBenchmark extends AbstractIoBenchmarkBase {
     @State(Scope.Benchmark)
     public static class BenchmarkState extends AbstractReplicationIoBenchmarkLifecycle {
 
-        private LatencyMetric ioLatencyMetric = new LatencyMetric(FileReplicationBenchmark.class.getName());
+        private LatencyMetric ioLatencyMetric = new LatencyMetric(FileReplicationBenchmark.class.getName(), newLatencyReservoir(FileReplicationBenchmark.class.getName()));
 
         //1MB, 10MB, 100MB
         @Param({"1048576", "10485760", "104857600"})
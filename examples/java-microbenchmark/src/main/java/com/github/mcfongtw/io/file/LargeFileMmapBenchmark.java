@@ -0,0 +1,165 @@
+package com.github.mcfongtw.io.file;
+
+import com.github.mcfongtw.hook.TempDirHook;
+import com.github.mcfongtw.io.AbstractIoBenchmarkBase;
+import com.github.mcfongtw.io.copy.MmapWindowCopier;
+import com.github.mcfongtw.metrics.LatencyMetric;
+import lombok.Getter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copy of files past 2 GB with {@link MmapWindowCopier}, across window sizes, with and without prefetch of the next
+ * window. Cold reads need -DevictPageCache=true; the default runs copy from a warm page cache if the files fit in it.
+ */
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5)
+@Warmup(iterations = 2)
+@Fork(1)
+@Threads(1)
+public class LargeFileMmapBenchmark extends AbstractIoBenchmarkBase {
+
+    public static Logger LOG = LoggerFactory.getLogger(LargeFileMmapBenchmark.class);
+
+    @Getter
+    @State(Scope.Benchmark)
+    public static class BenchmarkState extends AbstractIoBenchmarkLifecycle {
+
+        private LatencyMetric ioLatencyMetric = new LatencyMetric(LargeFileMmapBenchmark.class.getName(), newLatencyReservoir(LargeFileMmapBenchmark.class.getName()));
+
+        protected String finPath;
+
+        protected String foutPath;
+
+        protected File tempDir;
+
+        private final TempDirHook tempDirHook = registerTempDirHook();
+
+        //3GB, 6GB
+        @Param({"3221225472", "6442450944"})
+        protected long fileSize;
+
+        //16MB, 64MB, 256MB
+        @Param({"16777216", "67108864", "268435456"})
+        protected int windowSize;
+
+        @Param({"true", "false"})
+        protected boolean prefetch;
+
+        private MmapWindowCopier copier;
+
+        @Override
+        public void preTrialSetUp() throws Exception {
+            super.preTrialSetUp();
+
+            tempDir = tempDirHook.getTempDir();
+
+            finPath = tempDir.getAbsolutePath() + "/in.data";
+            foutPath = tempDir.getAbsolutePath() + "/out.data";
+
+            //Sequential data generation, a MB at a time
+            try(
+                    RandomAccessFile fin = new RandomAccessFile(finPath, "rw");
+                    FileChannel finChannel = fin.getChannel();
+            ) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(UNIT_ONE_MEGA);
+                for (int i = 0; i < UNIT_ONE_MEGA; i++) {
+                    buffer.put((byte) i);
+                }
+
+                for (long position = 0; position < fileSize; ) {
+                    buffer.rewind();
+                    buffer.limit((int) Math.min(UNIT_ONE_MEGA, fileSize - position));
+                    while (buffer.hasRemaining()) {
+                        position += finChannel.write(buffer, position);
+                    }
+                }
+                logger.debug("File [{}] generated with size [{}]", finPath, finChannel.size());
+
+                assert finChannel.size() == fileSize;
+            }
+
+            copier = new MmapWindowCopier(windowSize, prefetch);
+
+            logger.debug("Temp dir created at [{}]", tempDir.getAbsolutePath());
+            logger.debug("File created at [{}]", finPath);
+        }
+
+        @Override
+        public void postTrialTearDown() throws Exception {
+            copier.close();
+
+            super.postTrialTearDown();
+        }
+
+        @Override
+        @Setup(Level.Trial)
+        public void doTrialSetUp() throws Exception {
+            super.doTrialSetUp();
+        }
+
+        @Override
+        @TearDown(Level.Trial)
+        public void doTrialTearDown() throws Exception {
+            super.doTrialTearDown();
+
+            assert tempDir.exists() == false;
+        }
+
+        @Override
+        @Setup(Level.Iteration)
+        public void doIterationSetup() throws Exception {
+            super.doIterationSetup();
+        }
+
+        @Override
+        @TearDown(Level.Iteration)
+        public void doIterationTearDown() throws Exception {
+            super.doIterationTearDown();
+        }
+    }
+
+    @Benchmark
+    public void copyWithMmapWindow(BenchmarkState state, Blackhole blackhole) throws Exception {
+        Path srcPath = Paths.get(state.getFinPath());
+        Path dstPath = Paths.get(state.getFoutPath());
+
+        long beforeTime = System.nanoTime();
+
+        long bytesCopied = state.copier.copy(srcPath, dstPath);
+
+        assert bytesCopied == state.getFileSize() && dstPath.toFile().length() == bytesCopied;
+
+        long afterTime = System.nanoTime();
+        state.ioLatencyMetric.addTime(afterTime - beforeTime, TimeUnit.NANOSECONDS);
+
+        blackhole.consume(bytesCopied);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(LargeFileMmapBenchmark.class.getSimpleName())
+                .resultFormat(ResultFormatType.JSON)
+                .result("LargeFileMmapBenchmark-result.json")
+                .build();
+
+        new Runner(opt).run();
+    }
+
+}
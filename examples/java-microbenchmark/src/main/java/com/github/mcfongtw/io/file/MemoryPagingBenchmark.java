@@ -2,6 +2,8 @@ package com.github.mcfongtw.io.file;
 
 import com.github.mcfongtw.io.AbstractIoBenchmarkBase;
 import com.github.mcfongtw.metrics.LatencyMetric;
+import com.github.mcfongtw.metrics.ResourceMetric;
+import com.github.mcfongtw.profiler.PageResidencyProfiler;
 import lombok.Getter;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.results.format.ResultFormatType;
@@ -32,7 +34,14 @@ public class MemoryPagingBenchmark extends AbstractIoBenchmarkBase {
     @State(Scope.Benchmark)
     public static class BenchmarkState extends AbstractPagingIoBenchmarkLifecycle {
         private LatencyMetric ioLatencyMetric = new LatencyMetric(MemoryPagingBenchmark.class.getName());
-        
+
+        private ResourceMetric ioResourceMetric = new ResourceMetric(MemoryPagingBenchmark.class.getName());
+
+        /**
+         * With -DisResourceMetricEnabled=true, allocation and CPU time per copy, read within the measured code
+         */
+        private final boolean isResourceMetricEnabled = Boolean.valueOf(System.getProperty("isResourceMetricEnabled", "false"));
+
         //128, 1K, 4K, 128K, 1M
         @Param({"128", "4096", "131072", "1048576"})
         protected int fileSize;
@@ -54,6 +63,11 @@ public class MemoryPagingBenchmark extends AbstractIoBenchmarkBase {
             super.doTrialTearDown();
 
             assert tempDir.exists() == false;
+
+            if (isResourceMetricEnabled) {
+                logger.info("Per copy: allocated median [{}] bytes; cpu time median [{}] ns",
+                        new Object[]{ioResourceMetric.getAllocatedBytesSnapshot().getMedian(), ioResourceMetric.getCpuTimeSnapshot().getMedian()});
+            }
         }
 
         @Override
@@ -78,6 +92,9 @@ public class MemoryPagingBenchmark extends AbstractIoBenchmarkBase {
                     FileInputStream fin = new FileInputStream(finPath);
                     FileOutputStream fout = new FileOutputStream(foutPath);
             ) {
+                if (state.isResourceMetricEnabled) {
+                    state.ioResourceMetric.start();
+                }
                 long beforeTime = System.nanoTime();
 
                 byte[] buffer = new byte[state.BUFFER_SIZE];
@@ -89,6 +106,9 @@ public class MemoryPagingBenchmark extends AbstractIoBenchmarkBase {
                 assert new File(finPath).length() == new File(foutPath).length();
 
                 long afterTime = System.nanoTime();
+                if (state.isResourceMetricEnabled) {
+                    state.ioResourceMetric.stop();
+                }
                 state.ioLatencyMetric.addTime(afterTime - beforeTime, TimeUnit.NANOSECONDS);
             }
         }
@@ -103,6 +123,9 @@ public class MemoryPagingBenchmark extends AbstractIoBenchmarkBase {
                     BufferedInputStream fin = new BufferedInputStream(new FileInputStream(finPath), state.BUFFER_SIZE);
                     BufferedOutputStream fout = new BufferedOutputStream(new FileOutputStream(foutPath), state.BUFFER_SIZE);
             ) {
+                if (state.isResourceMetricEnabled) {
+                    state.ioResourceMetric.start();
+                }
                 long beforeTime = System.nanoTime();
 
                 int byteRead = 0;
@@ -114,6 +137,9 @@ public class MemoryPagingBenchmark extends AbstractIoBenchmarkBase {
                 assert new File(finPath).length() == new File(foutPath).length();
 
                 long afterTime = System.nanoTime();
+                if (state.isResourceMetricEnabled) {
+                    state.ioResourceMetric.stop();
+                }
                 state.ioLatencyMetric.addTime(afterTime - beforeTime, TimeUnit.NANOSECONDS);
             }
 
@@ -130,6 +156,9 @@ public class MemoryPagingBenchmark extends AbstractIoBenchmarkBase {
                     FileChannel finChannel = new FileInputStream(finPath).getChannel();
                     FileChannel foutChannel = new FileOutputStream(foutPath).getChannel();
             ) {
+                if (state.isResourceMetricEnabled) {
+                    state.ioResourceMetric.start();
+                }
                 long beforeTime = System.nanoTime();
                 int finLength = (int) finChannel.size();
 
@@ -157,6 +186,9 @@ public class MemoryPagingBenchmark extends AbstractIoBenchmarkBase {
                 assert finChannel.size() == foutChannel.size();
 
                 long afterTime = System.nanoTime();
+                if (state.isResourceMetricEnabled) {
+                    state.ioResourceMetric.stop();
+                }
                 state.ioLatencyMetric.addTime(afterTime - beforeTime, TimeUnit.NANOSECONDS);
             }
         }
@@ -181,6 +213,9 @@ public class MemoryPagingBenchmark extends AbstractIoBenchmarkBase {
                 MappedByteBuffer bufIn = finChannel.map(FileChannel.MapMode.READ_ONLY, 0, finLength);
                 MappedByteBuffer bufOut = foutChannel.map(FileChannel.MapMode.READ_WRITE, 0, finLength);
 
+                if (state.isResourceMetricEnabled) {
+                    state.ioResourceMetric.start();
+                }
                 long beforeTime = System.nanoTime();
 
                 for (int bufIndex = 0; bufIndex < finLength; ) {
@@ -204,6 +239,9 @@ public class MemoryPagingBenchmark extends AbstractIoBenchmarkBase {
                 assert fin.length() == fout.length();
 
                 long afterTime = System.nanoTime();
+                if (state.isResourceMetricEnabled) {
+                    state.ioResourceMetric.stop();
+                }
                 state.ioLatencyMetric.addTime(afterTime - beforeTime, TimeUnit.NANOSECONDS);
             }
         }
@@ -229,6 +267,9 @@ public class MemoryPagingBenchmark extends AbstractIoBenchmarkBase {
                 MappedByteBuffer bufIn = finChannel.map(FileChannel.MapMode.READ_ONLY, 0, finLength);
                 MappedByteBuffer bufOut = foutChannel.map(FileChannel.MapMode.READ_WRITE, 0, finLength);
 
+                if (state.isResourceMetricEnabled) {
+                    state.ioResourceMetric.start();
+                }
                 long beforeTime = System.nanoTime();
 
                 for (int bufIndex = 0; bufIndex < finLength; ) {
@@ -252,6 +293,9 @@ public class MemoryPagingBenchmark extends AbstractIoBenchmarkBase {
                 assert fin.length() == fout.length();
 
                 long afterTime = System.nanoTime();
+                if (state.isResourceMetricEnabled) {
+                    state.ioResourceMetric.stop();
+                }
                 state.ioLatencyMetric.addTime(afterTime - beforeTime, TimeUnit.NANOSECONDS);
             }
         }
@@ -268,6 +312,9 @@ public class MemoryPagingBenchmark extends AbstractIoBenchmarkBase {
                     RandomAccessFile fout = new RandomAccessFile(foutPath, "rw");
 
             ) {
+                if (state.isResourceMetricEnabled) {
+                    state.ioResourceMetric.start();
+                }
                 long beforeTime = System.nanoTime();
 
                 byte[] buffer = new byte[state.BUFFER_SIZE];
@@ -287,6 +334,9 @@ public class MemoryPagingBenchmark extends AbstractIoBenchmarkBase {
                 assert fin.length() == fout.length();
 
                 long afterTime = System.nanoTime();
+                if (state.isResourceMetricEnabled) {
+                    state.ioResourceMetric.stop();
+                }
                 state.ioLatencyMetric.addTime(afterTime - beforeTime, TimeUnit.NANOSECONDS);
             }
         }
@@ -302,6 +352,9 @@ public class MemoryPagingBenchmark extends AbstractIoBenchmarkBase {
                     RandomAccessFile fout = new RandomAccessFile(foutPath, "rws");
 
             ) {
+                if (state.isResourceMetricEnabled) {
+                    state.ioResourceMetric.start();
+                }
                 long beforeTime = System.nanoTime();
 
                 byte[] buffer = new byte[state.BUFFER_SIZE];
@@ -321,6 +374,9 @@ public class MemoryPagingBenchmark extends AbstractIoBenchmarkBase {
                 assert fin.length() == fout.length();
 
                 long afterTime = System.nanoTime();
+                if (state.isResourceMetricEnabled) {
+                    state.ioResourceMetric.stop();
+                }
                 state.ioLatencyMetric.addTime(afterTime - beforeTime, TimeUnit.NANOSECONDS);
             }
         }
@@ -340,6 +396,9 @@ public class MemoryPagingBenchmark extends AbstractIoBenchmarkBase {
 
                 int fromLength = (int) fromChannel.size();
 
+                if (state.isResourceMetricEnabled) {
+                    state.ioResourceMetric.start();
+                }
                 long beforeTime = System.nanoTime();
 
                 for (int toIndex = 0; toIndex < fromLength; ) {
@@ -366,6 +425,9 @@ public class MemoryPagingBenchmark extends AbstractIoBenchmarkBase {
                 assert fromFile.length() == toFile.length();
 
                 long afterTime = System.nanoTime();
+                if (state.isResourceMetricEnabled) {
+                    state.ioResourceMetric.stop();
+                }
                 state.ioLatencyMetric.addTime(afterTime - beforeTime, TimeUnit.NANOSECONDS);
             }
         }
@@ -385,6 +447,9 @@ public class MemoryPagingBenchmark extends AbstractIoBenchmarkBase {
 
                 int fromLength = (int) fromChannel.size();
 
+                if (state.isResourceMetricEnabled) {
+                    state.ioResourceMetric.start();
+                }
                 long beforeTime = System.nanoTime();
 
                 for (int toIndex = 0; toIndex < fromLength; ) {
@@ -411,6 +476,9 @@ public class MemoryPagingBenchmark extends AbstractIoBenchmarkBase {
                 assert fromFile.length() == toFile.length();
 
                 long afterTime = System.nanoTime();
+                if (state.isResourceMetricEnabled) {
+                    state.ioResourceMetric.stop();
+                }
                 state.ioLatencyMetric.addTime(afterTime - beforeTime, TimeUnit.NANOSECONDS);
             }
         }
@@ -422,6 +490,7 @@ public class MemoryPagingBenchmark extends AbstractIoBenchmarkBase {
         //curl -XPOST 'http://localhost:8086/query' --data-urlencode 'q=CREATE DATABASE "demo"'
         Options opt = new OptionsBuilder()
                 .include(MemoryPagingBenchmark.class.getSimpleName())
+                .addProfiler(PageResidencyProfiler.class)
                 .resultFormat(ResultFormatType.JSON)
                 .result("MemoryPagingBenchmark-result.json")
                 .build();
@@ -0,0 +1,128 @@
+package com.github.mcfongtw.io.file;
+
+import com.github.mcfongtw.io.AbstractIoBenchmarkBase;
+import com.github.mcfongtw.io.copy.ParallelRangeCopier;
+import com.github.mcfongtw.metrics.LatencyMetric;
+import lombok.Getter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link ParallelRangeCopier} across thread counts, for the file sizes of {@link FileReplicationBenchmark},
+ * whose copies are all single-threaded; bytes per second is the score times fileSize. threads = 1 is the single-threaded
+ * baseline of each method. Durable copies with -p fsync=true.
+ */
+@BenchmarkMode({Mode.Throughput})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Measurement(iterations = 20)
+@Warmup(iterations = 5)
+@Fork(3)
+@Threads(1)
+public class ParallelFileReplicationBenchmark extends AbstractIoBenchmarkBase {
+
+    public static Logger LOG = LoggerFactory.getLogger(ParallelFileReplicationBenchmark.class);
+
+    @Getter
+    @State(Scope.Benchmark)
+    public static class BenchmarkState extends AbstractReplicationIoBenchmarkLifecycle {
+
+        private LatencyMetric ioLatencyMetric = new LatencyMetric(ParallelFileReplicationBenchmark.class.getName(), newLatencyReservoir(ParallelFileReplicationBenchmark.class.getName()));
+
+        //1MB, 10MB, 100MB
+        @Param({"1048576", "10485760", "104857600"})
+        protected int fileSize;
+
+        @Param({"1", "2", "4", "8"})
+        protected int threads;
+
+        @Param({"TRANSFER_TO", "READ_WRITE"})
+        protected ParallelRangeCopier.Method method;
+
+        @Param({"false"})
+        protected boolean fsync;
+
+        private ParallelRangeCopier copier;
+
+        @Override
+        public void preTrialSetUp() throws Exception {
+            super.preTrialSetUp();
+
+            //1MB buffer per thread, for READ_WRITE
+            copier = new ParallelRangeCopier(threads, method, fsync, UNIT_ONE_MEGA);
+        }
+
+        @Override
+        public void postTrialTearDown() throws Exception {
+            copier.close();
+
+            super.postTrialTearDown();
+        }
+
+        @Override
+        @Setup(Level.Trial)
+        public void doTrialSetUp() throws Exception {
+            super.doTrialSetUp();
+        }
+
+        @Override
+        @TearDown(Level.Trial)
+        public void doTrialTearDown() throws Exception {
+            super.doTrialTearDown();
+
+            assert tempDir.exists() == false;
+        }
+
+        @Override
+        @Setup(Level.Iteration)
+        public void doIterationSetup() throws Exception {
+            super.doIterationSetup();
+        }
+
+        @Override
+        @TearDown(Level.Iteration)
+        public void doIterationTearDown() throws Exception {
+            super.doIterationTearDown();
+        }
+    }
+
+    @Benchmark
+    public void parallelRangeCopy(BenchmarkState state, Blackhole blackhole) throws Exception {
+        Path srcPath = Paths.get(state.getFinPath());
+        Path dstPath = Paths.get(state.getFoutPath());
+
+        long beforeTime = System.nanoTime();
+
+        long bytesCopied = state.copier.copy(srcPath, dstPath);
+
+        assert bytesCopied == state.getFileSize() && dstPath.toFile().length() == bytesCopied;
+
+        long afterTime = System.nanoTime();
+        state.ioLatencyMetric.addTime(afterTime - beforeTime, TimeUnit.NANOSECONDS);
+
+        blackhole.consume(bytesCopied);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(ParallelFileReplicationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("ParallelFileReplicationBenchmark-result.json")
+                .build();
+
+        new Runner(opt).run();
+    }
+
+}
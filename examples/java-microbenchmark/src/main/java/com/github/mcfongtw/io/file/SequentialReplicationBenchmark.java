@@ -2,6 +2,7 @@ package com.github.mcfongtw.io.file;
 
 import com.github.mcfongtw.io.AbstractIoBenchmarkBase;
 import com.github.mcfongtw.io.InfluxdbLatencyMetric;
+import com.github.mcfongtw.profiler.PageResidencyProfiler;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.results.format.ResultFormatType;
 import org.openjdk.jmh.runner.Runner;
@@ -34,7 +35,7 @@ public class SequentialReplicationBenchmark extends AbstractIoBenchmarkBase {
     @State(Scope.Benchmark)
     public static class BenchmarkState extends AbstractSequentialIoBenchmarkLifecycle {
 
-        InfluxdbLatencyMetric ioLatencyMetric = new InfluxdbLatencyMetric(SequentialReplicationBenchmark.class.getName());
+        InfluxdbLatencyMetric ioLatencyMetric = new InfluxdbLatencyMetric(SequentialReplicationBenchmark.class.getName(), newLatencyReservoir(SequentialReplicationBenchmark.class.getName()));
 
         //32, 256, 1k, 8k, 100k
         @Param({"32", "256", "1024", "8192", "102400"})
@@ -365,6 +366,7 @@ public class SequentialReplicationBenchmark extends AbstractIoBenchmarkBase {
         //curl -XPOST 'http://localhost:8086/query' --data-urlencode 'q=CREATE DATABASE "demo"'
         Options opt = new OptionsBuilder()
                 .include(SequentialReplicationBenchmark.class.getSimpleName())
+                .addProfiler(PageResidencyProfiler.class)
                 .resultFormat(ResultFormatType.JSON)
                 .result("SequentialReplicationBenchmark-result.json")
                 .build();
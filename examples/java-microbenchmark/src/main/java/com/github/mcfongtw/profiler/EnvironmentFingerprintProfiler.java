@@ -0,0 +1,79 @@
+package com.github.mcfongtw.profiler;
+
+import com.github.mcfongtw.EnvironmentFingerprint;
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.profile.ProfilerException;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Capture the {@link EnvironmentFingerprint} of a fork before its first iteration, i.e. before any @Setup and the page
+ * cache as the benchmark finds it, and write it to one file per benchmark, mode and @Param values, see
+ * {@link EnvironmentFingerprint#getFile(File, BenchmarkParams)}:
+ *
+ * <pre>
+ * -prof com.github.mcfongtw.profiler.EnvironmentFingerprintProfiler:dir=fingerprints
+ * </pre>
+ *
+ * Added by {@link com.github.mcfongtw.BenchmarkRunner} and {@link com.github.mcfongtw.ParallelForkScheduler}, which
+ * then embed each file into the results of its own benchmark only. Unlike a @State, it runs for every benchmark, with
+ * or without a lifecycle state. The forks of a benchmark overwrite each other's fingerprint, which only differ in
+ * volatile values.
+ */
+public class EnvironmentFingerprintProfiler implements InternalProfiler {
+
+    /**
+     * Fingerprints written by this JVM, i.e. one per fork, or one per benchmark with -f 0
+     */
+    private static final Set<File> writtenFiles = new HashSet<>();
+
+    private final File dir;
+
+    public EnvironmentFingerprintProfiler(String initLine) throws ProfilerException {
+        String[] keyValue = StringUtils.split(StringUtils.defaultString(initLine), "=", 2);
+        if (keyValue.length != 2 || !"dir".equals(keyValue[0].trim())) {
+            throw new ProfilerException("Invalid options [" + initLine + "], expected dir=<dir>");
+        }
+
+        dir = new File(keyValue[1].trim());
+    }
+
+    @Override
+    public String getDescription() {
+        return "Environment fingerprint of each fork, written to a file per benchmark and @Param values";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        File file = EnvironmentFingerprint.getFile(dir, benchmarkParams);
+        synchronized (writtenFiles) {
+            if (!writtenFiles.add(file)) {
+                return;
+            }
+        }
+
+        try {
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Failed to create [" + dir + "]");
+            }
+            EnvironmentFingerprint.capture().write(file);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write environment fingerprint to [" + file + "]", e);
+        }
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams, IterationResult result) {
+        return Collections.emptyList();
+    }
+}
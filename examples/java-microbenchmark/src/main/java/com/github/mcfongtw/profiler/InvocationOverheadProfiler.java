@@ -0,0 +1,75 @@
+package com.github.mcfongtw.profiler;
+
+import com.github.mcfongtw.hook.InvocationOverheadCalibrationHook;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Level.Invocation overhead per invocation, in ns, as secondary result {@code invocation.overhead}:
+ *
+ * <pre>
+ * -prof com.github.mcfongtw.profiler.InvocationOverheadProfiler
+ * </pre>
+ *
+ * The overhead is calibrated on trial set up by the {@link InvocationOverheadCalibrationHook} of the state, against an
+ * empty state; benchmarks without such a hook report nothing. It is the cost of the timer calls and the empty fixture
+ * chain JMH adds around each invocation, not of the state's own fixtures, which are left out of the score: compare it
+ * with the time per operation, a benchmark of the same order measures mostly the timer. Added by {@link com.github.mcfongtw.BenchmarkRunner} and
+ * {@link com.github.mcfongtw.ParallelForkScheduler}.
+ */
+public class InvocationOverheadProfiler implements InternalProfiler {
+
+    private static final Object lock = new Object();
+
+    private static String benchmarkId;
+
+    private static double overheadSum;
+
+    private static int overheadCount;
+
+    /**
+     * Overhead calibrated by a state; averaged over states and threads
+     */
+    public static void recordOverhead(double overheadInNanos) {
+        synchronized (lock) {
+            overheadSum += overheadInNanos;
+            overheadCount++;
+        }
+    }
+
+    @Override
+    public String getDescription() {
+        return "Level.Invocation overhead per invocation, calibrated on trial set up";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        synchronized (lock) {
+            // calibrated once per trial, i.e. kept across the iterations of a benchmark, but not with -f 0 across them
+            if (!benchmarkParams.id().equals(benchmarkId)) {
+                benchmarkId = benchmarkParams.id();
+                overheadSum = 0;
+                overheadCount = 0;
+            }
+        }
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams, IterationResult result) {
+        synchronized (lock) {
+            if (overheadCount == 0) {
+                return Collections.emptyList();
+            }
+
+            return Collections.singletonList(new ScalarResult("\u00b7invocation.overhead", overheadSum / overheadCount, "ns", AggregationPolicy.AVG));
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.github.mcfongtw.profiler;
+
+import com.github.mcfongtw.hook.PageResidencyHook;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Page cache residency of the benchmark's input files, in percent of their pages, before and after each iteration,
+ * as secondary results {@code residency.before} / {@code residency.after}:
+ *
+ * <pre>
+ * -prof com.github.mcfongtw.profiler.PageResidencyProfiler
+ * </pre>
+ *
+ * The residency is measured by the {@link PageResidencyHook} of the state, with mincore(), and only while this
+ * profiler is enabled; benchmarks without such a hook report nothing. A warm cache shows as ~100% before, a cold one,
+ * i.e. with -DevictPageCache=true, as 0%.
+ */
+public class PageResidencyProfiler implements InternalProfiler {
+
+    private static final Object lock = new Object();
+
+    private static boolean isRecording;
+
+    private static double beforeSum;
+
+    private static int beforeCount;
+
+    private static double afterSum;
+
+    private static int afterCount;
+
+    /**
+     * @return true during an iteration of a benchmark profiled by this profiler
+     */
+    public static boolean isRecording() {
+        synchronized (lock) {
+            return isRecording;
+        }
+    }
+
+    /**
+     * Residency of a state's files on iteration set up; averaged over states and threads
+     */
+    public static void recordBefore(double residencyInPercent) {
+        synchronized (lock) {
+            beforeSum += residencyInPercent;
+            beforeCount++;
+        }
+    }
+
+    /**
+     * Residency of a state's files on iteration tear down; averaged over states and threads
+     */
+    public static void recordAfter(double residencyInPercent) {
+        synchronized (lock) {
+            afterSum += residencyInPercent;
+            afterCount++;
+        }
+    }
+
+    @Override
+    public String getDescription() {
+        return "Page cache residency of the benchmark input files before / after each iteration, via mincore()";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        synchronized (lock) {
+            beforeSum = 0;
+            beforeCount = 0;
+            afterSum = 0;
+            afterCount = 0;
+            isRecording = true;
+        }
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams, IterationResult result) {
+        synchronized (lock) {
+            isRecording = false;
+
+            List<Result> results = new ArrayList<>();
+            if (beforeCount > 0) {
+                results.add(new ScalarResult("\u00b7residency.before", beforeSum / beforeCount, "%", AggregationPolicy.AVG));
+            }
+            if (afterCount > 0) {
+                results.add(new ScalarResult("\u00b7residency.after", afterSum / afterCount, "%", AggregationPolicy.AVG));
+            }
+
+            return results;
+        }
+    }
+}
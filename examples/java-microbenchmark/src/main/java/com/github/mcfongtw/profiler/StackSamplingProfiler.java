@@ -0,0 +1,422 @@
+package com.github.mcfongtw.profiler;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.ExternalProfiler;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.profile.ProfilerException;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.BenchmarkResult;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+import org.openjdk.jmh.runner.IterationType;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Sample the stacks of the benchmark threads during measurement iterations, with {@link ThreadMXBean} only, i.e. no
+ * agent, and write them as collapsed stacks, one file per benchmark, mode and @Param values, ready for flamegraph.pl:
+ *
+ * <pre>
+ * -prof com.github.mcfongtw.profiler.StackSamplingProfiler:interval=10;dir=stacks;state=all
+ * </pre>
+ *
+ * <ul>
+ *     <li>interval: sampling interval in millis, default 10</li>
+ *     <li>dir: output dir, default "stacks"</li>
+ *     <li>state: "runnable" (default) to count RUNNABLE threads only, i.e. on CPU, or "all" for wall-clock</li>
+ * </ul>
+ *
+ * Each fork samples into its own file; the samples of all forks of a benchmark are then merged into
+ * {@code <dir>/<benchmark>-<mode>[-<param>=<value>...].collapsed}.
+ *
+ * Opt-in: with -prof as above, i.e. to BenchmarkRunner, or with -DstackSampling=true to the main() of a benchmark,
+ * see {@link #isEnabled()}.
+ *
+ * NOTE: samples are taken at safepoints, so hot loops without one are attributed to the nearest safepoint poll.
+ */
+public class StackSamplingProfiler implements InternalProfiler, ExternalProfiler {
+
+    /**
+     * File of the samples of a fork, set by the host JVM
+     */
+    static final String FILE_PROPERTY = "benchmark.stacks.file";
+
+    /**
+     * Enables this profiler in the main() of a benchmark, see {@link #isEnabled()}
+     */
+    public static final String ENABLED_PROPERTY = "stackSampling";
+
+    private static final String WORKER_THREAD_MARKER = "-jmh-worker-";
+
+    private static final int MAX_STACK_DEPTH = 256;
+
+    private final long intervalInMillis;
+
+    private final File dir;
+
+    private final boolean isRunnableOnly;
+
+    ////////////[Fork]////////////////////////
+
+    /**
+     * Samples of all measurement iterations of this fork
+     */
+    private final Map<String, Long> forkSamples = new HashMap<>();
+
+    private Sampler sampler;
+
+    ////////////[Host]////////////////////////
+
+    /**
+     * Samples of all forks, by output file
+     */
+    private final Map<File, Map<String, Long>> mergedSamples = new HashMap<>();
+
+    private File forkFile;
+
+    /**
+     * @return true if -DstackSampling=true, i.e. for the main() of a benchmark to add this profiler
+     */
+    public static boolean isEnabled() {
+        return Boolean.valueOf(System.getProperty(ENABLED_PROPERTY, "false"));
+    }
+
+    public StackSamplingProfiler() throws ProfilerException {
+        this("");
+    }
+
+    public StackSamplingProfiler(String initLine) throws ProfilerException {
+        long interval = 10;
+        String dirName = "stacks";
+        String state = "runnable";
+
+        for (String option : StringUtils.split(StringUtils.defaultString(initLine), ';')) {
+            String[] keyValue = StringUtils.split(option, "=", 2);
+            if (keyValue.length != 2) {
+                throw new ProfilerException("Invalid option [" + option + "], expected <key>=<value>");
+            }
+
+            String key = keyValue[0].trim();
+            String value = keyValue[1].trim();
+            if ("interval".equals(key)) {
+                try {
+                    interval = Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                    throw new ProfilerException("Invalid interval [" + value + "]");
+                }
+            } else if ("dir".equals(key)) {
+                dirName = value;
+            } else if ("state".equals(key)) {
+                state = value;
+            } else {
+                throw new ProfilerException("Unknown option [" + key + "], expected interval / dir / state");
+            }
+        }
+
+        if (interval < 1) {
+            throw new ProfilerException("Invalid interval [" + interval + "]");
+        }
+        if (!"runnable".equals(state) && !"all".equals(state)) {
+            throw new ProfilerException("Invalid state [" + state + "], expected runnable / all");
+        }
+
+        intervalInMillis = interval;
+        dir = new File(dirName);
+        isRunnableOnly = "runnable".equals(state);
+    }
+
+    @Override
+    public String getDescription() {
+        return "Stack sampling of the benchmark threads, written as collapsed stacks for flame graphs";
+    }
+
+    ////////////[InternalProfiler, in the fork]////////////////////////
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        if (iterationParams.getType() != IterationType.MEASUREMENT) {
+            return;
+        }
+
+        sampler = new Sampler(intervalInMillis, isRunnableOnly);
+        sampler.start();
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams, IterationResult result) {
+        if (sampler == null) {
+            return Collections.emptyList();
+        }
+
+        Map<String, Long> samples = sampler.stopSampling();
+        sampler = null;
+
+        long numSamples = merge(forkSamples, samples);
+
+        String path = System.getProperty(FILE_PROPERTY);
+        // no fork, i.e. -f 0: nothing to merge with
+        File file = path != null ? new File(path) : getOutputFile(benchmarkParams);
+        try {
+            write(forkSamples, file);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write stacks to [" + file + "]", e);
+        }
+
+        return Collections.singletonList(new ScalarResult("\u00b7stacks.samples", numSamples, "#", AggregationPolicy.AVG));
+    }
+
+    ////////////[ExternalProfiler, in the host]////////////////////////
+
+    @Override
+    public Collection<String> addJVMInvokeOptions(BenchmarkParams params) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Collection<String> addJVMOptions(BenchmarkParams params) {
+        try {
+            forkFile = File.createTempFile("stacks", ".collapsed");
+            forkFile.deleteOnExit();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to create the stacks file of a fork", e);
+        }
+
+        return Collections.singletonList("-D" + FILE_PROPERTY + "=" + forkFile.getAbsolutePath());
+    }
+
+    @Override
+    public void beforeTrial(BenchmarkParams benchmarkParams) {
+        //no-op
+    }
+
+    @Override
+    public Collection<? extends Result> afterTrial(BenchmarkResult br, long pid, File stdOut, File stdErr) {
+        if (forkFile == null) {
+            return Collections.emptyList();
+        }
+
+        File outputFile = getOutputFile(br.getParams());
+        Map<String, Long> samples = mergedSamples.get(outputFile);
+        if (samples == null) {
+            samples = new HashMap<>();
+            mergedSamples.put(outputFile, samples);
+        }
+
+        try {
+            merge(samples, read(forkFile));
+            write(samples, outputFile);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to merge stacks into [" + outputFile + "]", e);
+        } finally {
+            forkFile.delete();
+            forkFile = null;
+        }
+
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean allowPrintOut() {
+        return true;
+    }
+
+    @Override
+    public boolean allowPrintErr() {
+        return true;
+    }
+
+    ////////////[Collapsed stacks]////////////////////////
+
+    /**
+     * @return i.e. {@code stacks/com.github.mcfongtw.CommonHashBenchmark.measureSha256-thrpt.collapsed}
+     */
+    File getOutputFile(BenchmarkParams params) {
+        StringBuilder name = new StringBuilder(params.getBenchmark()).append('-').append(params.getMode().shortLabel());
+        for (String key : params.getParamsKeys()) {
+            name.append('-').append(key).append('=').append(params.getParam(key));
+        }
+
+        return new File(dir, name.toString().replaceAll("[^A-Za-z0-9._=-]", "_") + ".collapsed");
+    }
+
+    /**
+     * @return i.e. {@code java.lang.Thread.run;com.github.mcfongtw.Foo.bar}, root first
+     */
+    static String collapse(StackTraceElement[] stack) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = stack.length - 1; i >= 0; i--) {
+            sb.append(stack[i].getClassName()).append('.').append(stack[i].getMethodName());
+            if (i > 0) {
+                sb.append(';');
+            }
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * @return number of samples added
+     */
+    static long merge(Map<String, Long> to, Map<String, Long> from) {
+        long numSamples = 0;
+        for (Map.Entry<String, Long> entry : from.entrySet()) {
+            Long count = to.get(entry.getKey());
+            to.put(entry.getKey(), count == null ? entry.getValue() : count + entry.getValue());
+            numSamples += entry.getValue();
+        }
+
+        return numSamples;
+    }
+
+    /**
+     * Write as {@code <frame>;<frame>;... <count>} lines, most frequent first
+     */
+    static void write(Map<String, Long> samples, File file) throws IOException {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(samples.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, Long>>() {
+            @Override
+            public int compare(Map.Entry<String, Long> e1, Map.Entry<String, Long> e2) {
+                int byCount = Long.compare(e2.getValue(), e1.getValue());
+                return byCount != 0 ? byCount : e1.getKey().compareTo(e2.getKey());
+            }
+        });
+
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : entries) {
+            lines.add(entry.getKey() + " " + entry.getValue());
+        }
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Failed to create [" + parent + "]");
+        }
+
+        // never leave a half written file behind
+        File tempFile = new File(parent, file.getName() + ".tmp");
+        Files.write(tempFile.toPath(), lines, StandardCharsets.UTF_8);
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    static Map<String, Long> read(File file) throws IOException {
+        Map<String, Long> samples = new HashMap<>();
+        if (!file.exists()) {
+            return samples;
+        }
+
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            int separator = line.lastIndexOf(' ');
+            if (separator <= 0) {
+                continue;
+            }
+
+            try {
+                merge(samples, Collections.singletonMap(line.substring(0, separator), Long.parseLong(line.substring(separator + 1))));
+            } catch (NumberFormatException e) {
+                // not a sample line
+            }
+        }
+
+        return samples;
+    }
+
+    /**
+     * Daemon thread sampling the JMH worker threads every interval
+     */
+    private static class Sampler extends Thread {
+
+        private final long intervalInMillis;
+
+        private final boolean isRunnableOnly;
+
+        private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+        private final Map<String, Long> samples = new HashMap<>();
+
+        private volatile boolean isRunning = true;
+
+        Sampler(long intervalInMillis, boolean isRunnableOnly) {
+            super("stack-sampler");
+            this.intervalInMillis = intervalInMillis;
+            this.isRunnableOnly = isRunnableOnly;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (isRunning) {
+                sample();
+
+                try {
+                    Thread.sleep(intervalInMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        private void sample() {
+            long[] workerIds = findWorkerIds();
+            if (workerIds.length == 0) {
+                return;
+            }
+
+            // one safepoint for all workers
+            for (ThreadInfo info : threadBean.getThreadInfo(workerIds, MAX_STACK_DEPTH)) {
+                if (info == null || info.getStackTrace().length == 0) {
+                    continue;
+                }
+                if (isRunnableOnly && info.getThreadState() != Thread.State.RUNNABLE) {
+                    continue;
+                }
+
+                merge(samples, Collections.singletonMap(collapse(info.getStackTrace()), 1L));
+            }
+        }
+
+        private long[] findWorkerIds() {
+            ThreadGroup root = Thread.currentThread().getThreadGroup();
+            while (root.getParent() != null) {
+                root = root.getParent();
+            }
+
+            Thread[] threads = new Thread[root.activeCount() * 2 + 1];
+            int numThreads = root.enumerate(threads, true);
+
+            long[] ids = new long[numThreads];
+            int numWorkers = 0;
+            for (int i = 0; i < numThreads; i++) {
+                if (threads[i].getName().contains(WORKER_THREAD_MARKER)) {
+                    ids[numWorkers++] = threads[i].getId();
+                }
+            }
+
+            return Arrays.copyOf(ids, numWorkers);
+        }
+
+        /**
+         * @return samples taken
+         */
+        Map<String, Long> stopSampling() {
+            isRunning = false;
+            interrupt();
+            try {
+                join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            return samples;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.github.mcfongtw.store;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One column of a {@link ResultStore}: an append-only file of fixed width values, row i at offset i * width, so that a
+ * row is read without reading the rows before it, and the number of rows is the file size / width.
+ */
+class Column implements Closeable {
+
+    static final int INT_WIDTH = 4;
+
+    static final int LONG_WIDTH = 8;
+
+    static final int DOUBLE_WIDTH = 8;
+
+    private final String name;
+
+    private final int width;
+
+    private final FileChannel channel;
+
+    private final ByteBuffer value;
+
+    Column(File dir, String name, int width) throws IOException {
+        this.name = name;
+        this.width = width;
+        this.channel = FileChannel.open(new File(dir, name + ".col").toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.value = ByteBuffer.allocate(width);
+    }
+
+    /**
+     * @return complete rows, a partially written one excluded
+     */
+    long getRowCount() throws IOException {
+        return channel.size() / width;
+    }
+
+    /**
+     * Drop the rows from {@code rows} on, i.e. those of an append which did not complete in all columns
+     */
+    void truncate(long rows) throws IOException {
+        if (channel.size() > rows * width) {
+            channel.truncate(rows * width);
+        }
+    }
+
+    ByteBuffer allocate(int rows) {
+        return ByteBuffer.allocate(rows * width);
+    }
+
+    /**
+     * Append rows, filled in by {@link #allocate(int)}, and sync them to disk
+     */
+    void append(ByteBuffer rows) throws IOException {
+        rows.flip();
+        long position = channel.size();
+        while (rows.hasRemaining()) {
+            position += channel.write(rows, position);
+        }
+        channel.force(false);
+    }
+
+    private ByteBuffer read(long row) throws IOException {
+        value.clear();
+        long position = row * width;
+        while (value.hasRemaining()) {
+            if (channel.read(value, position + value.position()) < 0) {
+                throw new IOException("Row [" + row + "] beyond the end of column [" + name + "]");
+            }
+        }
+        value.flip();
+
+        return value;
+    }
+
+    int readInt(long row) throws IOException {
+        return read(row).getInt();
+    }
+
+    long readLong(long row) throws IOException {
+        return read(row).getLong();
+    }
+
+    double readDouble(long row) throws IOException {
+        return read(row).getDouble();
+    }
+
+    /**
+     * Scan the whole column of int values
+     */
+    int[] readInts(long rows) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (rows * width));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                throw new IOException("Column [" + name + "] has less than [" + rows + "] rows");
+            }
+        }
+        buffer.flip();
+
+        int[] values = new int[(int) rows];
+        buffer.asIntBuffer().get(values);
+
+        return values;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,122 @@
+package com.github.mcfongtw.store;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * The strings of a {@link ResultStore}, i.e. benchmark names, params and environments, each stored once and referred to
+ * by its index from the int columns. The file is append-only: length prefixed UTF-8, in order of index.
+ */
+class Dictionary implements Closeable {
+
+    private final FileChannel channel;
+
+    private final List<String> values = new ArrayList<>();
+
+    private final Map<String, Integer> indexes = new HashMap<>();
+
+    /**
+     * Added by {@link #indexOf(String)}, but not yet written
+     */
+    private final List<String> pending = new ArrayList<>();
+
+    Dictionary(File dir) throws IOException {
+        this.channel = FileChannel.open(new File(dir, "dictionary.bin").toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        ByteBuffer content = ByteBuffer.allocate((int) channel.size());
+        while (content.hasRemaining() && channel.read(content, content.position()) >= 0) {
+            // read fully
+        }
+        content.flip();
+
+        while (content.remaining() >= 4) {
+            int length = content.getInt(content.position());
+            if (length < 0 || content.remaining() - 4 < length) {
+                break;
+            }
+            content.getInt();
+            byte[] bytes = new byte[length];
+            content.get(bytes);
+            add(new String(bytes, StandardCharsets.UTF_8));
+        }
+
+        // an entry partially written by an append which did not complete
+        channel.truncate(content.position());
+    }
+
+    private int add(String value) {
+        int index = values.size();
+        values.add(value);
+        indexes.put(value, index);
+
+        return index;
+    }
+
+    /**
+     * @return index of the value, added if new; written by {@link #flush()}
+     */
+    int indexOf(String value) {
+        Integer index = indexes.get(value);
+        if (index != null) {
+            return index;
+        }
+
+        pending.add(value);
+
+        return add(value);
+    }
+
+    String get(int index) {
+        if (index < 0 || index >= values.size()) {
+            throw new IllegalStateException("No dictionary entry [" + index + "], the store is corrupt");
+        }
+
+        return values.get(index);
+    }
+
+    int size() {
+        return values.size();
+    }
+
+    /**
+     * Write the values added since the last flush, before any row refers to them
+     */
+    void flush() throws IOException {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<byte[]> entries = new ArrayList<>();
+        int length = 0;
+        for (String value : pending) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            entries.add(bytes);
+            length += 4 + bytes.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        for (byte[] bytes : entries) {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+        buffer.flip();
+
+        long position = channel.size();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        channel.force(false);
+        pending.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
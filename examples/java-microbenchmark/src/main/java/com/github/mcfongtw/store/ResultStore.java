@@ -0,0 +1,468 @@
+package com.github.mcfongtw.store;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.github.mcfongtw.EnvironmentFingerprint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Embedded, append-only store of JMH results, to follow scores over runs without an InfluxDB server:
+ *
+ * <pre>
+ * java -cp BenchmarkRunner-jmh-1.20.jar com.github.mcfongtw.store.ResultStore ingest [-label &lt;label&gt;] &lt;store dir&gt; &lt;result.json&gt;...
+ * java -cp BenchmarkRunner-jmh-1.20.jar com.github.mcfongtw.store.ResultStore query [-last 30] [-p &lt;param&gt;=&lt;value&gt;]* &lt;store dir&gt; &lt;benchmark regexp&gt;
+ * java -cp BenchmarkRunner-jmh-1.20.jar com.github.mcfongtw.store.ResultStore html [-last 30] [-p &lt;param&gt;=&lt;value&gt;]* [-o &lt;file&gt;] &lt;store dir&gt; [benchmark regexp]
+ * </pre>
+ *
+ * or {@code BenchmarkRunner -store <store dir>} to ingest each run as it completes. Each ingested JSON result file is a
+ * run; each result, and each secondary metric as {@code <benchmark>:<metric>}, a row.
+ *
+ * Rows are stored by column, one file of fixed width values per column, strings as indexes into a {@link Dictionary}:
+ * some 50 bytes a row, and a query scans the benchmark column only, reading the other columns of matching rows. An
+ * append writes the dictionary first, then the columns; rows not complete in all columns are dropped on open. The store
+ * is locked by the process which opened it.
+ */
+public class ResultStore implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResultStore.class);
+
+    public static final int DEFAULT_LAST_RUNS = 30;
+
+    private static final String USAGE = "Usage: ResultStore ingest [-label <label>] <store dir> <result.json>...\n"
+            + "       ResultStore query [-last <runs>] [-p <param>=<value>]* <store dir> <benchmark regexp>\n"
+            + "       ResultStore html [-last <runs>] [-p <param>=<value>]* [-o <file>] <store dir> [benchmark regexp]";
+
+    /**
+     * No environment recorded
+     */
+    static final int NO_ENVIRONMENT = -1;
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final File dir;
+
+    private final FileChannel lockChannel;
+
+    private final FileLock lock;
+
+    private final Dictionary dictionary;
+
+    private final Column runColumn;
+
+    private final Column timestampColumn;
+
+    private final Column labelColumn;
+
+    private final Column benchmarkColumn;
+
+    private final Column modeColumn;
+
+    private final Column paramsColumn;
+
+    private final Column unitColumn;
+
+    private final Column scoreColumn;
+
+    private final Column scoreErrorColumn;
+
+    private final Column environmentColumn;
+
+    private final List<Column> columns;
+
+    private long rowCount;
+
+    private int lastRun;
+
+    /**
+     * Decoded params, by dictionary index
+     */
+    private final Map<Integer, SortedMap<String, String>> paramsCache = new HashMap<>();
+
+    private ResultStore(File dir) throws IOException {
+        this.dir = dir;
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create store [" + dir + "]");
+        }
+
+        lockChannel = FileChannel.open(new File(dir, "store.lock").toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lockChannel.close();
+            throw new IllegalStateException("Store [" + dir + "] is already open");
+        }
+        if (lock == null) {
+            lockChannel.close();
+            throw new IllegalStateException("Store [" + dir + "] is in use by another process");
+        }
+
+        dictionary = new Dictionary(dir);
+        runColumn = new Column(dir, "run", Column.INT_WIDTH);
+        timestampColumn = new Column(dir, "timestamp", Column.LONG_WIDTH);
+        labelColumn = new Column(dir, "label", Column.INT_WIDTH);
+        benchmarkColumn = new Column(dir, "benchmark", Column.INT_WIDTH);
+        modeColumn = new Column(dir, "mode", Column.INT_WIDTH);
+        paramsColumn = new Column(dir, "params", Column.INT_WIDTH);
+        unitColumn = new Column(dir, "unit", Column.INT_WIDTH);
+        scoreColumn = new Column(dir, "score", Column.DOUBLE_WIDTH);
+        scoreErrorColumn = new Column(dir, "scoreError", Column.DOUBLE_WIDTH);
+        environmentColumn = new Column(dir, "environment", Column.INT_WIDTH);
+        columns = Arrays.asList(runColumn, timestampColumn, labelColumn, benchmarkColumn, modeColumn, paramsColumn,
+                unitColumn, scoreColumn, scoreErrorColumn, environmentColumn);
+
+        rowCount = Long.MAX_VALUE;
+        for (Column column : columns) {
+            rowCount = Math.min(rowCount, column.getRowCount());
+        }
+        for (Column column : columns) {
+            column.truncate(rowCount);
+        }
+        lastRun = rowCount > 0 ? runColumn.readInt(rowCount - 1) : 0;
+
+        logger.debug("Opened store [{}] of [{}] runs, [{}] rows", new Object[]{dir, lastRun, rowCount});
+    }
+
+    public static ResultStore open(File dir) throws IOException {
+        return new ResultStore(dir);
+    }
+
+    public File getDir() {
+        return dir;
+    }
+
+    public int getRunCount() {
+        return lastRun;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Append a JMH result file as a run, at its modification time
+     *
+     * @param label of the run, i.e. a commit; the file name if null
+     */
+    public int append(File resultFile, String label) throws IOException {
+        JsonNode results = mapper.readTree(resultFile);
+        if (results == null || !results.isArray()) {
+            throw new IOException("Not a JMH JSON result file [" + resultFile + "]");
+        }
+
+        return append((ArrayNode) results, label != null ? label : resultFile.getName(), resultFile.lastModified());
+    }
+
+    /**
+     * Append JMH results, as written with -rf json, as a run
+     *
+     * @return number of the run
+     */
+    public synchronized int append(ArrayNode results, String label, long timestamp) throws IOException {
+        List<Row> rows = new ArrayList<>();
+        for (JsonNode result : results) {
+            String benchmark = result.path("benchmark").asText();
+            String mode = result.path("mode").asText();
+            String params = toParamsJson(result.path("params"));
+            // without the page cache values, which differ from run to run, i.e. a new environment for each run
+            EnvironmentFingerprint environment = EnvironmentFingerprint.fromJson(result.get("environment"));
+            String environmentJson = environment != null ? mapper.writeValueAsString(environment.withoutVolatileValues().toJson()) : null;
+
+            rows.add(new Row(benchmark, mode, params, result.path("primaryMetric"), environmentJson));
+            Iterator<Map.Entry<String, JsonNode>> secondaryMetrics = result.path("secondaryMetrics").fields();
+            while (secondaryMetrics.hasNext()) {
+                Map.Entry<String, JsonNode> secondaryMetric = secondaryMetrics.next();
+                rows.add(new Row(benchmark + ":" + secondaryMetric.getKey(), mode, params, secondaryMetric.getValue(), environmentJson));
+            }
+        }
+
+        int run = lastRun + 1;
+        int labelIndex = dictionary.indexOf(label);
+
+        ByteBuffer runs = runColumn.allocate(rows.size());
+        ByteBuffer timestamps = timestampColumn.allocate(rows.size());
+        ByteBuffer labels = labelColumn.allocate(rows.size());
+        ByteBuffer benchmarks = benchmarkColumn.allocate(rows.size());
+        ByteBuffer modes = modeColumn.allocate(rows.size());
+        ByteBuffer paramsValues = paramsColumn.allocate(rows.size());
+        ByteBuffer units = unitColumn.allocate(rows.size());
+        ByteBuffer scores = scoreColumn.allocate(rows.size());
+        ByteBuffer scoreErrors = scoreErrorColumn.allocate(rows.size());
+        ByteBuffer environments = environmentColumn.allocate(rows.size());
+        for (Row row : rows) {
+            runs.putInt(run);
+            timestamps.putLong(timestamp);
+            labels.putInt(labelIndex);
+            benchmarks.putInt(dictionary.indexOf(row.benchmark));
+            modes.putInt(dictionary.indexOf(row.mode));
+            paramsValues.putInt(dictionary.indexOf(row.params));
+            units.putInt(dictionary.indexOf(row.metric.path("scoreUnit").asText()));
+            scores.putDouble(toDouble(row.metric.path("score")));
+            scoreErrors.putDouble(toDouble(row.metric.path("scoreError")));
+            environments.putInt(row.environment == null ? NO_ENVIRONMENT : dictionary.indexOf(row.environment));
+        }
+
+        // rows refer to the dictionary, which is thus written first
+        dictionary.flush();
+        runColumn.append(runs);
+        timestampColumn.append(timestamps);
+        labelColumn.append(labels);
+        benchmarkColumn.append(benchmarks);
+        modeColumn.append(modes);
+        paramsColumn.append(paramsValues);
+        unitColumn.append(units);
+        scoreColumn.append(scores);
+        scoreErrorColumn.append(scoreErrors);
+        environmentColumn.append(environments);
+
+        rowCount += rows.size();
+        lastRun = run;
+        logger.info("Appended run [{}] [{}] of [{}] rows to store [{}]", new Object[]{run, label, rows.size(), dir});
+
+        return run;
+    }
+
+    /**
+     * A result or secondary metric, before encoding
+     */
+    private static class Row {
+
+        private final String benchmark;
+
+        private final String mode;
+
+        private final String params;
+
+        private final JsonNode metric;
+
+        private final String environment;
+
+        Row(String benchmark, String mode, String params, JsonNode metric, String environment) {
+            this.benchmark = benchmark;
+            this.mode = mode;
+            this.params = params;
+            this.metric = metric;
+            this.environment = environment;
+        }
+    }
+
+    private static String toParamsJson(JsonNode params) throws IOException {
+        SortedMap<String, String> sortedParams = new TreeMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            sortedParams.put(field.getKey(), field.getValue().asText());
+        }
+
+        return mapper.writeValueAsString(sortedParams);
+    }
+
+    private SortedMap<String, String> toParams(int index) throws IOException {
+        SortedMap<String, String> params = paramsCache.get(index);
+        if (params == null) {
+            params = Collections.unmodifiableSortedMap(mapper.<SortedMap<String, String>>readValue(dictionary.get(index), new TypeReference<TreeMap<String, String>>() {
+            }));
+            paramsCache.put(index, params);
+        }
+
+        return params;
+    }
+
+    private static double toDouble(JsonNode node) {
+        if (node.isNumber()) {
+            return node.asDouble();
+        }
+
+        // JMH writes NaN and Infinity as strings
+        try {
+            return Double.parseDouble(node.asText());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    static String toKey(String benchmark, String mode, SortedMap<String, String> params) {
+        return benchmark + " [" + mode + "]" + (params.isEmpty() ? "" : " " + params);
+    }
+
+    /**
+     * Scores of the matching benchmarks, one series per mode and set of @Param values, i.e. "score of X over the last
+     * 30 runs, per param"
+     *
+     * @param benchmarkPattern found in the benchmark name
+     * @param params           @Param values a series must have, others are not restricted
+     * @param lastRuns         maximum number of points of a series, the latest
+     * @return series ordered by key
+     */
+    public synchronized List<TrendSeries> query(Pattern benchmarkPattern, Map<String, String> params, int lastRuns) throws IOException {
+        // the benchmark column only is scanned, each distinct name matched once
+        int[] benchmarks = benchmarkColumn.readInts(rowCount);
+        Map<Integer, Boolean> isMatching = new HashMap<>();
+
+        Map<String, TrendSeries> seriesByKey = new TreeMap<>();
+        Map<String, List<Long>> rowsByKey = new HashMap<>();
+        for (int row = 0; row < benchmarks.length; row++) {
+            Boolean isMatch = isMatching.get(benchmarks[row]);
+            if (isMatch == null) {
+                isMatch = benchmarkPattern.matcher(dictionary.get(benchmarks[row])).find();
+                isMatching.put(benchmarks[row], isMatch);
+            }
+            if (!isMatch) {
+                continue;
+            }
+
+            SortedMap<String, String> rowParams = toParams(paramsColumn.readInt(row));
+            if (!rowParams.entrySet().containsAll(params.entrySet())) {
+                continue;
+            }
+
+            String benchmark = dictionary.get(benchmarks[row]);
+            String mode = dictionary.get(modeColumn.readInt(row));
+            String key = toKey(benchmark, mode, rowParams);
+            if (!seriesByKey.containsKey(key)) {
+                seriesByKey.put(key, new TrendSeries(benchmark, mode, rowParams));
+                rowsByKey.put(key, new ArrayList<Long>());
+            }
+            rowsByKey.get(key).add((long) row);
+        }
+
+        for (Map.Entry<String, TrendSeries> entry : seriesByKey.entrySet()) {
+            List<Long> rows = rowsByKey.get(entry.getKey());
+            for (long row : rows.subList(Math.max(0, rows.size() - lastRuns), rows.size())) {
+                entry.getValue().getPoints().add(new TrendSeries.Point(runColumn.readInt(row), timestampColumn.readLong(row),
+                        dictionary.get(labelColumn.readInt(row)), scoreColumn.readDouble(row), scoreErrorColumn.readDouble(row),
+                        dictionary.get(unitColumn.readInt(row)), environmentColumn.readInt(row)));
+            }
+        }
+
+        return new ArrayList<>(seriesByKey.values());
+    }
+
+    /**
+     * @return the environment recorded with a point, as JSON without the page cache values; null if none
+     */
+    public String getEnvironment(TrendSeries.Point point) {
+        return point.getEnvironment() == NO_ENVIRONMENT ? null : dictionary.get(point.getEnvironment());
+    }
+
+    /**
+     * (Re)write the trend page of all benchmarks, {@code index.html} of the store dir
+     */
+    public File writeTrendPage(int lastRuns) throws IOException {
+        File page = new File(dir, TrendPage.DEFAULT_FILE);
+        TrendPage.write(this, Pattern.compile(""), Collections.<String, String>emptyMap(), lastRuns, page);
+
+        return page;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        IOException failure = null;
+        List<Closeable> closeables = new ArrayList<Closeable>(columns);
+        closeables.add(dictionary);
+        closeables.add(lockChannel);
+        for (Closeable closeable : closeables) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public static void printReport(List<TrendSeries> series, PrintStream out) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+        for (TrendSeries trend : series) {
+            out.println(trend.getKey());
+            for (TrendSeries.Point point : trend.getPoints()) {
+                out.println(String.format("  %5d  %s  %-32s %14.3f \u00b1 %-10.3f %s", point.getRun(), dateFormat.format(new Date(point.getTimestamp())),
+                        point.getLabel(), point.getScore(), point.getScoreError(), point.getUnit()));
+            }
+            if (trend.getPoints().size() > 1) {
+                out.println(String.format("  latest vs previous: %+.1f%%", trend.getLatestChangeInPercent()));
+            }
+            out.println();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        String command = args[0];
+        String label = null;
+        String output = null;
+        int lastRuns = DEFAULT_LAST_RUNS;
+        Map<String, String> params = new TreeMap<>();
+        List<String> arguments = new ArrayList<>();
+        try {
+            for (int i = 1; i < args.length; i++) {
+                if ("-label".equals(args[i]) && i + 1 < args.length) {
+                    label = args[++i];
+                } else if ("-o".equals(args[i]) && i + 1 < args.length) {
+                    output = args[++i];
+                } else if ("-last".equals(args[i]) && i + 1 < args.length) {
+                    lastRuns = Integer.parseInt(args[++i]);
+                } else if ("-p".equals(args[i]) && i + 1 < args.length && args[i + 1].contains("=")) {
+                    String param = args[++i];
+                    params.put(param.substring(0, param.indexOf('=')), param.substring(param.indexOf('=') + 1));
+                } else {
+                    arguments.add(args[i]);
+                }
+            }
+        } catch (NumberFormatException e) {
+            arguments.clear();
+        }
+
+        boolean isValid = lastRuns > 0 && !arguments.isEmpty()
+                && (("ingest".equals(command) && arguments.size() >= 2)
+                || ("query".equals(command) && arguments.size() == 2)
+                || ("html".equals(command) && arguments.size() <= 2));
+        if (!isValid) {
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        try (ResultStore store = open(new File(arguments.get(0)))) {
+            if ("ingest".equals(command)) {
+                for (String resultFile : arguments.subList(1, arguments.size())) {
+                    store.append(new File(resultFile), label);
+                }
+                store.writeTrendPage(lastRuns);
+            } else if ("query".equals(command)) {
+                printReport(store.query(Pattern.compile(arguments.get(1)), params, lastRuns), System.out);
+            } else {
+                File page = output != null ? new File(output) : new File(store.getDir(), TrendPage.DEFAULT_FILE);
+                TrendPage.write(store, Pattern.compile(arguments.size() > 1 ? arguments.get(1) : ""), params, lastRuns, page);
+                System.out.println("Wrote [" + page.getAbsolutePath() + "]");
+            }
+        }
+    }
+}
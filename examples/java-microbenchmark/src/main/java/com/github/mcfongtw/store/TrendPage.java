@@ -0,0 +1,167 @@
+package com.github.mcfongtw.store;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Static HTML page of the trends of a {@link ResultStore}: one SVG chart per series, score and score error of each run,
+ * a dashed line where the environment changed. No script nor external resource, to be opened from the file system.
+ */
+class TrendPage {
+
+    static final String DEFAULT_FILE = "index.html";
+
+    private static final int WIDTH = 720;
+
+    private static final int HEIGHT = 180;
+
+    private static final int MARGIN = 40;
+
+    private TrendPage() {
+    }
+
+    static void write(ResultStore store, Pattern benchmarkPattern, Map<String, String> params, int lastRuns, File file) throws IOException {
+        List<TrendSeries> series = store.query(benchmarkPattern, params, lastRuns);
+
+        File temp = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8))) {
+            write(series, "Benchmark trends of " + store.getDir().getAbsolutePath(), writer);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    static void write(List<TrendSeries> series, String title, Writer out) throws IOException {
+        out.write("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"utf-8\">\n");
+        out.write("<title>" + escape(title) + "</title>\n");
+        out.write("<style>body{font-family:sans-serif;margin:2em}h2{font-size:1em;margin-bottom:0}"
+                + ".change{color:#555;font-size:.9em}svg{display:block;margin:.5em 0 2em}"
+                + "text{font-size:11px;fill:#555}.score{fill:none;stroke:#2a6ebb;stroke-width:1.5}"
+                + ".error{stroke:#9bbbe0}.environment{stroke:#d9822b;stroke-dasharray:4 3}</style>\n");
+        out.write("</head>\n<body>\n<h1>" + escape(title) + "</h1>\n");
+        if (series.isEmpty()) {
+            out.write("<p>No results</p>\n");
+        }
+
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+        for (TrendSeries trend : series) {
+            TrendSeries.Point latest = trend.getLatest();
+            out.write("<h2>" + escape(trend.getKey()) + "</h2>\n");
+            out.write("<div class=\"change\">latest " + format(latest.getScore()) + " \u00b1 " + format(latest.getScoreError()) + " " + escape(latest.getUnit()));
+            if (!Double.isNaN(trend.getLatestChangeInPercent())) {
+                out.write(String.format(Locale.ROOT, ", %+.1f%% vs previous run", trend.getLatestChangeInPercent()));
+            }
+            out.write("</div>\n");
+            writeChart(trend, dateFormat, out);
+        }
+
+        out.write("</body>\n</html>\n");
+    }
+
+    private static void writeChart(TrendSeries trend, SimpleDateFormat dateFormat, Writer out) throws IOException {
+        List<TrendSeries.Point> points = trend.getPoints();
+
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (TrendSeries.Point point : points) {
+            double error = Double.isNaN(point.getScoreError()) ? 0 : point.getScoreError();
+            if (!Double.isNaN(point.getScore())) {
+                min = Math.min(min, point.getScore() - error);
+                max = Math.max(max, point.getScore() + error);
+            }
+        }
+        if (min > max) {
+            min = 0;
+            max = 1;
+        } else if (min == max) {
+            min -= Math.abs(min) * 0.1 + 1;
+            max += Math.abs(max) * 0.1 + 1;
+        }
+
+        out.write("<svg width=\"" + WIDTH + "\" height=\"" + HEIGHT + "\" viewBox=\"0 0 " + WIDTH + " " + HEIGHT + "\">\n");
+        out.write("<line x1=\"" + MARGIN + "\" y1=\"" + (HEIGHT - MARGIN) + "\" x2=\"" + (WIDTH - MARGIN) + "\" y2=\"" + (HEIGHT - MARGIN) + "\" stroke=\"#ccc\"/>\n");
+        out.write("<text x=\"2\" y=\"" + (MARGIN / 2 + 4) + "\">" + format(max) + "</text>\n");
+        out.write("<text x=\"2\" y=\"" + (HEIGHT - MARGIN) + "\">" + format(min) + "</text>\n");
+
+        StringBuilder polyline = new StringBuilder();
+        for (int i = 0; i < points.size(); i++) {
+            TrendSeries.Point point = points.get(i);
+            double x = toX(i, points.size());
+            if (i > 0 && point.getEnvironment() != points.get(i - 1).getEnvironment()) {
+                double previousX = toX(i - 1, points.size());
+                out.write("<line class=\"environment\" x1=\"" + format((x + previousX) / 2) + "\" y1=\"" + (MARGIN / 2) + "\" x2=\"" + format((x + previousX) / 2)
+                        + "\" y2=\"" + (HEIGHT - MARGIN) + "\"><title>environment changed</title></line>\n");
+            }
+            if (Double.isNaN(point.getScore())) {
+                continue;
+            }
+
+            double y = toY(point.getScore(), min, max);
+            if (!Double.isNaN(point.getScoreError()) && point.getScoreError() > 0) {
+                out.write("<line class=\"error\" x1=\"" + format(x) + "\" y1=\"" + format(toY(point.getScore() - point.getScoreError(), min, max))
+                        + "\" x2=\"" + format(x) + "\" y2=\"" + format(toY(point.getScore() + point.getScoreError(), min, max)) + "\"/>\n");
+            }
+            out.write("<circle cx=\"" + format(x) + "\" cy=\"" + format(y) + "\" r=\"3\" fill=\"#2a6ebb\"><title>run " + point.getRun() + ", "
+                    + escape(point.getLabel()) + ", " + dateFormat.format(new Date(point.getTimestamp())) + ": " + format(point.getScore()) + " \u00b1 "
+                    + format(point.getScoreError()) + " " + escape(point.getUnit()) + "</title></circle>\n");
+            polyline.append(format(x)).append(',').append(format(y)).append(' ');
+        }
+        out.write("<polyline class=\"score\" points=\"" + polyline.toString().trim() + "\"/>\n");
+
+        out.write("<text x=\"" + MARGIN + "\" y=\"" + (HEIGHT - MARGIN + 16) + "\">run " + points.get(0).getRun() + "</text>\n");
+        out.write("<text x=\"" + (WIDTH - MARGIN) + "\" y=\"" + (HEIGHT - MARGIN + 16) + "\" text-anchor=\"end\">run " + points.get(points.size() - 1).getRun() + "</text>\n");
+        out.write("</svg>\n");
+    }
+
+    private static double toX(int index, int count) {
+        return count == 1 ? WIDTH / 2.0 : MARGIN + (WIDTH - 2.0 * MARGIN) * index / (count - 1);
+    }
+
+    private static double toY(double value, double min, double max) {
+        return HEIGHT - MARGIN - (HEIGHT - 1.5 * MARGIN) * (value - min) / (max - min);
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    /**
+     * Escape text and attribute values, i.e. benchmark names and units
+     */
+    static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+
+        StringBuilder sb = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '&':
+                    sb.append("&amp;");
+                    break;
+                case '<':
+                    sb.append("&lt;");
+                    break;
+                case '>':
+                    sb.append("&gt;");
+                    break;
+                case '"':
+                    sb.append("&quot;");
+                    break;
+                case '\'':
+                    sb.append("&#39;");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.mcfongtw.store;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+
+/**
+ * Scores of one benchmark, mode and set of @Param values over runs, oldest first, as queried from a {@link ResultStore}
+ */
+@Getter
+public class TrendSeries {
+
+    private final String benchmark;
+
+    private final String mode;
+
+    private final SortedMap<String, String> params;
+
+    private final List<Point> points = new ArrayList<>();
+
+    /**
+     * Score of one run
+     */
+    @Getter
+    public static class Point {
+
+        private final int run;
+
+        private final long timestamp;
+
+        private final String label;
+
+        private final double score;
+
+        private final double scoreError;
+
+        private final String unit;
+
+        /**
+         * Dictionary index of the environment, equal if the environment is
+         */
+        private final int environment;
+
+        Point(int run, long timestamp, String label, double score, double scoreError, String unit, int environment) {
+            this.run = run;
+            this.timestamp = timestamp;
+            this.label = label;
+            this.score = score;
+            this.scoreError = scoreError;
+            this.unit = unit;
+            this.environment = environment;
+        }
+    }
+
+    TrendSeries(String benchmark, String mode, SortedMap<String, String> params) {
+        this.benchmark = benchmark;
+        this.mode = mode;
+        this.params = params;
+    }
+
+    public String getKey() {
+        return ResultStore.toKey(benchmark, mode, params);
+    }
+
+    public Point getLatest() {
+        return points.get(points.size() - 1);
+    }
+
+    /**
+     * @return change of the latest score against the previous run, in percent; NaN if there is a single run
+     */
+    public double getLatestChangeInPercent() {
+        if (points.size() < 2) {
+            return Double.NaN;
+        }
+
+        double previous = points.get(points.size() - 2).getScore();
+
+        return (getLatest().getScore() - previous) / previous * 100;
+    }
+}
@@ -0,0 +1,140 @@
+package com.github.mcfongtw;
+
+import com.github.mcfongtw.BenchmarkBaselineComparator.Comparison;
+import com.github.mcfongtw.BenchmarkBaselineComparator.Score;
+import com.github.mcfongtw.BenchmarkBaselineComparator.Verdict;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+
+public class BenchmarkBaselineComparatorTest {
+
+    private static final String COPY_WITH_MMAP = "com.github.mcfongtw.io.file.FileReplicationBenchmark.copyWithMmap";
+
+    private static String result(String benchmark, String mode, String params, double score, String scoreError, String rawData) {
+        return "{\"benchmark\" : \"" + benchmark + "\", \"mode\" : \"" + mode + "\", \"params\" : {" + params + "}, " +
+                "\"primaryMetric\" : {\"score\" : " + score + ", \"scoreError\" : " + scoreError + ", \"scoreUnit\" : \"ms/op\", " +
+                "\"rawData\" : " + rawData + "}}";
+    }
+
+    private static Map<String, Score> load(String... results) throws IOException {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < results.length; i++) {
+            sb.append(i == 0 ? "" : ",").append(results[i]);
+        }
+
+        return BenchmarkBaselineComparator.load(new StringReader(sb.append("]").toString()));
+    }
+
+    @Test
+    public void testLoadByNameModeAndParams() throws IOException {
+        Map<String, Score> scores = load(
+                result(COPY_WITH_MMAP, "avgt", "\"fileSize\" : \"1024\"", 10.0, "0.5", "[[10.0, 10.0], [10.0, 10.0]]"),
+                result(COPY_WITH_MMAP, "avgt", "\"fileSize\" : \"4096\"", 40.0, "\"NaN\"", "[[40.0]]"));
+
+        Assertions.assertEquals(2, scores.size());
+
+        Score score = scores.get(COPY_WITH_MMAP + " [avgt] {fileSize=4096}");
+        Assertions.assertNotNull(score);
+        Assertions.assertEquals(40.0, score.getScore());
+        Assertions.assertTrue(Double.isNaN(score.getScoreError()));
+        Assertions.assertEquals(1, score.getSamples().length);
+    }
+
+    @Test
+    public void testRegression() throws IOException {
+        Map<String, Score> baseline = load(result(COPY_WITH_MMAP, "avgt", "", 10.0, "0.2", "[[10.0, 10.1], [9.9, 10.0], [10.1, 9.9]]"));
+        Map<String, Score> current = load(result(COPY_WITH_MMAP, "avgt", "", 12.0, "0.2", "[[12.0, 12.1], [11.9, 12.0], [12.1, 11.9]]"));
+
+        List<Comparison> comparisons = BenchmarkBaselineComparator.compare(baseline, current, 5.0, 0.01);
+        Assertions.assertEquals(1, comparisons.size());
+        Assertions.assertEquals(Verdict.REGRESSION, comparisons.get(0).getVerdict());
+        Assertions.assertEquals(20.0, comparisons.get(0).getChangeInPercent(), 0.001);
+        Assertions.assertTrue(comparisons.get(0).getPValue() < 0.01);
+
+        // the other way round
+        Assertions.assertEquals(Verdict.IMPROVEMENT, BenchmarkBaselineComparator.compare(current, baseline, 5.0, 0.01).get(0).getVerdict());
+    }
+
+    @Test
+    public void testNoisyChangeIsNotRegression() throws IOException {
+        Map<String, Score> baseline = load(result(COPY_WITH_MMAP, "avgt", "", 10.0, "8.0", "[[5.0, 5.0], [15.0, 15.0], [10.0, 10.0]]"));
+        Map<String, Score> current = load(result(COPY_WITH_MMAP, "avgt", "", 12.0, "8.0", "[[7.0, 7.0], [17.0, 17.0], [12.0, 12.0]]"));
+
+        Assertions.assertEquals(Verdict.UNCHANGED, BenchmarkBaselineComparator.compare(baseline, current, 5.0, 0.01).get(0).getVerdict());
+    }
+
+    @Test
+    public void testThroughputRegression() throws IOException {
+        Map<String, Score> baseline = load(result(COPY_WITH_MMAP, "thrpt", "", 100.0, "1.0", "[[100.0, 101.0], [99.0, 100.0]]"));
+        Map<String, Score> current = load(result(COPY_WITH_MMAP, "thrpt", "", 80.0, "1.0", "[[80.0, 81.0], [79.0, 80.0]]"));
+
+        Comparison comparison = BenchmarkBaselineComparator.compare(baseline, current, 5.0, 0.01).get(0);
+        Assertions.assertEquals(Verdict.REGRESSION, comparison.getVerdict());
+        Assertions.assertEquals(20.0, comparison.getChangeInPercent(), 0.001);
+    }
+
+    @Test
+    public void testScoreErrorWithoutRawData() throws IOException {
+        Map<String, Score> baseline = load(result(COPY_WITH_MMAP, "sample", "", 10.0, "0.5", "[]"));
+        Map<String, Score> overlapping = load(result(COPY_WITH_MMAP, "sample", "", 10.8, "0.5", "[]"));
+        Map<String, Score> disjoint = load(result(COPY_WITH_MMAP, "sample", "", 11.2, "0.5", "[]"));
+
+        Assertions.assertEquals(Verdict.UNCHANGED, BenchmarkBaselineComparator.compare(baseline, overlapping, 5.0, 0.01).get(0).getVerdict());
+        Assertions.assertEquals(Verdict.REGRESSION, BenchmarkBaselineComparator.compare(baseline, disjoint, 5.0, 0.01).get(0).getVerdict());
+    }
+
+    @Test
+    public void testMissingAndNew() throws IOException {
+        Map<String, Score> baseline = load(result(COPY_WITH_MMAP, "avgt", "\"fileSize\" : \"1024\"", 10.0, "0.5", "[]"));
+        Map<String, Score> current = load(result(COPY_WITH_MMAP, "avgt", "\"fileSize\" : \"4096\"", 10.0, "0.5", "[]"));
+
+        List<Comparison> comparisons = BenchmarkBaselineComparator.compare(baseline, current, 5.0, 0.01);
+        Assertions.assertEquals(2, comparisons.size());
+        Assertions.assertEquals(Verdict.MISSING, comparisons.get(0).getVerdict());
+        Assertions.assertEquals(Verdict.NEW, comparisons.get(1).getVerdict());
+    }
+
+    @Test
+    public void testIncomparableEnvironment() throws IOException {
+        String environment = ", \"environment\" : {\"jvm.gc\" : \"G1 Young Generation,G1 Old Generation\", \"pagecache.cached\" : \"1024 kB\"}}";
+        String otherPageCache = ", \"environment\" : {\"jvm.gc\" : \"G1 Young Generation,G1 Old Generation\", \"pagecache.cached\" : \"4096 kB\"}}";
+        String otherGc = ", \"environment\" : {\"jvm.gc\" : \"PS Scavenge,PS MarkSweep\", \"pagecache.cached\" : \"1024 kB\"}}";
+        String rawResult = result(COPY_WITH_MMAP, "avgt", "", 10.0, "0.5", "[]");
+        String resultWithoutEnvironment = rawResult.substring(0, rawResult.length() - 1);
+
+        Map<String, Score> baseline = load(resultWithoutEnvironment + environment);
+        Map<String, Score> samePageCacheAside = load(resultWithoutEnvironment + otherPageCache);
+        Map<String, Score> differentGc = load(resultWithoutEnvironment + otherGc);
+
+        Assertions.assertEquals(Verdict.UNCHANGED, BenchmarkBaselineComparator.compare(baseline, samePageCacheAside, 5.0, 0.01).get(0).getVerdict());
+
+        Comparison comparison = BenchmarkBaselineComparator.compare(baseline, differentGc, 5.0, 0.01).get(0);
+        Assertions.assertEquals(Verdict.INCOMPARABLE, comparison.getVerdict());
+        Assertions.assertEquals(1, comparison.getEnvironmentDifferences().size());
+        Assertions.assertTrue(comparison.getEnvironmentDifferences().get(0).startsWith("jvm.gc"));
+
+        Assertions.assertEquals(Verdict.UNCHANGED, BenchmarkBaselineComparator.compare(baseline, differentGc, 5.0, 0.01, true).get(0).getVerdict());
+        // not recorded on either side
+        Assertions.assertEquals(Verdict.UNCHANGED, BenchmarkBaselineComparator.compare(baseline, load(rawResult), 5.0, 0.01).get(0).getVerdict());
+    }
+
+    @Test
+    public void testIncomparableUnitAndZeroBaseline() throws IOException {
+        Map<String, Score> baseline = load(result(COPY_WITH_MMAP, "avgt", "", 10.0, "0.5", "[]"));
+        Map<String, Score> otherUnit = load(result(COPY_WITH_MMAP, "avgt", "", 10.0, "0.5", "[]").replace("ms/op", "us/op"));
+
+        Comparison comparison = BenchmarkBaselineComparator.compare(baseline, otherUnit, 5.0, 0.01, true).get(0);
+        Assertions.assertEquals(Verdict.INCOMPARABLE, comparison.getVerdict());
+        Assertions.assertTrue(comparison.getEnvironmentDifferences().get(0).startsWith("scoreUnit"));
+
+        Map<String, Score> zeroBaseline = load(result(COPY_WITH_MMAP, "avgt", "", 0.0, "0.0", "[]"));
+        comparison = BenchmarkBaselineComparator.compare(zeroBaseline, baseline, 5.0, 0.01).get(0);
+        Assertions.assertEquals(Verdict.INCOMPARABLE, comparison.getVerdict());
+        Assertions.assertTrue(Double.isNaN(comparison.getChangeInPercent()));
+    }
+}
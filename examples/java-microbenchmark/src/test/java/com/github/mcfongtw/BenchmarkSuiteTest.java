@@ -0,0 +1,52 @@
+package com.github.mcfongtw;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.regex.Pattern;
+
+public class BenchmarkSuiteTest {
+
+    private static final String FILE_REPLICATION = "com.github.mcfongtw.io.file.FileReplicationBenchmark.measureFileChannel";
+
+    private static final String BYTE_BY_BYTE_REPLICATION = "com.github.mcfongtw.io.file.ByteByByteReplicationBenchmark.measureBaseline";
+
+    private static final String CSV_PARSING = "com.github.mcfongtw.CSVParsingBenchmark.measureCommonsCsv";
+
+    @Test
+    public void testParse() {
+        Assertions.assertEquals(Arrays.asList(BenchmarkSuite.values()), BenchmarkSuite.parse("all"));
+        Assertions.assertEquals(Arrays.asList(BenchmarkSuite.values()), BenchmarkSuite.parse(null));
+        Assertions.assertEquals(Arrays.asList(BenchmarkSuite.IO, BenchmarkSuite.GC), BenchmarkSuite.parse("io, GC,io"));
+
+        try {
+            BenchmarkSuite.parse("io,unknown");
+            Assertions.fail();
+        } catch (IllegalArgumentException e) {
+            Assertions.assertTrue(e.getMessage().contains("unknown"));
+        }
+    }
+
+    @Test
+    public void testIncludeRegex() {
+        Pattern io = Pattern.compile(BenchmarkSuite.IO.getIncludeRegex(Collections.<String>emptyList()));
+        Assertions.assertTrue(io.matcher(FILE_REPLICATION).find());
+        Assertions.assertFalse(io.matcher(CSV_PARSING).find());
+
+        Pattern codec = Pattern.compile(BenchmarkSuite.CODEC.getIncludeRegex(Collections.<String>emptyList()));
+        Assertions.assertTrue(codec.matcher(CSV_PARSING).find());
+        Assertions.assertFalse(codec.matcher(FILE_REPLICATION).find());
+    }
+
+    @Test
+    public void testIncludeRegexNarrowedByUserIncludes() {
+        Pattern io = Pattern.compile(BenchmarkSuite.IO.getIncludeRegex(Collections.singletonList("FileReplication")));
+        Assertions.assertTrue(io.matcher(FILE_REPLICATION).find());
+        Assertions.assertFalse(io.matcher(BYTE_BY_BYTE_REPLICATION).find());
+
+        Pattern codec = Pattern.compile(BenchmarkSuite.CODEC.getIncludeRegex(Collections.singletonList("FileReplication")));
+        Assertions.assertFalse(codec.matcher(FILE_REPLICATION).find());
+    }
+}
@@ -0,0 +1,73 @@
+package com.github.mcfongtw;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class EnvironmentFingerprintTest {
+
+    @Test
+    public void testCapture() {
+        EnvironmentFingerprint fingerprint = EnvironmentFingerprint.capture();
+
+        Assertions.assertEquals(String.valueOf(Runtime.getRuntime().availableProcessors()), fingerprint.getValues().get("cpu.count"));
+        Assertions.assertFalse(fingerprint.getValues().get("jvm.gc").isEmpty());
+        Assertions.assertTrue(fingerprint.differences(EnvironmentFingerprint.capture()).isEmpty());
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        File file = File.createTempFile("fingerprint", ".json");
+        file.deleteOnExit();
+
+        Assertions.assertNull(EnvironmentFingerprint.read(file));
+
+        EnvironmentFingerprint fingerprint = EnvironmentFingerprint.capture();
+        fingerprint.write(file);
+
+        Assertions.assertEquals(fingerprint.getValues(), EnvironmentFingerprint.read(file).getValues());
+    }
+
+    @Test
+    public void testPutEnvironmentsOfOwnBenchmark() throws IOException {
+        File dir = Files.createTempDirectory("fingerprints").toFile();
+        try {
+            ArrayNode results = (ArrayNode) new ObjectMapper().readTree("["
+                    + "{\"benchmark\":\"a.GcBenchmark.measure\",\"mode\":\"avgt\",\"jvmArgs\":[\"-XX:+UseG1GC\"]},"
+                    + "{\"benchmark\":\"a.GcBenchmark.measure\",\"mode\":\"avgt\",\"params\":{\"size\":\"2\",\"kind\":\"b\"}},"
+                    + "{\"benchmark\":\"a.OtherBenchmark.measure\",\"mode\":\"thrpt\"}]");
+
+            new EnvironmentFingerprint(Collections.singletonMap("jvm.gc", "G1")).write(
+                    EnvironmentFingerprint.getFile(dir, "a.GcBenchmark.measure", "avgt", Collections.<String, String>emptyMap()));
+            Map<String, String> params = new HashMap<>();
+            params.put("kind", "b");
+            params.put("size", "2");
+            new EnvironmentFingerprint(Collections.singletonMap("jvm.gc", "Parallel")).write(
+                    EnvironmentFingerprint.getFile(dir, "a.GcBenchmark.measure", "avgt", params));
+
+            Assertions.assertEquals(1, JsonResults.putEnvironments(results, dir));
+            Assertions.assertEquals("G1", results.get(0).path("environment").path("jvm.gc").asText());
+            Assertions.assertEquals("-XX:+UseG1GC", results.get(0).path("environment").path("jvm.args").asText());
+            Assertions.assertEquals("Parallel", results.get(1).path("environment").path("jvm.gc").asText());
+            // never ran a fork, i.e. no fingerprint of another benchmark either
+            Assertions.assertFalse(results.get(2).has("environment"));
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+
+    @Test
+    public void testToSelected() {
+        Assertions.assertEquals("madvise", EnvironmentFingerprint.toSelected("always [madvise] never"));
+        Assertions.assertEquals("performance", EnvironmentFingerprint.toSelected("performance"));
+    }
+}
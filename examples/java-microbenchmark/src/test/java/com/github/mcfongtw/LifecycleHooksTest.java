@@ -0,0 +1,144 @@
+package com.github.mcfongtw;
+
+import com.github.mcfongtw.hook.BatchedFixtures;
+import com.github.mcfongtw.hook.TempDirHook;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Level;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class LifecycleHooksTest {
+
+    private static class RecordingHook implements LifecycleHook {
+
+        private final String name;
+
+        private final List<String> calls;
+
+        private final boolean isTearDownFailing;
+
+        RecordingHook(String name, List<String> calls, boolean isTearDownFailing) {
+            this.name = name;
+            this.calls = calls;
+            this.isTearDownFailing = isTearDownFailing;
+        }
+
+        @Override
+        public void setUp() throws Exception {
+            calls.add(name + ".setUp");
+        }
+
+        @Override
+        public void tearDown() throws Exception {
+            calls.add(name + ".tearDown");
+            if (isTearDownFailing) {
+                throw new IllegalStateException(name);
+            }
+        }
+    }
+
+    private static class RecordingLifecycle extends SimpleBenchmarkLifecycle {
+
+        private final List<String> calls;
+
+        RecordingLifecycle(List<String> calls) {
+            this.calls = calls;
+            hooks.register(Level.Iteration, new RecordingHook("first", calls, false));
+            hooks.register(Level.Iteration, new RecordingHook("second", calls, false));
+        }
+
+        @Override
+        public void preIterationSetup() throws Exception {
+            calls.add("preIterationSetup");
+        }
+
+        @Override
+        public void postIterationTearDown() throws Exception {
+            calls.add("postIterationTearDown");
+        }
+    }
+
+    @Test
+    public void testHooksWrapLifecycle() throws Exception {
+        List<String> calls = new ArrayList<>();
+        RecordingLifecycle lifecycle = new RecordingLifecycle(calls);
+
+        lifecycle.doIterationSetup();
+        lifecycle.doIterationTearDown();
+        // no hooks on this level
+        lifecycle.doTrialSetUp();
+
+        Assertions.assertEquals(Arrays.asList("first.setUp", "second.setUp", "preIterationSetup",
+                "postIterationTearDown", "second.tearDown", "first.tearDown"), calls);
+    }
+
+    @Test
+    public void testTearDownRunsAllHooks() throws Exception {
+        List<String> calls = new ArrayList<>();
+        LifecycleHooks hooks = new LifecycleHooks();
+        hooks.register(Level.Trial, new RecordingHook("first", calls, true));
+        hooks.register(Level.Trial, new RecordingHook("second", calls, true));
+
+        Assertions.assertTrue(hooks.isEmpty(Level.Iteration));
+        Assertions.assertFalse(hooks.isEmpty(Level.Trial));
+
+        try {
+            hooks.tearDown(Level.Trial, "test");
+            Assertions.fail();
+        } catch (IllegalStateException e) {
+            Assertions.assertEquals("second", e.getMessage());
+            Assertions.assertEquals("first", e.getSuppressed()[0].getMessage());
+        }
+
+        Assertions.assertEquals(Arrays.asList("second.tearDown", "first.tearDown"), calls);
+    }
+
+    @Test
+    public void testTempDirHook() throws Exception {
+        LifecycleHooks hooks = new LifecycleHooks();
+        TempDirHook tempDirHook = hooks.register(Level.Trial, new TempDirHook());
+
+        hooks.setUp(Level.Trial, "test");
+        File tempDir = tempDirHook.getTempDir();
+        Assertions.assertTrue(tempDir.isDirectory());
+        Assertions.assertTrue(new File(tempDir, "data").createNewFile());
+
+        hooks.tearDown(Level.Trial, "test");
+        Assertions.assertFalse(tempDir.exists());
+        Assertions.assertNull(tempDirHook.getTempDir());
+    }
+
+    @Test
+    public void testBatchedFixtures() throws Exception {
+        final int[] numBuilt = new int[1];
+        LifecycleHooks hooks = new LifecycleHooks();
+        BatchedFixtures<Integer> fixtures = hooks.register(Level.Iteration, new BatchedFixtures<>(3, new BatchedFixtures.Factory<Integer>() {
+            @Override
+            public Integer newFixture() {
+                return numBuilt[0]++;
+            }
+        }));
+
+        hooks.setUp(Level.Iteration, "test");
+        Assertions.assertEquals(3, numBuilt[0]);
+        Assertions.assertEquals(Integer.valueOf(0), fixtures.next());
+        Assertions.assertEquals(Integer.valueOf(1), fixtures.next());
+        Assertions.assertEquals(Integer.valueOf(2), fixtures.next());
+        try {
+            fixtures.next();
+            Assertions.fail();
+        } catch (IllegalStateException ignored) {
+
+        }
+        hooks.tearDown(Level.Iteration, "test");
+
+        // rebuilt for the next iteration
+        hooks.setUp(Level.Iteration, "test");
+        Assertions.assertEquals(6, numBuilt[0]);
+        Assertions.assertEquals(Integer.valueOf(3), fixtures.next());
+    }
+}
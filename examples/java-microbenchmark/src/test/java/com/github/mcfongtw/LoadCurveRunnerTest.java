@@ -0,0 +1,60 @@
+package com.github.mcfongtw;
+
+import com.github.mcfongtw.LoadCurveRunner.LoadPoint;
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class LoadCurveRunnerTest {
+
+    @Test
+    public void testInvokerParams() throws Exception {
+        BenchmarkInvoker defaultInvoker = new BenchmarkInvoker(FibonacciBenchmark.class, "measureIterative", Collections.<String, String>emptyMap());
+        Assertions.assertEquals("10", defaultInvoker.getParams().get("FIB_NUMBER_INDEX"));
+        Assertions.assertEquals(FibonacciBenchmark.class.getName() + ".measureIterative", defaultInvoker.getName());
+
+        BenchmarkInvoker invoker = new BenchmarkInvoker(FibonacciBenchmark.class, "measureIterative", ImmutableMap.of("FIB_NUMBER_INDEX", "20"));
+        Assertions.assertEquals("20", invoker.getParams().get("FIB_NUMBER_INDEX"));
+
+        try {
+            new BenchmarkInvoker(FibonacciBenchmark.class, "measureIterative", ImmutableMap.of("fileSize", "1024"));
+            Assertions.fail("Expected unknown @Param to be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testParseLoads() {
+        Assertions.assertArrayEquals(new double[]{10, 50, 80, 95}, LoadCurveRunner.parseLoads("10, 50,80,95"));
+
+        try {
+            LoadCurveRunner.parseLoads("50,120");
+            Assertions.fail("Expected load above 100% to be rejected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testLoadCurve() throws Exception {
+        BenchmarkInvoker invoker = new BenchmarkInvoker(FibonacciBenchmark.class, "measureIterative", Collections.<String, String>emptyMap());
+
+        List<LoadPoint> points = LoadCurveRunner.run(invoker, new double[]{1}, TimeUnit.MILLISECONDS.toNanos(100), TimeUnit.MILLISECONDS.toNanos(300));
+        Assertions.assertEquals(2, points.size());
+
+        LoadPoint max = points.get(0);
+        Assertions.assertTrue(max.getAchievedRate() > 0);
+        Assertions.assertTrue(Double.isNaN(max.getTargetRate()));
+
+        // far below the max, the schedule is kept
+        LoadPoint light = points.get(1);
+        Assertions.assertFalse(light.isSaturated());
+        Assertions.assertEquals(max.getAchievedRate() / 100, light.getTargetRate(), max.getAchievedRate() / 1000);
+        Assertions.assertEquals(light.getTargetRate(), light.getAchievedRate(), light.getTargetRate() * 0.1);
+    }
+}
@@ -0,0 +1,52 @@
+package com.github.mcfongtw;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ParallelForkSchedulerTest {
+
+    @Test
+    public void testParseCpuList() {
+        Assertions.assertEquals(Arrays.asList(0, 1, 2, 3, 8, 10, 11), ParallelForkScheduler.parseCpuList("0-3,8, 10-11"));
+        Assertions.assertEquals(Arrays.asList(1, 2), ParallelForkScheduler.parseCpuList("2,1,1-2"));
+
+        try {
+            ParallelForkScheduler.parseCpuList("0-x");
+            Assertions.fail();
+        } catch (IllegalArgumentException ignored) {
+
+        }
+    }
+
+    @Test
+    public void testSplitCpus() {
+        Assertions.assertEquals(Arrays.asList("0,1", "2,3", "8,10"), ParallelForkScheduler.splitCpus(Arrays.asList(0, 1, 2, 3, 8, 10, 11), 2));
+        Assertions.assertEquals(Collections.singletonList("0,1,2"), ParallelForkScheduler.splitCpus(Arrays.asList(0, 1, 2), 4));
+    }
+
+    @Test
+    public void testFindJobs() throws CommandLineOptionException {
+        List<ParallelForkScheduler.Job> jobs = ParallelForkScheduler.findJobs(BenchmarkSuite.parse("io,codec"),
+                new CommandLineOptions("FileReplicationBenchmark.nioFilesCopy", "CommonHashBenchmark"));
+
+        Assertions.assertFalse(jobs.isEmpty());
+        for (ParallelForkScheduler.Job job : jobs) {
+            // IO benchmarks share the disk and page cache
+            Assertions.assertEquals(job.getBenchmark().startsWith("com.github.mcfongtw.io."), job.isSerial(), job.getBenchmark());
+        }
+
+        try {
+            ParallelForkScheduler.findJobs(BenchmarkSuite.parse("codec"), new CommandLineOptions("-f", "0", "CommonHashBenchmark"));
+            Assertions.fail();
+        } catch (IllegalArgumentException ignored) {
+
+        }
+    }
+}
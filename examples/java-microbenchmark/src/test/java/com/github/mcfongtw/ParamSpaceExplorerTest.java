@@ -0,0 +1,108 @@
+package com.github.mcfongtw;
+
+import com.github.mcfongtw.ParamSpaceExplorer.Crossover;
+import com.github.mcfongtw.ParamSpaceExplorer.Series;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+public class ParamSpaceExplorerTest {
+
+    private static Series series(String key, double... scoresAt1To10000) {
+        Series series = new Series(key, "[avgt]", false);
+        long value = 1;
+        for (double score : scoresAt1To10000) {
+            series.getScores().put(value, score);
+            value *= 10;
+        }
+
+        return series;
+    }
+
+    @Test
+    public void testInitialValues() {
+        Assertions.assertEquals(new TreeSet<>(Arrays.asList(1L, 10L, 100L, 1000L, 10000L)), ParamSpaceExplorer.initialValues(1, 10000, 5, true));
+        Assertions.assertEquals(new TreeSet<>(Arrays.asList(0L, 25L, 50L, 75L, 100L)), ParamSpaceExplorer.initialValues(0, 100, 5, false));
+    }
+
+    @Test
+    public void testCrossover() {
+        // copyWithFileChannel scales with the size, copyWithMmap pays a fixed cost
+        Series channel = series("copyWithFileChannel", 1, 10, 100, 1000, 10000);
+        Series mmap = series("copyWithMmap", 500, 500, 500, 500, 500);
+
+        List<Crossover> crossovers = ParamSpaceExplorer.findCrossovers(Arrays.asList(channel, mmap));
+        Assertions.assertEquals(1, crossovers.size());
+
+        Crossover crossover = crossovers.get(0);
+        Assertions.assertEquals("copyWithFileChannel", crossover.getBelow());
+        Assertions.assertEquals("copyWithMmap", crossover.getAbove());
+        Assertions.assertEquals(100, crossover.getLower());
+        Assertions.assertEquals(1000, crossover.getUpper());
+        Assertions.assertEquals(500, crossover.getEstimate(), 1);
+
+        // bisected at the geometric mean
+        Assertions.assertEquals(Collections.singleton(316L), ParamSpaceExplorer.nextValues(Arrays.asList(channel, mmap), true, 0.5));
+
+        // swapping ranks within the score errors is noise, not a crossover
+        Series noisyChannel = series("copyWithFileChannel", 90, 110, 90, 110, 90);
+        Series noisyMmap = series("copyWithMmap", 100, 100, 100, 100, 100);
+        Assertions.assertEquals(4, ParamSpaceExplorer.findCrossovers(Arrays.asList(noisyChannel, noisyMmap)).size());
+        for (long value : noisyChannel.getScores().keySet()) {
+            noisyChannel.getScoreErrors().put(value, 8.0);
+            noisyMmap.getScoreErrors().put(value, 8.0);
+        }
+        Assertions.assertTrue(ParamSpaceExplorer.findCrossovers(Arrays.asList(noisyChannel, noisyMmap)).isEmpty());
+    }
+
+    @Test
+    public void testCrossoverAcrossRounds() {
+        // as testCrossover, with 10% errors: bisection lands within the errors around the crossover, i.e. at 562
+        Series channel = new Series("copyWithFileChannel", "[avgt]", false);
+        Series mmap = new Series("copyWithMmap", "[avgt]", false);
+        SortedSet<Long> values = ParamSpaceExplorer.initialValues(1, 10000, 5, true);
+        for (int round = 0; round <= 4 && !values.isEmpty(); round++) {
+            for (long value : values) {
+                channel.getScores().put(value, (double) value);
+                channel.getScoreErrors().put(value, value * 0.1);
+                mmap.getScores().put(value, 500.0);
+                mmap.getScoreErrors().put(value, 50.0);
+            }
+            values = ParamSpaceExplorer.nextValues(Arrays.asList(channel, mmap), true, 10);
+        }
+        Assertions.assertTrue(channel.getScores().containsKey(562L));
+
+        List<Crossover> crossovers = ParamSpaceExplorer.findCrossovers(Arrays.asList(channel, mmap));
+        Assertions.assertEquals(1, crossovers.size());
+
+        Crossover crossover = crossovers.get(0);
+        Assertions.assertEquals("copyWithFileChannel", crossover.getBelow());
+        Assertions.assertTrue(crossover.getLower() < 500 && crossover.getUpper() > 500, crossover.toString());
+        Assertions.assertTrue(crossover.getUpper() < 1000, crossover.toString());
+        Assertions.assertEquals(500, crossover.getEstimate(), 1);
+    }
+
+    @Test
+    public void testKnee() {
+        // O(n) up to 100, O(n^2) above
+        Series series = series("copy", 1, 10, 100, 10000, 1000000);
+
+        Assertions.assertEquals(Collections.singletonList(100L), ParamSpaceExplorer.findKnees(series, true, 0.5));
+        Assertions.assertEquals(new TreeSet<>(Arrays.asList(32L, 316L)), ParamSpaceExplorer.nextValues(Collections.singletonList(series), true, 0.5));
+
+        Assertions.assertTrue(ParamSpaceExplorer.findKnees(series("linear", 1, 10, 100, 1000, 10000), true, 0.5).isEmpty());
+
+        // within the score error
+        Series noisy = series("noisy", 100, 100, 130, 100, 100);
+        Assertions.assertEquals(Collections.singletonList(100L), ParamSpaceExplorer.findKnees(noisy, true, 0.2));
+        for (long value : noisy.getScores().keySet()) {
+            noisy.getScoreErrors().put(value, 20.0);
+        }
+        Assertions.assertTrue(ParamSpaceExplorer.findKnees(noisy, true, 0.2).isEmpty());
+    }
+}
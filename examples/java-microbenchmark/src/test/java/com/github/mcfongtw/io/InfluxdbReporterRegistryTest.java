@@ -0,0 +1,100 @@
+package com.github.mcfongtw.io;
+
+import com.codahale.metrics.ConsoleReporter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.ScheduledReporter;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.google.common.io.ByteStreams;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+public class InfluxdbReporterRegistryTest {
+
+    private static final String REGISTRY_NAME_A = InfluxdbReporterRegistryTest.class.getName() + ".A";
+
+    private static final String REGISTRY_NAME_B = InfluxdbReporterRegistryTest.class.getName() + ".B";
+
+    private InfluxdbReporterRegistry reporterRegistry;
+
+    @BeforeEach
+    public void setUp() {
+        //console reporter as a stand-in, to not depend on an InfluxDB server
+        reporterRegistry = new InfluxdbReporterRegistry(new InfluxdbReporterRegistry.ReporterFactory() {
+            @Override
+            public ScheduledReporter build(MetricRegistry metricRegistry) {
+                return ConsoleReporter.forRegistry(metricRegistry)
+                        .outputTo(new PrintStream(ByteStreams.nullOutputStream()))
+                        .build();
+            }
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        reporterRegistry.stopAll();
+        SharedMetricRegistries.remove(REGISTRY_NAME_A);
+        SharedMetricRegistries.remove(REGISTRY_NAME_B);
+    }
+
+    @Test
+    public void testGetReporterConcurrently() throws Exception {
+        final int numThreads = 16;
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+
+        try {
+            List<Future<ScheduledReporter>> futures = new ArrayList<>();
+            for (int i = 0; i < numThreads; i++) {
+                futures.add(executorService.submit(new Callable<ScheduledReporter>() {
+                    @Override
+                    public ScheduledReporter call() throws Exception {
+                        startLatch.await();
+                        return reporterRegistry.getReporter(REGISTRY_NAME_A);
+                    }
+                }));
+            }
+            startLatch.countDown();
+
+            ScheduledReporter reporter = futures.get(0).get();
+            Assertions.assertNotNull(reporter);
+            for (Future<ScheduledReporter> future : futures) {
+                Assertions.assertSame(reporter, future.get());
+            }
+
+            //one reporter per registry
+            Assertions.assertNotSame(reporter, reporterRegistry.getReporter(REGISTRY_NAME_B));
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testStartIsDeferredUntilFirstMetric() {
+        MetricRegistry metricRegistry = SharedMetricRegistries.getOrCreate(REGISTRY_NAME_A);
+
+        //never fires within the test
+        reporterRegistry.start(REGISTRY_NAME_A, 1, TimeUnit.HOURS);
+        Assertions.assertFalse(reporterRegistry.isStarted(REGISTRY_NAME_A));
+
+        metricRegistry.counter("Counter");
+        Assertions.assertTrue(reporterRegistry.isStarted(REGISTRY_NAME_A));
+        ScheduledReporter reporter = reporterRegistry.getReporter(REGISTRY_NAME_A);
+
+        //a stopped reporter is replaced on restart; the registry is not empty any more
+        reporterRegistry.stop(REGISTRY_NAME_A);
+        Assertions.assertFalse(reporterRegistry.isStarted(REGISTRY_NAME_A));
+        reporterRegistry.start(REGISTRY_NAME_A, 1, TimeUnit.HOURS);
+        Assertions.assertTrue(reporterRegistry.isStarted(REGISTRY_NAME_A));
+        Assertions.assertNotSame(reporter, reporterRegistry.getReporter(REGISTRY_NAME_A));
+
+        //registries are started independently
+        Assertions.assertFalse(reporterRegistry.isStarted(REGISTRY_NAME_B));
+    }
+}
@@ -0,0 +1,131 @@
+package com.github.mcfongtw.io.copy;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+public class AsyncCopyEngineTest {
+
+    private File dir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("async-copy").toFile();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    private File newFile(String name, int size) throws IOException {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+
+        File file = new File(dir, name);
+        FileUtils.writeByteArrayToFile(file, content);
+
+        return file;
+    }
+
+    @Test
+    public void testCopyAcrossQueueDepths() throws IOException {
+        // last chunk partial, plus an empty file
+        File[] sources = {newFile("in.data", 10 * 4096 + 123), newFile("empty.data", 0)};
+
+        for (int queueDepth : new int[]{1, 3, 64}) {
+            try (AsyncCopyEngine engine = new AsyncCopyEngine(queueDepth, 4096, 2)) {
+                for (File source : sources) {
+                    File target = new File(dir, "out.data");
+                    // longer than the source, i.e. to be truncated
+                    FileUtils.writeByteArrayToFile(target, new byte[64 * 1024]);
+
+                    Assertions.assertEquals(source.length(), engine.copy(source.toPath(), target.toPath()));
+                    Assertions.assertTrue(FileUtils.contentEquals(source, target), "queueDepth " + queueDepth);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCopyAfterFailure() throws IOException {
+        File source = newFile("in.data", 100 * 1024);
+
+        try (AsyncCopyEngine engine = new AsyncCopyEngine(2, 1024, 1)) {
+            try {
+                engine.copy(source.toPath(), new File(dir, "missing/out.data").toPath());
+                Assertions.fail();
+            } catch (IOException e) {
+                // expected
+            }
+
+            try {
+                engine.copy(new File(dir, "missing.data").toPath(), new File(dir, "out.data").toPath());
+                Assertions.fail();
+            } catch (IOException e) {
+                // expected
+            }
+
+            // the engine stays usable
+            File target = new File(dir, "out.data");
+            Assertions.assertEquals(source.length(), engine.copy(source.toPath(), target.toPath()));
+            Assertions.assertTrue(FileUtils.contentEquals(source, target));
+        }
+    }
+
+    @Test
+    public void testCopyAfterWriteFailure() throws IOException {
+        // every write fails with ENOSPC, while further reads are in flight
+        File full = new File("/dev/full");
+        Assumptions.assumeTrue(full.canWrite());
+        File source = newFile("in.data", 100 * 1024);
+
+        try (AsyncCopyEngine engine = new AsyncCopyEngine(4, 1024, 2)) {
+            for (int i = 0; i < 3; i++) {
+                try {
+                    engine.copy(source.toPath(), full.toPath());
+                    Assertions.fail();
+                } catch (IOException e) {
+                    // expected
+                }
+            }
+
+            // every buffer is back in the pool, or this copy of 100 chunks would block
+            File target = new File(dir, "out.data");
+            Assertions.assertEquals(source.length(), engine.copy(source.toPath(), target.toPath()));
+            Assertions.assertTrue(FileUtils.contentEquals(source, target));
+        }
+    }
+
+    @Test
+    public void testCopyAfterInterrupt() throws IOException {
+        File source = newFile("in.data", 100 * 1024);
+        File target = new File(dir, "out.data");
+
+        try (AsyncCopyEngine engine = new AsyncCopyEngine(2, 1024, 1)) {
+            Thread.currentThread().interrupt();
+            try {
+                engine.copy(source.toPath(), target.toPath());
+                Assertions.fail();
+            } catch (InterruptedIOException e) {
+                // expected, with the interrupt restored
+                Assertions.assertTrue(Thread.interrupted());
+            }
+
+            // no buffer left behind
+            Assertions.assertEquals(source.length(), engine.copy(source.toPath(), target.toPath()));
+            Assertions.assertTrue(FileUtils.contentEquals(source, target));
+        } finally {
+            Thread.interrupted();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.github.mcfongtw.io.copy;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+public class MmapWindowCopierTest {
+
+    private File dir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("mmap-copy").toFile();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    private File newFile(String name, int size) throws IOException {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+
+        File file = new File(dir, name);
+        FileUtils.writeByteArrayToFile(file, content);
+
+        return file;
+    }
+
+    @Test
+    public void testCopyAcrossWindows() throws IOException {
+        // last window partial, a single window, plus an empty file
+        File[] sources = {newFile("in.data", 10 * 4096 + 123), newFile("small.data", 100), newFile("empty.data", 0)};
+
+        for (boolean prefetch : new boolean[]{true, false}) {
+            try (MmapWindowCopier copier = new MmapWindowCopier(4096, prefetch)) {
+                for (File source : sources) {
+                    File target = new File(dir, "out.data");
+                    // longer than the source, i.e. to be truncated
+                    FileUtils.writeByteArrayToFile(target, new byte[64 * 1024]);
+
+                    Assertions.assertEquals(source.length(), copier.copy(source.toPath(), target.toPath()));
+                    Assertions.assertTrue(FileUtils.contentEquals(source, target), "prefetch " + prefetch);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testUnmap() throws IOException {
+        File file = newFile("in.data", 4096);
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            Assertions.assertTrue(isMapped(file));
+
+            MmapWindowCopier.unmap(buffer);
+            Assertions.assertFalse(isMapped(file));
+        }
+    }
+
+    /**
+     * @return true if the file is in /proc/self/maps, i.e. on Linux
+     */
+    private static boolean isMapped(File file) throws IOException {
+        File maps = new File("/proc/self/maps");
+        Assumptions.assumeTrue(maps.exists());
+
+        return FileUtils.readFileToString(maps, StandardCharsets.US_ASCII).contains(file.getCanonicalPath());
+    }
+}
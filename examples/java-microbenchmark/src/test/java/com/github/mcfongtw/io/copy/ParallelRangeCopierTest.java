@@ -0,0 +1,93 @@
+package com.github.mcfongtw.io.copy;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+public class ParallelRangeCopierTest {
+
+    private File dir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("parallel-copy").toFile();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    private File newFile(String name, int size) throws IOException {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+
+        File file = new File(dir, name);
+        FileUtils.writeByteArrayToFile(file, content);
+
+        return file;
+    }
+
+    @Test
+    public void testCopyAcrossThreads() throws IOException {
+        // ranges not a multiple of the buffer, a single page, plus an empty file
+        File[] sources = {newFile("in.data", 37 * 4096 + 123), newFile("small.data", 100), newFile("empty.data", 0)};
+
+        for (ParallelRangeCopier.Method method : ParallelRangeCopier.Method.values()) {
+            for (int threads : new int[]{1, 3, 8}) {
+                try (ParallelRangeCopier copier = new ParallelRangeCopier(threads, method, threads == 3, 1000)) {
+                    for (File source : sources) {
+                        File target = new File(dir, "out.data");
+                        // longer than the source, i.e. to be truncated
+                        FileUtils.writeByteArrayToFile(target, new byte[256 * 1024]);
+
+                        Assertions.assertEquals(source.length(), copier.copy(source.toPath(), target.toPath()));
+                        Assertions.assertTrue(FileUtils.contentEquals(source, target), method + " w/ " + threads + " threads");
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCopyAfterWriteFailure() throws IOException {
+        // every range fails with ENOSPC
+        File full = new File("/dev/full");
+        Assumptions.assumeTrue(full.canWrite());
+        File source = newFile("in.data", 64 * 4096);
+
+        for (ParallelRangeCopier.Method method : ParallelRangeCopier.Method.values()) {
+            try (ParallelRangeCopier copier = new ParallelRangeCopier(4, method, false, 4096)) {
+                try {
+                    copier.copy(source.toPath(), full.toPath());
+                    Assertions.fail();
+                } catch (IOException e) {
+                    // expected
+                }
+
+                // all ranges joined, the copier stays usable
+                File target = new File(dir, "out.data");
+                Assertions.assertEquals(source.length(), copier.copy(source.toPath(), target.toPath()));
+                Assertions.assertTrue(FileUtils.contentEquals(source, target), method.toString());
+            }
+        }
+    }
+
+    @Test
+    public void testCopyMissingSource() throws IOException {
+        try (ParallelRangeCopier copier = new ParallelRangeCopier(2, ParallelRangeCopier.Method.READ_WRITE, false, 4096)) {
+            copier.copy(new File(dir, "missing.data").toPath(), new File(dir, "out.data").toPath());
+            Assertions.fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
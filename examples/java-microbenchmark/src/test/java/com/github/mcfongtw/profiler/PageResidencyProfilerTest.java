@@ -0,0 +1,36 @@
+package com.github.mcfongtw.profiler;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.results.Result;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class PageResidencyProfilerTest {
+
+    @Test
+    public void testRecordPerIteration() {
+        PageResidencyProfiler profiler = new PageResidencyProfiler();
+        Assertions.assertFalse(PageResidencyProfiler.isRecording());
+
+        profiler.beforeIteration(null, null);
+        Assertions.assertTrue(PageResidencyProfiler.isRecording());
+        PageResidencyProfiler.recordBefore(0);
+        PageResidencyProfiler.recordBefore(50);
+        PageResidencyProfiler.recordAfter(100);
+
+        List<Result> results = new ArrayList<Result>(profiler.afterIteration(null, null, null));
+        Assertions.assertFalse(PageResidencyProfiler.isRecording());
+        Assertions.assertEquals(2, results.size());
+        Assertions.assertEquals("\u00b7residency.before", results.get(0).getLabel());
+        Assertions.assertEquals(25.0, results.get(0).getScore(), 1e-9);
+        Assertions.assertEquals("%", results.get(0).getScoreUnit());
+        Assertions.assertEquals("\u00b7residency.after", results.get(1).getLabel());
+        Assertions.assertEquals(100.0, results.get(1).getScore(), 1e-9);
+
+        // nothing recorded, i.e. a benchmark without PageResidencyHook
+        profiler.beforeIteration(null, null);
+        Assertions.assertTrue(profiler.afterIteration(null, null, null).isEmpty());
+    }
+}
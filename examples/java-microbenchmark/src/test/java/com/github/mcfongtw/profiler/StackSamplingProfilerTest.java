@@ -0,0 +1,60 @@
+package com.github.mcfongtw.profiler;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.profile.ProfilerException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class StackSamplingProfilerTest {
+
+    @Test
+    public void testCollapseRootFirst() {
+        StackTraceElement[] stack = {
+                new StackTraceElement("com.github.mcfongtw.Foo", "leaf", "Foo.java", 2),
+                new StackTraceElement("java.lang.Thread", "run", "Thread.java", 1)
+        };
+
+        Assertions.assertEquals("java.lang.Thread.run;com.github.mcfongtw.Foo.leaf", StackSamplingProfiler.collapse(stack));
+    }
+
+    @Test
+    public void testMergeWriteAndRead() throws IOException {
+        File file = File.createTempFile("stacks", ".collapsed");
+        file.deleteOnExit();
+
+        Map<String, Long> samples = new HashMap<>();
+        samples.put("a;b", 2L);
+        Map<String, Long> more = new HashMap<>();
+        more.put("a;b", 3L);
+        more.put("a;c", 1L);
+
+        Assertions.assertEquals(4, StackSamplingProfiler.merge(samples, more));
+        StackSamplingProfiler.write(samples, file);
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        Assertions.assertEquals("a;b 5", lines.get(0));
+        Assertions.assertEquals("a;c 1", lines.get(1));
+        Assertions.assertEquals(samples, StackSamplingProfiler.read(file));
+    }
+
+    @Test
+    public void testInvalidOptions() throws ProfilerException {
+        new StackSamplingProfiler("interval=5;dir=target/stacks;state=all");
+
+        for (String initLine : new String[]{"interval=0", "state=blocked", "depth=10", "interval"}) {
+            try {
+                new StackSamplingProfiler(initLine);
+                Assertions.fail("Expected [" + initLine + "] to be rejected");
+            } catch (ProfilerException e) {
+                // expected
+            }
+        }
+    }
+}
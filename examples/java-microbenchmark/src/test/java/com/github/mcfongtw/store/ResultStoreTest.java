@@ -0,0 +1,171 @@
+package com.github.mcfongtw.store;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.google.common.collect.ImmutableMap;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+public class ResultStoreTest {
+
+    private static final String BENCHMARK = "com.github.mcfongtw.io.file.FileReplicationBenchmark.copyWithMmap";
+
+    private File dir;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("result-store").toFile();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    private static ArrayNode results(double score, String environment) throws IOException {
+        return results(score, environment, "1024 kB");
+    }
+
+    private static ArrayNode results(double score, String environment, String pageCache) throws IOException {
+        return (ArrayNode) new ObjectMapper().readTree("["
+                + result("1024", score, environment, pageCache) + ","
+                + result("4096", score * 4, environment, pageCache) + "]");
+    }
+
+    private static String result(String fileSize, double score, String environment, String pageCache) {
+        return "{\"benchmark\":\"" + BENCHMARK + "\",\"mode\":\"avgt\",\"params\":{\"fileSize\":\"" + fileSize + "\"},"
+                + "\"primaryMetric\":{\"score\":" + score + ",\"scoreError\":\"NaN\",\"scoreUnit\":\"us/op\"},"
+                + "\"secondaryMetrics\":{\"\\u00b7gc.alloc.rate\":{\"score\":1.5,\"scoreError\":0.1,\"scoreUnit\":\"MB/sec\"}},"
+                + "\"environment\":{\"os.kernel\":\"" + environment + "\",\"pagecache.cached\":\"" + pageCache + "\",\"pagecache.dirty\":\"" + pageCache + "\"}}";
+    }
+
+    @Test
+    public void testQueryLastRunsPerParam() throws IOException {
+        try (ResultStore store = ResultStore.open(dir)) {
+            for (int run = 1; run <= 5; run++) {
+                Assertions.assertEquals(run, store.append(results(run, run <= 3 ? "4.15" : "4.19"), "run-" + run, run * 1000L));
+            }
+        }
+
+        try (ResultStore store = ResultStore.open(dir)) {
+            Assertions.assertEquals(5, store.getRunCount());
+            Assertions.assertEquals(20, store.getRowCount());
+
+            List<TrendSeries> series = store.query(Pattern.compile("copyWithMmap$"), Collections.<String, String>emptyMap(), 3);
+            Assertions.assertEquals(2, series.size());
+
+            TrendSeries small = series.get(0);
+            Assertions.assertEquals(BENCHMARK + " [avgt] {fileSize=1024}", small.getKey());
+            Assertions.assertEquals(3, small.getPoints().size());
+            Assertions.assertEquals(3, small.getPoints().get(0).getRun());
+            Assertions.assertEquals("run-3", small.getPoints().get(0).getLabel());
+            Assertions.assertEquals(3000L, small.getPoints().get(0).getTimestamp());
+            Assertions.assertEquals(5.0, small.getLatest().getScore());
+            Assertions.assertTrue(Double.isNaN(small.getLatest().getScoreError()));
+            Assertions.assertEquals("us/op", small.getLatest().getUnit());
+            Assertions.assertEquals(25.0, small.getLatestChangeInPercent(), 1e-9);
+            Assertions.assertNotEquals(small.getPoints().get(0).getEnvironment(), small.getPoints().get(1).getEnvironment());
+            Assertions.assertEquals("{\"os.kernel\":\"4.19\"}", store.getEnvironment(small.getLatest()));
+
+            Assertions.assertEquals(20.0, series.get(1).getLatest().getScore());
+
+            List<TrendSeries> large = store.query(Pattern.compile(Pattern.quote(BENCHMARK)), ImmutableMap.of("fileSize", "4096"), 30);
+            Assertions.assertEquals(2, large.size());
+            Assertions.assertEquals(BENCHMARK + ":\u00b7gc.alloc.rate", large.get(1).getBenchmark());
+            Assertions.assertEquals(5, large.get(0).getPoints().size());
+        }
+    }
+
+    @Test
+    public void testIncompleteAppendDropped() throws IOException {
+        try (ResultStore store = ResultStore.open(dir)) {
+            store.append(results(1, "4.15"), "run-1", 1000L);
+            store.append(results(2, "4.15"), "run-2", 2000L);
+        }
+
+        // as if the second run was interrupted after the first columns
+        try (RandomAccessFile score = new RandomAccessFile(new File(dir, "score.col"), "rw")) {
+            score.setLength(score.length() - 2 * Column.DOUBLE_WIDTH - 3);
+        }
+        try (RandomAccessFile dictionary = new RandomAccessFile(new File(dir, "dictionary.bin"), "rw")) {
+            dictionary.seek(dictionary.length());
+            dictionary.writeInt(100);
+            dictionary.write(new byte[]{'p', 'a', 'r'});
+        }
+
+        try (ResultStore store = ResultStore.open(dir)) {
+            Assertions.assertEquals(5, store.getRowCount());
+            Assertions.assertEquals(2, store.getRunCount());
+
+            Assertions.assertEquals(3, store.append(results(3, "4.15"), "run-3", 3000L));
+        }
+
+        try (ResultStore store = ResultStore.open(dir)) {
+            Assertions.assertEquals(9, store.getRowCount());
+            TrendSeries series = store.query(Pattern.compile(BENCHMARK + "$"), ImmutableMap.of("fileSize", "1024"), 30).get(0);
+            Assertions.assertEquals(3, series.getPoints().size());
+            Assertions.assertEquals(2, series.getPoints().get(1).getRun());
+            Assertions.assertEquals(3.0, series.getLatest().getScore());
+        }
+    }
+
+    @Test
+    public void testTrendPage() throws IOException {
+        try (ResultStore store = ResultStore.open(dir)) {
+            store.append(results(1, "4.15"), "run-1", 1000L);
+            store.append(results(2, "4.19"), "<b>run-2</b>", 2000L);
+
+            StringWriter html = new StringWriter();
+            TrendPage.write(store.query(Pattern.compile(BENCHMARK + "$"), Collections.<String, String>emptyMap(), 30), "trends", html);
+            Assertions.assertEquals(2, html.toString().split("<svg ").length - 1);
+            Assertions.assertTrue(html.toString().contains("class=\"environment\""));
+            Assertions.assertTrue(html.toString().contains("&lt;b&gt;run-2&lt;/b&gt;"));
+            Assertions.assertTrue(html.toString().contains("+100.0% vs previous run"));
+
+            Assertions.assertTrue(store.writeTrendPage(30).isFile());
+
+            try {
+                ResultStore.open(dir);
+                Assertions.fail("Expected store open twice to be rejected");
+            } catch (IllegalStateException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testPageCacheNotAnEnvironmentChange() throws IOException {
+        try (ResultStore store = ResultStore.open(dir)) {
+            store.append(results(1, "4.15", "1024 kB"), "run-1", 1000L);
+            store.append(results(2, "4.15", "2048 kB"), "run-2", 2000L);
+
+            List<TrendSeries> series = store.query(Pattern.compile(BENCHMARK + "$"), Collections.<String, String>emptyMap(), 30);
+            List<TrendSeries.Point> points = series.get(0).getPoints();
+            Assertions.assertEquals(2, points.size());
+            Assertions.assertEquals(points.get(0).getEnvironment(), points.get(1).getEnvironment());
+            Assertions.assertEquals("{\"os.kernel\":\"4.15\"}", store.getEnvironment(points.get(1)));
+
+            StringWriter html = new StringWriter();
+            TrendPage.write(series, "trends", html);
+            Assertions.assertFalse(html.toString().contains("class=\"environment\""));
+        }
+    }
+
+    @Test
+    public void testTrendPageEscape() {
+        Assertions.assertEquals("a&lt;b&gt; &amp; &quot;c&quot; &#39;d&#39; \u00b5s/op", TrendPage.escape("a<b> & \"c\" 'd' \u00b5s/op"));
+        Assertions.assertEquals("", TrendPage.escape(null));
+    }
+}
@@ -1,6 +1,31 @@
 #include <sys/mman.h>
+#include <sys/stat.h>
+#include <errno.h>
+#include <fcntl.h>
+#include <unistd.h>
+#include <string>
+#include <vector>
 #include "NativeSystemCaller.h"
 #include "ExceptionUtils.h"
+#include "DataTypeUtils.h"
+
+/*
+ * open(2) the file at jpath read only; on failure, throw and return -1
+ */
+static int openReadOnly(JNIEnv *env, jstring jpath) {
+    if (jpath == NULL) {
+        jni::ExceptionUtils::throwNullPointerException(env, "path");
+        return -1;
+    }
+
+    std::string path = jni::DataTypeUtils::getNativeString(env, jpath);
+    int fd = open(path.c_str(), O_RDONLY);
+    if (fd < 0) {
+        jni::ExceptionUtils::throwInternalErrorFromErrnoString(env);
+    }
+
+    return fd;
+}
 
 #ifdef __cplusplus
 extern "C" {
@@ -32,6 +57,120 @@ JNIEXPORT jint JNICALL Java_com_github_mcfongtw_jni_utils_NativeSystemCaller_mun
   }
 
 
+JNIEXPORT jint JNICALL Java_com_github_mcfongtw_jni_utils_NativeSystemCaller_posixFadvise
+  (JNIEnv *env, jclass clazz, jstring jpath, jlong joffset, jlong jlength, jint jadvice) {
+
+  int fd = openReadOnly(env, jpath);
+  if(fd < 0) {
+      return (jint) fd;
+  }
+
+  #ifdef __linux__
+      // returns the error number rather than setting errno
+      int result = posix_fadvise(fd, (off_t) joffset, (off_t) jlength, (int) jadvice);
+      if(result != 0) {
+          errno = result;
+          jni::ExceptionUtils::throwInternalErrorFromErrnoString(env);
+      }
+  #elif __APPLE__
+      int result = -1;
+      jni::ExceptionUtils::throwUnsupportedOperationException(env, "posix_fadvise");
+  #else
+      #error OS Not Defined / Supported
+  #endif
+
+  close(fd);
+
+  return (jint) result;
+  }
+
+
+JNIEXPORT jint JNICALL Java_com_github_mcfongtw_jni_utils_NativeSystemCaller_fdatasync
+  (JNIEnv *env, jclass clazz, jstring jpath) {
+
+  int fd = openReadOnly(env, jpath);
+  if(fd < 0) {
+      return (jint) fd;
+  }
+
+  #ifdef __linux__
+      int result = fdatasync(fd);
+  #elif __APPLE__
+      int result = fsync(fd);
+  #else
+      #error OS Not Defined / Supported
+  #endif
+
+  if(result < 0) {
+      jni::ExceptionUtils::throwInternalErrorFromErrnoString(env);
+  }
+
+  close(fd);
+
+  return (jint) result;
+  }
+
+
+JNIEXPORT jlong JNICALL Java_com_github_mcfongtw_jni_utils_NativeSystemCaller_mincore
+  (JNIEnv *env, jclass clazz, jstring jpath) {
+
+  int fd = openReadOnly(env, jpath);
+  if(fd < 0) {
+      return (jlong) fd;
+  }
+
+  struct stat status;
+  if(fstat(fd, &status) < 0) {
+      jni::ExceptionUtils::throwInternalErrorFromErrnoString(env);
+      close(fd);
+      return -1;
+  }
+  if(status.st_size == 0) {
+      close(fd);
+      return 0;
+  }
+
+  // mapping does not fault the pages in, mincore() only reports them
+  void *address = mmap(NULL, (size_t) status.st_size, PROT_READ, MAP_SHARED, fd, 0);
+  close(fd);
+  if(address == MAP_FAILED) {
+      jni::ExceptionUtils::throwInternalErrorFromErrnoString(env);
+      return -1;
+  }
+
+  long pageSize = sysconf(_SC_PAGESIZE);
+  size_t pages = (size_t) ((status.st_size + pageSize - 1) / pageSize);
+  #ifdef __linux__
+      std::vector<unsigned char> residency(pages);
+  #elif __APPLE__
+      std::vector<char> residency(pages);
+  #else
+      #error OS Not Defined / Supported
+  #endif
+
+  jlong residentPages = 0;
+  if(mincore(address, (size_t) status.st_size, residency.data()) < 0) {
+      jni::ExceptionUtils::throwInternalErrorFromErrnoString(env);
+      residentPages = -1;
+  } else {
+      for(size_t page = 0; page < pages; page++) {
+          residentPages += residency[page] & 1;
+      }
+  }
+
+  munmap(address, (size_t) status.st_size);
+
+  return residentPages;
+  }
+
+
+JNIEXPORT jint JNICALL Java_com_github_mcfongtw_jni_utils_NativeSystemCaller_getpagesize
+  (JNIEnv *env, jclass clazz) {
+
+  return (jint) sysconf(_SC_PAGESIZE);
+  }
+
+
 #ifdef __cplusplus
 }
 #endif
\ No newline at end of file
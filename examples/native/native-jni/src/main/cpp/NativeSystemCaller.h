@@ -11,6 +11,18 @@ extern "C" {
 #define com_github_mcfongtw_jni_utils_NativeSystemCaller_MCL_CURRENT 1L
 #undef com_github_mcfongtw_jni_utils_NativeSystemCaller_MCL_FUTURE
 #define com_github_mcfongtw_jni_utils_NativeSystemCaller_MCL_FUTURE 2L
+#undef com_github_mcfongtw_jni_utils_NativeSystemCaller_POSIX_FADV_NORMAL
+#define com_github_mcfongtw_jni_utils_NativeSystemCaller_POSIX_FADV_NORMAL 0L
+#undef com_github_mcfongtw_jni_utils_NativeSystemCaller_POSIX_FADV_RANDOM
+#define com_github_mcfongtw_jni_utils_NativeSystemCaller_POSIX_FADV_RANDOM 1L
+#undef com_github_mcfongtw_jni_utils_NativeSystemCaller_POSIX_FADV_SEQUENTIAL
+#define com_github_mcfongtw_jni_utils_NativeSystemCaller_POSIX_FADV_SEQUENTIAL 2L
+#undef com_github_mcfongtw_jni_utils_NativeSystemCaller_POSIX_FADV_WILLNEED
+#define com_github_mcfongtw_jni_utils_NativeSystemCaller_POSIX_FADV_WILLNEED 3L
+#undef com_github_mcfongtw_jni_utils_NativeSystemCaller_POSIX_FADV_DONTNEED
+#define com_github_mcfongtw_jni_utils_NativeSystemCaller_POSIX_FADV_DONTNEED 4L
+#undef com_github_mcfongtw_jni_utils_NativeSystemCaller_POSIX_FADV_NOREUSE
+#define com_github_mcfongtw_jni_utils_NativeSystemCaller_POSIX_FADV_NOREUSE 5L
 /*
  * Class:     com_github_mcfongtw_jni_utils_NativeSystemCaller
  * Method:    mlockall
@@ -27,6 +39,38 @@ JNIEXPORT jint JNICALL Java_com_github_mcfongtw_jni_utils_NativeSystemCaller_mlo
 JNIEXPORT jint JNICALL Java_com_github_mcfongtw_jni_utils_NativeSystemCaller_munlockall
   (JNIEnv *, jclass);
 
+/*
+ * Class:     com_github_mcfongtw_jni_utils_NativeSystemCaller
+ * Method:    posixFadvise
+ * Signature: (Ljava/lang/String;JJI)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_mcfongtw_jni_utils_NativeSystemCaller_posixFadvise
+  (JNIEnv *, jclass, jstring, jlong, jlong, jint);
+
+/*
+ * Class:     com_github_mcfongtw_jni_utils_NativeSystemCaller
+ * Method:    fdatasync
+ * Signature: (Ljava/lang/String;)I
+ */
+JNIEXPORT jint JNICALL Java_com_github_mcfongtw_jni_utils_NativeSystemCaller_fdatasync
+  (JNIEnv *, jclass, jstring);
+
+/*
+ * Class:     com_github_mcfongtw_jni_utils_NativeSystemCaller
+ * Method:    mincore
+ * Signature: (Ljava/lang/String;)J
+ */
+JNIEXPORT jlong JNICALL Java_com_github_mcfongtw_jni_utils_NativeSystemCaller_mincore
+  (JNIEnv *, jclass, jstring);
+
+/*
+ * Class:     com_github_mcfongtw_jni_utils_NativeSystemCaller
+ * Method:    getpagesize
+ * Signature: ()I
+ */
+JNIEXPORT jint JNICALL Java_com_github_mcfongtw_jni_utils_NativeSystemCaller_getpagesize
+  (JNIEnv *, jclass);
+
 #ifdef __cplusplus
 }
 #endif
@@ -0,0 +1,85 @@
+package com.github.mcfongtw.scaling;
+
+import com.github.mcfongtw.metrics.LatencyMetric;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Issue an operation at a fixed rate, i.e. a write every 100 ms, and record its latency corrected for coordinated
+ * omission, see {@link LatencyMetric#addTime(long, TimeUnit, long, TimeUnit)}.
+ *
+ * After an overrun the next operation is issued right away, without bursting to catch up the schedule: the operations
+ * which should have been issued in the meantime are back-filled into the latency metric instead.
+ */
+public class FixedRateLoadDriver implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FixedRateLoadDriver.class);
+
+    public interface Operation {
+        void execute() throws Exception;
+    }
+
+    private final LatencyMetric latencyMetric;
+
+    private final long intervalInNanos;
+
+    private final Operation operation;
+
+    private volatile boolean isRunning = true;
+
+    private final AtomicLong numOperations = new AtomicLong();
+
+    private final AtomicLong numFailures = new AtomicLong();
+
+    public FixedRateLoadDriver(LatencyMetric latencyMetric, long interval, TimeUnit unit, Operation operation) {
+        this.latencyMetric = latencyMetric;
+        this.intervalInNanos = unit.toNanos(interval);
+        this.operation = operation;
+    }
+
+    @Override
+    public void run() {
+        long nextStartNanos = System.nanoTime();
+
+        while (isRunning && !Thread.currentThread().isInterrupted()) {
+            long waitNanos = nextStartNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(waitNanos);
+                continue;
+            }
+
+            long beforeTime = System.nanoTime();
+            try {
+                operation.execute();
+            } catch (Exception e) {
+                numFailures.incrementAndGet();
+                logger.warn("Operation failed", e);
+            }
+            long afterTime = System.nanoTime();
+
+            latencyMetric.addTime(afterTime - beforeTime, TimeUnit.NANOSECONDS, intervalInNanos, TimeUnit.NANOSECONDS);
+            numOperations.incrementAndGet();
+
+            nextStartNanos += intervalInNanos;
+            if (nextStartNanos < afterTime) {
+                nextStartNanos = afterTime;
+            }
+        }
+    }
+
+    public void stop() {
+        isRunning = false;
+    }
+
+    public long getNumOperations() {
+        return numOperations.get();
+    }
+
+    public long getNumFailures() {
+        return numFailures.get();
+    }
+}
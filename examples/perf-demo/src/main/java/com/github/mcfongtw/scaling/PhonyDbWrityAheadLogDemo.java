@@ -1,10 +1,24 @@
 package com.github.mcfongtw.scaling;
 
+import com.codahale.metrics.Snapshot;
+import com.github.mcfongtw.metrics.WindowedLatencyMetric;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.FileOutputStream;
 import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
 
 public class PhonyDbWrityAheadLogDemo {
 
+    private static final Logger logger = LoggerFactory.getLogger(PhonyDbWrityAheadLogDemo.class);
+
+    private static final int WINDOW_SIZE_IN_SECONDS = 10;
+
+    private static final WindowedLatencyMetric workerWriteLatency = new WindowedLatencyMetric(PhonyDbWrityAheadLogDemo.class.getName() + ".WorkerWrite", WINDOW_SIZE_IN_SECONDS);
+
+    private static final WindowedLatencyMetric mainWriteLatency = new WindowedLatencyMetric(PhonyDbWrityAheadLogDemo.class.getName() + ".MainWrite", WINDOW_SIZE_IN_SECONDS);
+
     private static void doWriteTraditionally(int size) throws Exception {
         FileOutputStream fos = new FileOutputStream("/tmp/db-write-ahead-0.log");
         byte[] data = new byte[size];
@@ -24,25 +38,34 @@ public class PhonyDbWrityAheadLogDemo {
     }
 
     private static void mainWriter(int size) throws Exception {
+        long start = System.nanoTime();
         doWriteAutoClosably(size);
+        mainWriteLatency.addTime(System.nanoTime() - start, TimeUnit.NANOSECONDS, 1, TimeUnit.SECONDS);
+    }
+
+    private static void logRecentLatency(String name, WindowedLatencyMetric metric) {
+        Snapshot snapshot = metric.getSnapshot(WINDOW_SIZE_IN_SECONDS, TimeUnit.SECONDS);
+        logger.info("{} over last {} sec: count [{}], p50 [{}] us, p99 [{}] us, max [{}] us", new Object[]{name, WINDOW_SIZE_IN_SECONDS, snapshot.size(),
+                TimeUnit.NANOSECONDS.toMicros((long) snapshot.getMedian()), TimeUnit.NANOSECONDS.toMicros((long) snapshot.get99thPercentile()),
+                TimeUnit.NANOSECONDS.toMicros(snapshot.getMax())});
     }
 
     public static void main(String[] args) throws Exception {
-        Thread diligentWorkerThread = new Thread(new Runnable() {
-            public void run() {
-                while (true) {
-                    try {
-                        Thread.sleep(100);
-                        workerWriter();
-                    } catch (Exception e) {
-                    }
-                }
+        Thread diligentWorkerThread = new Thread(new FixedRateLoadDriver(workerWriteLatency, 100, TimeUnit.MILLISECONDS, new FixedRateLoadDriver.Operation() {
+            @Override
+            public void execute() throws Exception {
+                workerWriter();
             }
-        });
+        }));
         diligentWorkerThread.start();
-        while (true) {
+        for (long round = 1; ; round++) {
             Thread.sleep(1000);
             mainWriter(1024);
+
+            if (round % WINDOW_SIZE_IN_SECONDS == 0) {
+                logRecentLatency("WorkerWrite", workerWriteLatency);
+                logRecentLatency("MainWrite", mainWriteLatency);
+            }
         }
     }
 }
@@ -4,8 +4,10 @@ import com.codahale.metrics.Counter;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class MetricConcurrentTest {
@@ -72,4 +74,95 @@ public class MetricConcurrentTest {
         Assertions.assertFalse(isZeroSeen.get());
     }
 
+    private static final long GAUGE_VALUE_A = 0x0F0F0F0F0F0F0F0FL;
+
+    private static final long GAUGE_VALUE_B = 0x7070707070707070L;
+
+    @Test
+    public void testAtomicLongGaugeSet() throws Exception {
+        final AtomicLongGauge gauge = new AtomicLongGauge(GAUGE_VALUE_A);
+        final AtomicBoolean isTornValueSeen = new AtomicBoolean(false);
+        final int numWriters = 4;
+        final int numReaders = 4;
+        final int numSetsPerWriter = MAX_ITERATION / 10;
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final CountDownLatch writerDoneLatch = new CountDownLatch(numWriters);
+        final CountDownLatch readerDoneLatch = new CountDownLatch(numReaders);
+
+        for(int w = 0; w < numWriters; w++) {
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                        for (int i = 0; i < numSetsPerWriter; i++) {
+                            gauge.set((i % 2 == 0) ? GAUGE_VALUE_B : GAUGE_VALUE_A);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        writerDoneLatch.countDown();
+                    }
+                }
+            });
+        }
+        for(int r = 0; r < numReaders; r++) {
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                        while (writerDoneLatch.getCount() > 0) {
+                            long value = gauge.getValue();
+                            // any value other than one of the written values is a torn / intermediate value
+                            if (value != GAUGE_VALUE_A && value != GAUGE_VALUE_B) {
+                                isTornValueSeen.set(true);
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        readerDoneLatch.countDown();
+                    }
+                }
+            });
+        }
+
+        startLatch.countDown();
+        Assertions.assertTrue(writerDoneLatch.await(1, TimeUnit.MINUTES));
+        Assertions.assertTrue(readerDoneLatch.await(1, TimeUnit.MINUTES));
+        Assertions.assertFalse(isTornValueSeen.get());
+    }
+
+    @Test
+    public void testAtomicLongGaugeUpdateMax() throws Exception {
+        final AtomicLongGauge gauge = new AtomicLongGauge();
+        final int numWriters = 8;
+        final int numUpdatesPerWriter = MAX_ITERATION / 10;
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final CountDownLatch writerDoneLatch = new CountDownLatch(numWriters);
+
+        for(int w = 0; w < numWriters; w++) {
+            final int writerId = w;
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                        for (int i = 0; i < numUpdatesPerWriter; i++) {
+                            gauge.updateMax((long) i * numWriters + writerId);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        writerDoneLatch.countDown();
+                    }
+                }
+            });
+        }
+
+        startLatch.countDown();
+        Assertions.assertTrue(writerDoneLatch.await(1, TimeUnit.MINUTES));
+        Assertions.assertEquals((long) numUpdatesPerWriter * numWriters - 1, gauge.get());
+    }
 }
@@ -0,0 +1,60 @@
+package com.github.mcfongtw.scaling;
+
+import com.codahale.metrics.Snapshot;
+import com.github.mcfongtw.metrics.HdrHistogramReservoir;
+import com.github.mcfongtw.metrics.LatencyMetric;
+import com.github.mcfongtw.metrics.MetricUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FixedRateLoadDriverTest {
+
+    private static final String TEST_NAME = "TestFixedRateLoadDriver";
+
+    @AfterEach
+    public void tearDown() {
+        MetricUtils.getDefaultMetricRegistry().remove(MetricUtils.concat(TEST_NAME, "TotalLatencyMillis"));
+        MetricUtils.getDefaultMetricRegistry().remove(MetricUtils.concat(TEST_NAME, "Latency"));
+    }
+
+    @Test
+    public void testStallIsBackFilled() throws Exception {
+        final int numOperations = 20;
+        final AtomicInteger counter = new AtomicInteger();
+        LatencyMetric latencyMetric = new LatencyMetric(TEST_NAME, new HdrHistogramReservoir());
+
+        final FixedRateLoadDriver[] driver = new FixedRateLoadDriver[1];
+        driver[0] = new FixedRateLoadDriver(latencyMetric, 10, TimeUnit.MILLISECONDS, new FixedRateLoadDriver.Operation() {
+            @Override
+            public void execute() throws Exception {
+                int count = counter.incrementAndGet();
+                if (count == 5) {
+                    //a single stall of 10 intervals
+                    Thread.sleep(100);
+                }
+                if (count == numOperations) {
+                    driver[0].stop();
+                }
+            }
+        });
+
+        Thread thread = new Thread(driver[0]);
+        thread.start();
+        thread.join(TimeUnit.SECONDS.toMillis(10));
+
+        Assertions.assertFalse(thread.isAlive());
+        Assertions.assertEquals(numOperations, driver[0].getNumOperations());
+        Assertions.assertEquals(0, driver[0].getNumFailures());
+
+        Snapshot snapshot = latencyMetric.getSnapshot();
+        //at least 8 of the 9 operations hidden by the stall are back-filled, depending on timer resolution
+        Assertions.assertTrue(snapshot.size() >= numOperations + 8, "" + snapshot.size());
+        Assertions.assertTrue(snapshot.getMax() >= TimeUnit.MILLISECONDS.toNanos(100));
+        //the back-filled samples dominate the tail, which an uncorrected metric would report as ~0
+        Assertions.assertTrue(snapshot.get75thPercentile() >= TimeUnit.MILLISECONDS.toNanos(10), "" + snapshot.get75thPercentile());
+    }
+}